@@ -0,0 +1,55 @@
+package com.aayvyas.log_explorer.benchmark;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.aayvyas.log_explorer.core.ingestion.IndexedLogMap;
+import com.aayvyas.log_explorer.core.ingestion.JsonFlattener;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+
+/**
+ * The stages of ingesting one whole file, each timed on its own: streaming
+ * parse, flattening, and building the index from already parsed entries.
+ * One operation is the whole file, divide by {@code entries} for per-line
+ * cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IngestionBenchmark {
+
+    @Benchmark
+    public void parse(LogFileState state, Blackhole blackhole) throws Exception {
+        try (InputStream in = Files.newInputStream(state.file)) {
+            state.parser.parse(in, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void flatten(LogFileState state, Blackhole blackhole) {
+        for (IndexedLogMap entry : state.parsed) {
+            blackhole.consume(JsonFlattener.flatten(entry.logEntry()));
+        }
+    }
+
+    @Benchmark
+    public LogSegment addToIndex(LogFileState state) {
+        LogSegment segment = state.newSegment();
+        for (IndexedLogMap entry : state.parsed) {
+            segment.addToIndex(entry.logEntry(), entry.offset(), entry.length());
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,86 @@
+package com.aayvyas.log_explorer.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.aayvyas.log_explorer.core.ingestion.IndexedLogMap;
+import com.aayvyas.log_explorer.core.ingestion.JacksonStreamLogParser;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+import com.aayvyas.log_explorer.core.storage.SegmentOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A synthetic log file on disk plus its parsed entries, generated once per
+ * trial for every combination of size and cardinality.
+ */
+@State(Scope.Benchmark)
+public class LogFileState {
+
+    @Param({ "10000", "200000" })
+    public int entries;
+
+    @Param({ "10", "10000" })
+    public int cardinality;
+
+    public ObjectMapper objectMapper;
+    public JacksonStreamLogParser parser;
+    public SegmentOptions segmentOptions;
+
+    public Path dir;
+    public Path file;
+    public List<IndexedLogMap> parsed;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        objectMapper = new ObjectMapper();
+        parser = new JacksonStreamLogParser(objectMapper);
+        segmentOptions = new SegmentOptions(Set.of("message"));
+
+        dir = Files.createTempDirectory("log-explorer-bench");
+        file = SyntheticLogs.write(dir, entries, cardinality);
+
+        parsed = new ArrayList<>(entries);
+        try (InputStream in = Files.newInputStream(file)) {
+            parser.parse(in, parsed::add);
+        }
+    }
+
+    /**
+     * A segment over the file with everything indexed, as after an upload.
+     */
+    public LogSegment indexedSegment() throws Exception {
+        LogSegment segment = newSegment();
+        segment.init();
+        for (IndexedLogMap entry : parsed) {
+            segment.addToIndex(entry.logEntry(), entry.offset(), entry.length());
+        }
+        return segment;
+    }
+
+    public LogSegment newSegment() {
+        return new LogSegment("bench", file, objectMapper, segmentOptions);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
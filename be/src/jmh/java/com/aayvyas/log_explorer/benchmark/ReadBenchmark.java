@@ -0,0 +1,61 @@
+package com.aayvyas.log_explorer.benchmark;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+
+/**
+ * Latency of reading single entries back by doc ordinal, in random order:
+ * parsed as search returns them, and raw as the NDJSON export copies them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class ReadBenchmark {
+
+    private static final int PROBES = 1 << 16;
+
+    private LogSegment segment;
+    private int[] docs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void index(LogFileState file) throws Exception {
+        segment = file.indexedSegment();
+        SplittableRandom random = new SplittableRandom(SyntheticLogs.SEED);
+        docs = random.ints(PROBES, 0, segment.getDocCount()).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        segment.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> readLog() {
+        return segment.readLog(docs[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public byte[] readRaw() {
+        return segment.readRaw(docs[next++ & (PROBES - 1)]);
+    }
+}
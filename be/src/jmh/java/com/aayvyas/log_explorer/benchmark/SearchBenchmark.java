@@ -0,0 +1,72 @@
+package com.aayvyas.log_explorer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+import com.aayvyas.log_explorer.core.search.SearchPage;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+import com.aayvyas.log_explorer.core.storage.DocSet;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+
+/**
+ * Multi-term queries against an indexed segment: planning alone (posting
+ * list intersection, no entry read) and planning plus reading the first page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({
+            "level=ERROR AND region=eu-west-1",
+            "level=ERROR AND region=eu-west-1 AND http.status=500",
+            "service=svc-3 AND user.plan=pro AND NOT level=DEBUG",
+            "timeout AND level=WARN" })
+    public String query;
+
+    private LogSegment segment;
+    private QueryNode parsed;
+
+    @Setup(Level.Trial)
+    public void index(LogFileState file) throws Exception {
+        segment = file.indexedSegment();
+        parsed = QueryParser.parse(query);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        segment.close();
+    }
+
+    @Benchmark
+    public DocSet plan() {
+        return segment.plan(parsed);
+    }
+
+    @Benchmark
+    public void firstPage(Blackhole blackhole) {
+        SearchPage<byte[]> page = segment.searchRawPage(parsed, segment.plan(parsed), null, null, SortOrder.NEWEST,
+                null, 100);
+        page.hits().forEach(blackhole::consume);
+        blackhole.consume(page.next());
+    }
+}
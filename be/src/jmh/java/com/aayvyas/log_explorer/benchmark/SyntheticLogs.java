@@ -0,0 +1,91 @@
+package com.aayvyas.log_explorer.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Deterministic log files for the benchmarks. The same entry count,
+ * cardinality and seed always produce the same bytes, so runs on different
+ * machines and commits compare like for like.
+ *
+ * Entries look like what a service mesh ships: a timestamp (in order, 10ms
+ * apart), a skewed level, a service and user id drawn from
+ * {@code cardinality} values, a handful of regions and statuses, a templated
+ * message and a unique trace id.
+ */
+public final class SyntheticLogs {
+
+    public static final long SEED = 42;
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+    private static final String[] LEVELS = { "DEBUG", "INFO", "INFO", "INFO", "INFO", "INFO", "WARN", "WARN", "ERROR" };
+    private static final String[] REGIONS = { "us-east-1", "us-west-2", "eu-west-1", "eu-central-1", "ap-south-1" };
+    private static final int[] STATUSES = { 200, 200, 200, 200, 201, 204, 400, 404, 500, 503 };
+    private static final String[] PLANS = { "free", "pro", "enterprise" };
+
+    private SyntheticLogs() {
+    }
+
+    /**
+     * Writes {@code entries} entries as one JSON array to a new file in
+     * {@code dir}.
+     */
+    public static Path write(Path dir, int entries, int cardinality) throws IOException {
+        Path file = dir.resolve("synthetic-" + entries + "-" + cardinality + ".json");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            write(out, entries, cardinality);
+        }
+        return file;
+    }
+
+    public static void write(OutputStream out, int entries, int cardinality) throws IOException {
+        SplittableRandom random = new SplittableRandom(SEED);
+        try (JsonGenerator json = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            for (int i = 0; i < entries; i++) {
+                String service = "svc-" + random.nextInt(cardinality);
+                int latency = random.nextInt(2000);
+
+                json.writeStartObject();
+                json.writeStringField("timestamp", START.plusMillis(i * 10L).toString());
+                json.writeStringField("level", LEVELS[random.nextInt(LEVELS.length)]);
+                json.writeStringField("service", service);
+                json.writeStringField("region", REGIONS[random.nextInt(REGIONS.length)]);
+                json.writeStringField("message", message(random, service, latency));
+                json.writeNumberField("latency_ms", latency);
+                json.writeStringField("traceId", Long.toHexString(random.nextLong()));
+
+                json.writeObjectFieldStart("user");
+                json.writeStringField("id", "user-" + random.nextInt(cardinality));
+                json.writeStringField("plan", PLANS[random.nextInt(PLANS.length)]);
+                json.writeEndObject();
+
+                json.writeObjectFieldStart("http");
+                json.writeNumberField("status", STATUSES[random.nextInt(STATUSES.length)]);
+                json.writeEndObject();
+
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private static String message(SplittableRandom random, String service, int latency) {
+        return switch (random.nextInt(5)) {
+            case 0 -> "request completed in " + latency + " ms";
+            case 1 -> "timeout calling " + service + " after " + latency + " ms";
+            case 2 -> "user login failed: invalid token";
+            case 3 -> "cache miss for key " + random.nextInt(100_000);
+            default -> "retrying payment " + random.nextInt(1_000_000) + " attempt " + (1 + random.nextInt(3));
+        };
+    }
+}
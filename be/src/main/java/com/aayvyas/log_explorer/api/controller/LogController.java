@@ -1,15 +1,22 @@
 package com.aayvyas.log_explorer.api.controller;
 
-import java.io.File;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Stream;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -18,89 +25,509 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.aayvyas.log_explorer.core.IngestionJobService;
+import com.aayvyas.log_explorer.core.LiveTailService;
 import com.aayvyas.log_explorer.core.LogService;
+import com.aayvyas.log_explorer.core.cache.QueryResultCache;
+import com.aayvyas.log_explorer.core.ingestion.IngestionJob;
+import com.aayvyas.log_explorer.core.metrics.SearchMetrics;
+import com.aayvyas.log_explorer.core.search.Aggregations;
+import com.aayvyas.log_explorer.core.search.FederatedCursor;
+import com.aayvyas.log_explorer.core.search.FederatedHit;
+import com.aayvyas.log_explorer.core.search.FederatedPage;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+import com.aayvyas.log_explorer.core.search.SearchCursor;
+import com.aayvyas.log_explorer.core.search.SearchPage;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+import com.aayvyas.log_explorer.core.search.TextQuery;
 import com.aayvyas.log_explorer.model.LogFileMetadata;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/api/logs")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = LogController.NEXT_CURSOR_HEADER)
 public class LogController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    private static final int FLUSH_EVERY_LINES = 1000;
+    private static final int MAX_PAGE_SIZE = 10_000;
+    private static final int MAX_FACET_SIZE = 1000;
+
     private final LogService logService;
+    private final IngestionJobService ingestionJobs;
     private final ObjectMapper objectMapper;
+    private final SearchMetrics searchMetrics;
+    private final LiveTailService liveTail;
 
-    public LogController(LogService logService, ObjectMapper objectMapper) {
+    public LogController(LogService logService, IngestionJobService ingestionJobs, ObjectMapper objectMapper,
+            SearchMetrics searchMetrics, LiveTailService liveTail) {
 
         this.logService = logService;
+        this.ingestionJobs = ingestionJobs;
         this.objectMapper = objectMapper;
+        this.searchMetrics = searchMetrics;
+        this.liveTail = liveTail;
 
     }
 
+    /**
+     * Stages the file and answers 202 with an ingestion job right away, the
+     * file is indexed in the background (see {@link #getJob}). Answers 503
+     * when too many uploads are already running or queued.
+     */
     @PostMapping("/upload")
-    public ResponseEntity<String> uploadLogFile(
+    public ResponseEntity<?> uploadLogFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "description", required = false) String description,
             @RequestParam(value = "tags", required = false) List<String> tags // format: tag1,tag2
     ) {
-        try {
-            File destinationFile = File.createTempFile("log_" + System.currentTimeMillis() + "_", ".json");
-            file.transferTo(destinationFile);
+        try (InputStream body = file.getInputStream()) {
+            return submit(body, file.getOriginalFilename(), description, tags);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return ResponseEntity.internalServerError().body("Failed: " + e.getMessage());
+        }
+    }
 
-            String fileId = logService.processUploadedFile(
-                    destinationFile,
-                    file.getOriginalFilename(),
-                    description,
-                    tags);
+    /**
+     * Same as {@link #uploadLogFile}, but the request body is the log file
+     * itself. Multipart uploads are spooled to disk by the container before
+     * the controller sees them; a raw body is written straight to storage as
+     * it arrives, and for uncompressed files that copy is the stored file.
+     */
+    @PostMapping("/upload/stream")
+    public ResponseEntity<?> uploadLogStream(
+            InputStream body,
+            @RequestParam("name") String name,
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "tags", required = false) List<String> tags) {
+        return submit(body, name, description, tags);
+    }
 
-            return ResponseEntity.ok(fileId);
+    private ResponseEntity<?> submit(InputStream body, String name, String description, List<String> tags) {
+        try {
+            IngestionJob job = ingestionJobs.submit(body, name, description, tags);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/logs/jobs/" + job.getJobId()))
+                    .body(job.status());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "30")
+                    .body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError().body("Failed: " + e.getMessage());
         }
     }
 
+    @GetMapping("/jobs")
+    public ResponseEntity<List<IngestionJob.Status>> listJobs() {
+        return ResponseEntity.ok(ingestionJobs.list().stream().map(IngestionJob::status).toList());
+    }
+
+    /**
+     * Progress of an upload: bytes and lines indexed so far, throughput and
+     * an ETA. The file shows up in {@code /files} and can be searched once
+     * the job has SUCCEEDED.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJob.Status> getJob(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(ingestionJobs.get(jobId).status());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Cancels a queued or running upload, 409 if it already finished or is
+     * being published and will finish anyway.
+     */
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJob.Status> cancelJob(@PathVariable String jobId) {
+        try {
+            boolean cancelled = ingestionJobs.cancel(jobId);
+            IngestionJob.Status status = ingestionJobs.get(jobId).status();
+            return cancelled ? ResponseEntity.accepted().body(status)
+                    : ResponseEntity.status(HttpStatus.CONFLICT).body(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     // Endpoint to list all files
     @GetMapping("/files")
     public ResponseEntity<List<LogFileMetadata>> listFiles() {
         return ResponseEntity.ok(logService.getAllFiles());
     }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<QueryResultCache.Stats> cacheStats() {
+        return ResponseEntity.ok(logService.getCacheStats());
+    }
+
+    /**
+     * Streams matches as NDJSON. The default "raw" format copies each entry's
+     * stored bytes (compacted to one line) straight to the response; "parsed"
+     * re-serializes the entry through Jackson.
+     *
+     * Optional ISO-8601 {@code from} (inclusive) / {@code to} (exclusive) restrict
+     * matches to a time window. Results come back in timestamp order,
+     * {@code order=NEWEST} reverses it.
+     * {@code text} adds a case-insensitive full-text match on the message
+     * fields ({@code textMode} substring, term or phrase; {@code textField} to
+     * pick a single field).
+     *
+     * {@code q} takes a boolean query such as
+     * {@code (level=ERROR OR level=WARN) AND service=payment-* AND NOT "timeout"},
+     * see {@link QueryParser}. Body filters, {@code text} and {@code q} are
+     * ANDed; a malformed {@code q} is answered with 400.
+     *
+     * With {@code limit} only one page is returned (at most {@value #MAX_PAGE_SIZE}
+     * hits). If there are more, the {@value #NEXT_CURSOR_HEADER} header carries
+     * an opaque token; passing it back as {@code cursor} with the same query
+     * returns the next page.
+     */
     @PostMapping("/{fileId}/search")
     public ResponseEntity<StreamingResponseBody> searchLogs(@PathVariable String fileId,
-            @RequestBody Map<String, String> queryFilters) {
-        Stream<Map<String, Object>> logStream = logService.searchLogs(fileId, queryFilters);
+            @RequestBody(required = false) Map<String, String> queryFilters,
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "format", defaultValue = "raw") String format,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            @RequestParam(value = "text", required = false) String text,
+            @RequestParam(value = "textMode", defaultValue = "SUBSTRING") TextQuery.Mode textMode,
+            @RequestParam(value = "textField", required = false) String textField,
+            @RequestParam(value = "order", defaultValue = "OLDEST") SortOrder order,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        QueryNode query;
+        SearchCursor after;
+        try {
+            query = searchMetrics.planning(() -> toQuery(queryFilters, q, text, textMode, textField));
+            after = SearchCursor.decode(cursor);
+            if (limit != null && limit < 1) {
+                throw new IllegalArgumentException("limit must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
 
-        StreamingResponseBody responseBody = outputStream -> {
-            try {
-                logStream.forEach(log -> {
-                    try {
+        boolean parsed = "parsed".equals(format);
+        Stream<byte[]> logStream;
+        SearchCursor next = null;
+        if (limit == null) {
+            logStream = parsed
+                    ? logService.searchLogs(fileId, query, from, to, order, after).map(this::toJsonBytes)
+                    : logService.searchLogsRaw(fileId, query, from, to, order, after);
+        } else if (parsed) {
+            SearchPage<Map<String, Object>> page = logService.searchLogsPage(fileId, query, from, to, order, after,
+                    Math.min(limit, MAX_PAGE_SIZE));
+            logStream = page.hits().map(this::toJsonBytes);
+            next = page.next();
+        } else {
+            SearchPage<byte[]> page = logService.searchLogsRawPage(fileId, query, from, to, order, after,
+                    Math.min(limit, MAX_PAGE_SIZE));
+            logStream = page.hits();
+            next = page.next();
+        }
 
-                        String json = objectMapper.writeValueAsString(log);
-                        System.out.println(json);
-                        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header("Content-Type", "application/x-ndjson");
+        if (next != null) {
+            response.header(NEXT_CURSOR_HEADER, next.encode());
+        }
+        return response.body(ndjson(logStream));
+    }
 
-                        outputStream.write(jsonBytes);
+    /**
+     * Searches several files at once, e.g. one file per pod during an
+     * incident, and streams their hits merged by timestamp (ties broken by
+     * file id) as NDJSON lines {@code {"fileId": ..., "log": {...}}}.
+     *
+     * Files are picked by {@code fileIds}, or by {@code tags} (files carrying
+     * all of them) and an {@code ingestedFrom} / {@code ingestedTo} range;
+     * without any selector every file is searched. Selecting more than
+     * {@code log-explorer.segments.max-search-files} files is a 400. The
+     * query parameters, {@code limit} and {@code cursor} work as for a single
+     * file's search. The files are loaded and searched in parallel; with
+     * {@code limit} none of them is walked past one page of matches, and the
+     * merge stops once the page is full.
+     */
+    @PostMapping("/search")
+    public ResponseEntity<StreamingResponseBody> searchFiles(
+            @RequestBody(required = false) Map<String, String> queryFilters,
+            @RequestParam(value = "fileIds", required = false) List<String> fileIds,
+            @RequestParam(value = "tags", required = false) List<String> tags,
+            @RequestParam(value = "ingestedFrom", required = false) Instant ingestedFrom,
+            @RequestParam(value = "ingestedTo", required = false) Instant ingestedTo,
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            @RequestParam(value = "text", required = false) String text,
+            @RequestParam(value = "textMode", defaultValue = "SUBSTRING") TextQuery.Mode textMode,
+            @RequestParam(value = "textField", required = false) String textField,
+            @RequestParam(value = "order", defaultValue = "OLDEST") SortOrder order,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        QueryNode query;
+        FederatedCursor after;
+        try {
+            query = searchMetrics.planning(() -> toQuery(queryFilters, q, text, textMode, textField));
+            after = FederatedCursor.decode(cursor);
+            if (limit != null && limit < 1) {
+                throw new IllegalArgumentException("limit must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
 
-                        outputStream.write('\n');
+        List<String> selected;
+        try {
+            selected = logService.selectFiles(fileIds == null ? List.of() : fileIds,
+                    tags == null ? List.of() : tags, ingestedFrom, ingestedTo);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
 
-                        outputStream.flush();
+        Stream<FederatedHit> hits;
+        FederatedCursor next = null;
+        try {
+            if (limit == null) {
+                hits = logService.searchFederated(selected, query, from, to, order, after);
+            } else {
+                FederatedPage page = logService.searchFederatedPage(selected, query, from, to, order, after,
+                        Math.min(limit, MAX_PAGE_SIZE));
+                hits = page.hits();
+                next = page.next();
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header("Content-Type", "application/x-ndjson");
+        if (next != null) {
+            response.header(NEXT_CURSOR_HEADER, next.encode());
+        }
+        return response.body(ndjson(hits.map(LogController::toJsonLine)));
+    }
 
+    // the stored bytes go out as they are, wrapped with the file they came from
+    private static byte[] toJsonLine(FederatedHit hit) {
+        // file ids are generated UUIDs, nothing to escape
+        byte[] prefix = ("{\"fileId\":\"" + hit.fileId() + "\",\"log\":").getBytes(StandardCharsets.UTF_8);
+        byte[] line = new byte[prefix.length + hit.log().length + 1];
+        System.arraycopy(prefix, 0, line, 0, prefix.length);
+        System.arraycopy(hit.log(), 0, line, prefix.length, hit.log().length);
+        line[line.length - 1] = '}';
+        return line;
+    }
+
+    private StreamingResponseBody ndjson(Stream<byte[]> logStream) {
+        return outputStream -> {
+            BufferedOutputStream out = new BufferedOutputStream(outputStream, WRITE_BUFFER_BYTES);
+            int[] pending = { 0 };
+            try {
+                logStream.forEach(log -> {
+                    try {
+                        out.write(log);
+                        out.write('\n');
+
+                        // flush in batches so the client still sees progress on big exports
+                        if (++pending[0] == FLUSH_EVERY_LINES) {
+                            out.flush();
+                            pending[0] = 0;
+                        }
                     } catch (IOException e) {
                         throw new RuntimeException("Client disconnected", e);
                     }
                 });
+                out.flush();
             } catch (Exception e) {
                 System.err.println("Streaming error: " + e.getMessage());
             } finally {
                 logStream.close();
             }
         };
+    }
 
-        return ResponseEntity.ok()
-                .header("Content-Type", "application/x-ndjson")
-                .body(responseBody);
+    private static ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.badRequest()
+                .header("Content-Type", "text/plain")
+                .body(outputStream -> outputStream.write(bytes));
+    }
+
+    // the same plain text message for endpoints that answer JSON or events
+    private static ResponseEntity<String> badRequestMessage(String message) {
+        return ResponseEntity.badRequest()
+                .header("Content-Type", "text/plain")
+                .body(message);
+    }
+
+    /**
+     * Facet counts, numeric stats and a time histogram over everything the
+     * same query would match, answered from the index without reading a
+     * single entry. Takes the query parameters of search; {@code fields} are
+     * the fields to facet on (top {@code size} values each), {@code stats}
+     * the numeric fields to summarize with the given {@code percentiles},
+     * and {@code interval} the histogram bucket width, e.g. {@code 1m} or
+     * {@code PT1H}, picked automatically if omitted.
+     */
+    @PostMapping("/{fileId}/aggregations")
+    public ResponseEntity<?> aggregate(@PathVariable String fileId,
+            @RequestBody(required = false) Map<String, String> queryFilters,
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            @RequestParam(value = "text", required = false) String text,
+            @RequestParam(value = "textMode", defaultValue = "SUBSTRING") TextQuery.Mode textMode,
+            @RequestParam(value = "textField", required = false) String textField,
+            @RequestParam(value = "fields", required = false) List<String> fields,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "stats", required = false) List<String> stats,
+            @RequestParam(value = "percentiles", defaultValue = "50,90,95,99") List<Double> percentiles,
+            @RequestParam(value = "interval", required = false) Duration interval) {
+        QueryNode query;
+        try {
+            query = searchMetrics.planning(() -> toQuery(queryFilters, q, text, textMode, textField));
+            if (size < 1) {
+                throw new IllegalArgumentException("size must be positive");
+            }
+            if (interval != null && (interval.isNegative() || interval.toMillis() == 0)) {
+                throw new IllegalArgumentException("interval must be at least 1ms: " + interval);
+            }
+            for (double p : percentiles) {
+                if (!(p > 0 && p <= 100)) {
+                    throw new IllegalArgumentException("percentiles must be above 0 and at most 100: " + p);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequestMessage(e.getMessage());
+        }
+
+        try {
+            return ResponseEntity.ok(logService.aggregate(fileId, query, from, to,
+                    fields == null ? List.of() : fields, Math.min(size, MAX_FACET_SIZE),
+                    stats == null ? List.of() : stats, percentiles, interval));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // body filters, text params and q, ANDed
+    private QueryNode toQuery(Map<String, String> queryFilters, String q, String text, TextQuery.Mode textMode,
+            String textField) {
+        return QueryNode.and(
+                QueryNode.fromFilters(queryFilters),
+                text == null || text.isBlank() ? null
+                        : new QueryNode.TextMatch(new TextQuery(textField, text, textMode)),
+                QueryParser.parse(q));
+    }
+
+    private byte[] toJsonBytes(Map<String, Object> log) {
+        try {
+            return objectMapper.writeValueAsBytes(log);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize log", e);
+        }
+    }
+
+    /**
+     * Follows a stored file that is still being written to: entries appended
+     * to it are indexed as they come and show up in searches. 409 for a file
+     * stored compressed, which can't be appended to.
+     */
+    @PostMapping("/{fileId}/follow")
+    public ResponseEntity<LiveTailService.Status> follow(@PathVariable String fileId) {
+        try {
+            return ResponseEntity.ok(liveTail.follow(fileId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @DeleteMapping("/{fileId}/follow")
+    public ResponseEntity<LiveTailService.Status> unfollow(@PathVariable String fileId) {
+        try {
+            return ResponseEntity.ok(liveTail.unfollow(fileId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/follows")
+    public ResponseEntity<List<LiveTailService.Status>> listFollows() {
+        return ResponseEntity.ok(liveTail.list());
+    }
+
+    /**
+     * Server-sent events with every entry appended to a followed file from
+     * now on that matches the query (same {@code q} and {@code text}
+     * parameters as search): one event per entry, its data the entry as one
+     * line of JSON. A {@code dropped} event tells how many matches were
+     * skipped because the client fell behind. The stream ends when the file is
+     * no longer followed; 409 if it isn't followed to begin with.
+     */
+    @GetMapping(value = "/{fileId}/tail", produces = "text/event-stream")
+    public ResponseEntity<?> tail(@PathVariable String fileId,
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "text", required = false) String text,
+            @RequestParam(value = "textMode", defaultValue = "SUBSTRING") TextQuery.Mode textMode,
+            @RequestParam(value = "textField", required = false) String textField) {
+        QueryNode query;
+        try {
+            query = toQuery(null, q, text, textMode, textField);
+        } catch (IllegalArgumentException e) {
+            return badRequestMessage(e.getMessage());
+        }
+
+        LiveTailService.Subscription subscription;
+        try {
+            subscription = liveTail.subscribe(fileId, query);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        // no timeout, the stream lasts until the client leaves or following stops
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(subscription::close);
+        emitter.onError(e -> subscription.close());
+        // waits on the subscription, never on the poller; a container thread isn't held either
+        Thread.ofVirtual().name("tail-" + fileId).start(() -> pushTail(subscription, emitter));
+        return ResponseEntity.ok(emitter);
+    }
+
+    private static void pushTail(LiveTailService.Subscription subscription, SseEmitter emitter) {
+        try {
+            while (!subscription.isClosed()) {
+                byte[] log = subscription.next();
+                long dropped = subscription.takeDropped();
+                if (dropped > 0) {
+                    emitter.send(SseEmitter.event().name("dropped").data(dropped));
+                }
+                if (log != null) {
+                    emitter.send(SseEmitter.event().data(new String(log, StandardCharsets.UTF_8)));
+                } else if (!subscription.isClosed()) {
+                    // idle, also how a client that left is noticed
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                }
+            }
+            emitter.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        } catch (Exception e) {
+            // the client went away
+            subscription.close();
+        }
     }
 
     @GetMapping("/{fileId}/fields")
@@ -112,4 +539,24 @@ public class LogController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    /**
+     * Autocomplete for query values: the values of {@code field} starting
+     * with {@code prefix}, those in the most entries first, with their entry
+     * counts.
+     */
+    @GetMapping("/{fileId}/fields/{field}/values")
+    public ResponseEntity<?> suggestValues(@PathVariable String fileId,
+            @PathVariable String field,
+            @RequestParam(value = "prefix", defaultValue = "") String prefix,
+            @RequestParam(value = "size", defaultValue = "10") int size) {
+        if (size < 1) {
+            return badRequestMessage("size must be positive");
+        }
+        try {
+            return ResponseEntity.ok(logService.suggestValues(fileId, field, prefix, Math.min(size, MAX_FACET_SIZE)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 }
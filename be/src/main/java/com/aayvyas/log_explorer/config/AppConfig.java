@@ -1,14 +1,19 @@
 
 package com.aayvyas.log_explorer.config;
 
+import java.util.Set;
+
+import com.aayvyas.log_explorer.core.storage.SegmentOptions;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 @Configuration
+@EnableConfigurationProperties(LogExplorerProperties.class)
 public class AppConfig {
 
     @Bean
@@ -22,4 +27,11 @@ public class AppConfig {
 
         return mapper;
     }
+
+    @Bean
+    public SegmentOptions segmentOptions(LogExplorerProperties properties) {
+        LogExplorerProperties.Index index = properties.index();
+        return new SegmentOptions(Set.copyOf(index.textFields()), index.columns(), index.bloomMinTerms(),
+                index.bloomBlockDocs());
+    }
 }
@@ -0,0 +1,113 @@
+package com.aayvyas.log_explorer.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Tunables under the {@code log-explorer.*} prefix, see
+ * application.properties for the defaults.
+ */
+@ConfigurationProperties(prefix = "log-explorer")
+public record LogExplorerProperties(@DefaultValue Ingestion ingestion, @DefaultValue Index index,
+        @DefaultValue Cache cache, @DefaultValue Jobs jobs, @DefaultValue Segments segments,
+        @DefaultValue Tail tail) {
+
+    /**
+     * @param parallelism            worker threads for parsing and indexing, 0
+     *                               means one per core
+     * @param parallelThresholdBytes files smaller than this are ingested on the
+     *                               calling thread
+     * @param chunkBytes             target size of the byte range handed to one
+     *                               worker
+     */
+    public record Ingestion(
+            @DefaultValue("0") int parallelism,
+            @DefaultValue("67108864") long parallelThresholdBytes,
+            @DefaultValue("16777216") long chunkBytes) {
+
+        public int effectiveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * @param textFields     flattened fields that get a trigram index for
+     *                       full-text search
+     * @param columns        keep a column of every field next to the inverted
+     *                       index, so text matches are verified and filtered
+     *                       facets counted without reading entries
+     * @param bloomMinTerms  a field with at least this many distinct values,
+     *                       one for every two docs or more, is indexed by
+     *                       per-block bloom filters instead of postings;
+     *                       checked again each time its values double. 0
+     *                       keeps the postings of every field
+     * @param bloomBlockDocs docs covered by one bloom filter, and read to
+     *                       verify a lookup that hits it
+     */
+    public record Index(
+            @DefaultValue({ "message", "msg", "text", "textPayload" }) List<String> textFields,
+            @DefaultValue("true") boolean columns,
+            @DefaultValue("65536") int bloomMinTerms,
+            @DefaultValue("128") int bloomBlockDocs) {
+    }
+
+    /**
+     * @param maxBytes   memory budget of the query result cache, 0 turns it off
+     * @param cachePages also keep rendered result pages, not just the postings
+     */
+    public record Cache(
+            @DefaultValue("67108864") long maxBytes,
+            @DefaultValue("true") boolean cachePages) {
+    }
+
+    /**
+     * @param maxConcurrent uploads indexed at the same time
+     * @param maxQueued     uploads waiting for a free slot, beyond that new
+     *                      uploads are refused with 503
+     * @param retained      finished jobs kept for status queries
+     */
+    public record Jobs(
+            @DefaultValue("2") int maxConcurrent,
+            @DefaultValue("16") int maxQueued,
+            @DefaultValue("100") int retained) {
+    }
+
+    /**
+     * @param maxResidentBytes   budget for the estimated index bytes of the
+     *                           files held in memory; past it the least
+     *                           recently searched are evicted and reloaded
+     *                           on their next search. 0 means no limit
+     * @param rehydrationThreads files loaded at the same time after startup,
+     *                           newest first while they fit in the budget;
+     *                           0 leaves every file to its first search
+     * @param maxSearchFiles     files one multi-file search may cover, all
+     *                           of them stay in memory until its results
+     *                           are read, budget or not
+     */
+    public record Segments(
+            @DefaultValue("1073741824") long maxResidentBytes,
+            @DefaultValue("2") int rehydrationThreads,
+            @DefaultValue("32") int maxSearchFiles) {
+    }
+
+    /**
+     * @param pollInterval     how often a followed file is checked for
+     *                         appended entries
+     * @param maxBatchBytes    appended bytes indexed in one go, searches
+     *                         wait at most for one batch
+     * @param subscriberBuffer matches held for a live tail client that
+     *                         isn't keeping up; past that new matches are
+     *                         dropped for it, indexing never waits
+     * @param keepAlive        idle time after which a live tail sends a
+     *                         comment, so proxies keep the connection open
+     */
+    public record Tail(
+            @DefaultValue("1s") Duration pollInterval,
+            @DefaultValue("8388608") int maxBatchBytes,
+            @DefaultValue("1000") int subscriberBuffer,
+            @DefaultValue("15s") Duration keepAlive) {
+    }
+}
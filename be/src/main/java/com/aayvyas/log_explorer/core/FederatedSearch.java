@@ -0,0 +1,225 @@
+package com.aayvyas.log_explorer.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.aayvyas.log_explorer.core.search.FederatedCursor;
+import com.aayvyas.log_explorer.core.search.FederatedHit;
+import com.aayvyas.log_explorer.core.search.FederatedPage;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+import com.aayvyas.log_explorer.core.storage.DocSet;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+
+/**
+ * One search over several segments, their hits merged into a single
+ * (timestamp, file id, doc) order.
+ *
+ * Every segment is planned on a thread of its own. For a page each one also
+ * walks the first few matches there, about twice its even share of the page
+ * (walking can mean reading entries to verify text candidates). The k-way
+ * merge then only compares sort keys, carries on walking a segment itself if
+ * the page needs more of it than was prefetched, and stops as soon as the
+ * page is full; only the entries that made it onto the page are read.
+ * Without a limit the merge is lazy, every segment is walked just as far as
+ * the consumer gets.
+ */
+final class FederatedSearch {
+
+    private static final int MIN_PREFETCH = 64;
+
+    private final List<LogSegment> segments;
+    private final QueryNode query;
+    private final Instant from;
+    private final Instant to;
+    private final SortOrder order;
+    private final FederatedCursor after;
+    private final Function<LogSegment, DocSet> planner;
+    private final ExecutorService executor;
+
+    FederatedSearch(List<LogSegment> segments, QueryNode query, Instant from, Instant to, SortOrder order,
+            FederatedCursor after, Function<LogSegment, DocSet> planner, ExecutorService executor) {
+        this.segments = segments;
+        this.query = query;
+        this.from = from;
+        this.to = to;
+        this.order = order;
+        this.after = after;
+        this.planner = planner;
+        this.executor = executor;
+    }
+
+    FederatedPage page(int limit) {
+        // one extra match tells whether there is a next page
+        int prefetch = Math.min(limit + 1, Math.max(MIN_PREFETCH, 2 * (limit + 1) / Math.max(1, segments.size())));
+        List<Future<Source>> walks = new ArrayList<>(segments.size());
+        for (LogSegment segment : segments) {
+            walks.add(executor.submit(() -> {
+                Source source = new Source(segment, matches(segment, planner.apply(segment)).iterator());
+                source.prefetch(prefetch);
+                return source;
+            }));
+        }
+        List<Source> sources = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            sources.add(await(walks, i));
+        }
+
+        Merge merge = new Merge(sources);
+        Source[] owners = new Source[limit];
+        int[] docs = new int[limit];
+        int size = 0;
+        while (size < limit && merge.next()) {
+            owners[size] = merge.source;
+            docs[size] = merge.doc;
+            size++;
+        }
+
+        FederatedCursor next = null;
+        if (size == limit && merge.next()) {
+            Source last = owners[size - 1];
+            next = new FederatedCursor(last.segment.timeOf(docs[size - 1]), last.segment.getFileId(),
+                    docs[size - 1]);
+        }
+        return new FederatedPage(IntStream.range(0, size).mapToObj(i -> hit(owners[i], docs[i]))
+                .filter(Objects::nonNull), next);
+    }
+
+    Stream<FederatedHit> stream() {
+        List<Future<DocSet>> plans = new ArrayList<>(segments.size());
+        for (LogSegment segment : segments) {
+            plans.add(executor.submit(() -> planner.apply(segment)));
+        }
+        List<Source> sources = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            LogSegment segment = segments.get(i);
+            sources.add(new Source(segment, matches(segment, await(plans, i)).iterator()));
+        }
+
+        Merge merge = new Merge(sources);
+        Spliterator<FederatedHit> hits = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super FederatedHit> action) {
+                if (!merge.next()) {
+                    return false;
+                }
+                action.accept(hit(merge.source, merge.doc));
+                return true;
+            }
+        };
+        return StreamSupport.stream(hits, false).filter(Objects::nonNull);
+    }
+
+    private IntStream matches(LogSegment segment, DocSet planned) {
+        return segment.matches(query, planned, from, to, order,
+                after == null ? null : after.in(segment.getFileId()));
+    }
+
+    private static FederatedHit hit(Source source, int doc) {
+        byte[] log = source.segment.readRaw(doc);
+        return log == null ? null : new FederatedHit(source.segment.getFileId(), log);
+    }
+
+    private <T> T await(List<Future<T>> futures, int i) {
+        try {
+            return futures.get(i).get();
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to search " + segments.get(i).getFileId(), e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while searching", e);
+        }
+    }
+
+    // the matches of one segment, positioned on the next one to merge
+    private static final class Source {
+        final LogSegment segment;
+        final PrimitiveIterator.OfInt docs;
+        int[] prefetched = new int[0];
+        int prefetchedNext;
+        int doc;
+        long time;
+
+        Source(LogSegment segment, PrimitiveIterator.OfInt docs) {
+            this.segment = segment;
+            this.docs = docs;
+        }
+
+        void prefetch(int count) {
+            int[] buffer = new int[count];
+            int n = 0;
+            while (n < count && docs.hasNext()) {
+                buffer[n++] = docs.nextInt();
+            }
+            prefetched = Arrays.copyOf(buffer, n);
+        }
+
+        boolean advance() {
+            if (prefetchedNext < prefetched.length) {
+                doc = prefetched[prefetchedNext++];
+            } else if (docs.hasNext()) {
+                doc = docs.nextInt();
+            } else {
+                return false;
+            }
+            time = segment.timeOf(doc);
+            return true;
+        }
+    }
+
+    private final class Merge {
+        private final PriorityQueue<Source> heads;
+
+        // the hit taken by the last next()
+        Source source;
+        int doc;
+
+        Merge(List<Source> sources) {
+            Comparator<Source> ascending = Comparator.<Source>comparingLong(s -> s.time)
+                    .thenComparing(s -> s.segment.getFileId())
+                    .thenComparingInt(s -> s.doc);
+            this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                    order == SortOrder.NEWEST ? ascending.reversed() : ascending);
+            for (Source s : sources) {
+                if (s.advance()) {
+                    heads.add(s);
+                }
+            }
+        }
+
+        boolean next() {
+            Source head = heads.poll();
+            if (head == null) {
+                return false;
+            }
+            source = head;
+            doc = head.doc;
+            if (head.advance()) {
+                heads.add(head);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.aayvyas.log_explorer.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Service;
+
+import com.aayvyas.log_explorer.config.LogExplorerProperties;
+import com.aayvyas.log_explorer.core.ingestion.IngestionJob;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs uploads as background jobs, so an upload request returns as soon as
+ * its body is on disk instead of after the whole file is indexed.
+ *
+ * Jobs run on virtual threads, at most {@code maxConcurrent} at a time. At
+ * most {@code maxQueued} more may wait for a slot; past that an upload is
+ * refused up front, before its body is read, so a burst of uploads can't
+ * fill the disk with staged files nobody will index soon.
+ *
+ * Bytes and lines indexed are exported as counters, live jobs included, so
+ * their rate is the ingestion throughput.
+ */
+@Service
+public class IngestionJobService implements MeterBinder {
+
+    private final LogService logService;
+    private final LogExplorerProperties.Jobs config;
+
+    private final ExecutorService executor;
+    // one permit per running or queued job
+    private final Semaphore admitted;
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    // progress of jobs pruned from the map, so the counters never go back
+    private long prunedBytes;
+    private long prunedLines;
+
+    public IngestionJobService(LogService logService, LogExplorerProperties properties) {
+        this.logService = logService;
+        this.config = properties.jobs();
+
+        this.executor = new ThreadPoolExecutor(config.maxConcurrent(), config.maxConcurrent(), 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), Thread.ofVirtual().name("ingest-job-", 1).factory());
+        this.admitted = new Semaphore(config.maxConcurrent() + config.maxQueued());
+    }
+
+    /**
+     * Stages {@code body} and queues it for indexing.
+     *
+     * @throws RejectedExecutionException if too many jobs are running or
+     *                                    queued already
+     */
+    public IngestionJob submit(InputStream body, String fileName, String description, List<String> tags)
+            throws IOException {
+        if (!admitted.tryAcquire()) {
+            throw new RejectedExecutionException("Too many uploads in progress, try again later");
+        }
+
+        IngestionJob job;
+        try {
+            String fileId = UUID.randomUUID().toString();
+            long size = logService.stageUpload(fileId, body);
+            job = new IngestionJob(fileId, fileName, size);
+            jobs.put(job.getJobId(), job);
+            executor.execute(() -> run(job, description, tags));
+        } catch (IOException | RuntimeException e) {
+            admitted.release();
+            throw e;
+        }
+
+        pruneFinished();
+        return job;
+    }
+
+    private void run(IngestionJob job, String description, List<String> tags) {
+        if (!job.start()) {
+            // cancelled while queued, cancel() already cleaned up
+            return;
+        }
+
+        try {
+            logService.ingestStaged(job, description, tags);
+            job.finish(null);
+        } catch (Exception e) {
+            job.finish(e);
+            if (job.getState() == IngestionJob.State.FAILED) {
+                System.err.println("Ingestion job " + job.getJobId() + " failed: " + e.getMessage());
+            }
+        } finally {
+            admitted.release();
+        }
+    }
+
+    public IngestionJob get(String jobId) {
+        IngestionJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Job not found: " + jobId);
+        }
+        return job;
+    }
+
+    public List<IngestionJob> list() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(IngestionJob::getSubmittedAt).reversed())
+                .toList();
+    }
+
+    /**
+     * Cancels a queued or running job; a running one stops at its next entry
+     * and removes whatever it stored. Returns false if the job had already
+     * finished, or was too far along: indexed and about to be published.
+     */
+    public boolean cancel(String jobId) {
+        IngestionJob job = get(jobId);
+        if (job.isFinished()) {
+            return false;
+        }
+        if (job.cancel()) {
+            // never started, so nobody else will release its slot or staged file
+            logService.discardStaged(job.getFileId());
+            admitted.release();
+        }
+        return !job.isCommitted();
+    }
+
+    // finished jobs are only kept around for their status, drop the oldest
+    private synchronized void pruneFinished() {
+        List<IngestionJob> finished = jobs.values().stream()
+                .filter(IngestionJob::isFinished)
+                .sorted(Comparator.comparing(IngestionJob::getSubmittedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - config.retained(); i++) {
+            IngestionJob job = finished.get(i);
+            jobs.remove(job.getJobId());
+            prunedBytes += job.getBytesProcessed();
+            prunedLines += job.getLinesProcessed();
+        }
+    }
+
+    // under the lock of pruneFinished, a job is counted either in the map or in the pruned total
+    private synchronized long bytesIngested() {
+        return prunedBytes + jobs.values().stream().mapToLong(IngestionJob::getBytesProcessed).sum();
+    }
+
+    private synchronized long linesIngested() {
+        return prunedLines + jobs.values().stream().mapToLong(IngestionJob::getLinesProcessed).sum();
+    }
+
+    private long count(IngestionJob.State state) {
+        return jobs.values().stream().filter(job -> job.getState() == state).count();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("logexplorer.ingest.bytes", this, IngestionJobService::bytesIngested)
+                .description("Bytes of uploads indexed")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("logexplorer.ingest.lines", this, IngestionJobService::linesIngested)
+                .description("Log entries of uploads indexed")
+                .register(registry);
+        for (IngestionJob.State state : List.of(IngestionJob.State.QUEUED, IngestionJob.State.RUNNING)) {
+            Gauge.builder("logexplorer.ingest.jobs", this, service -> service.count(state))
+                    .description("Upload jobs waiting for or holding a slot")
+                    .tag("state", state.name().toLowerCase())
+                    .register(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(IngestionJob::cancel);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,357 @@
+package com.aayvyas.log_explorer.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Service;
+
+import com.aayvyas.log_explorer.config.LogExplorerProperties;
+import com.aayvyas.log_explorer.core.ingestion.IndexedLogMap;
+import com.aayvyas.log_explorer.core.ingestion.TailReader;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Live tail: follows stored files that are still being written to, indexing
+ * entries as they are appended, and pushes the new entries that match a
+ * standing query to subscribers.
+ *
+ * A followed file is polled every {@code pollInterval}. Parsing resumes at the
+ * end of the last indexed entry (see {@link TailReader}) and the new entries
+ * go into the existing postings of the segment, no rebuild; searches see them
+ * as soon as a batch is in. The segment stays in memory while it is followed
+ * and does without its columns until following stops.
+ *
+ * Each subscriber has a queue of at most {@code subscriberBuffer} matches
+ * that the poller only ever offers to: a client that can't keep up misses
+ * entries, and is told how many, rather than holding up indexing.
+ */
+@Service
+public class LiveTailService implements MeterBinder {
+
+    public record Status(String fileId, long indexedBytes, int docCount, long appendedLines, int subscribers,
+            Instant followingSince) {
+    }
+
+    private final LogService logService;
+    private final TailReader reader;
+    private final LogExplorerProperties.Tail config;
+
+    // a single thread polls every followed file, appends to one segment are never concurrent
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("log-tail").daemon().factory());
+
+    private final Map<String, Follower> followers = new ConcurrentHashMap<>();
+
+    private final LongAdder appendedLines = new LongAdder();
+    private final LongAdder droppedMatches = new LongAdder();
+
+    public LiveTailService(LogService logService, ObjectMapper objectMapper, LogExplorerProperties properties) {
+        this.logService = logService;
+        this.reader = new TailReader(objectMapper);
+        this.config = properties.tail();
+    }
+
+    /**
+     * Starts following a stored file, or returns how it is going if it
+     * already is.
+     *
+     * @throws IllegalArgumentException if the file is unknown
+     * @throws IllegalStateException    if the file is stored compressed
+     */
+    public synchronized Status follow(String fileId) {
+        Follower existing = followers.get(fileId);
+        if (existing != null) {
+            return existing.status();
+        }
+
+        SegmentManager.Lease lease = logService.pin(fileId);
+        try {
+            LogSegment segment = lease.segment();
+            if (!segment.isRaw()) {
+                throw new IllegalStateException("Compressed files can't be followed: " + fileId);
+            }
+            FileChannel channel = FileChannel.open(segment.getFilePath(), StandardOpenOption.READ);
+            Follower follower = new Follower(lease, channel, segment.indexedEnd());
+            followers.put(fileId, follower);
+            // the first poll waits for the monitor, a failing one can't miss the task it cancels
+            synchronized (follower) {
+                follower.task = poller.scheduleWithFixedDelay(follower::poll, 0, config.pollInterval().toMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
+            return follower.status();
+        } catch (IOException e) {
+            lease.close();
+            throw new UncheckedIOException("Failed to open " + fileId, e);
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops following a file: its subscribers are disconnected, and the
+     * segment gets its columns back and is saved.
+     *
+     * @throws IllegalArgumentException if the file isn't followed
+     */
+    public synchronized Status unfollow(String fileId) {
+        Follower follower = followers.remove(fileId);
+        if (follower == null) {
+            throw new IllegalArgumentException("File is not followed: " + fileId);
+        }
+        follower.stop();
+        return follower.status();
+    }
+
+    public List<Status> list() {
+        return followers.values().stream()
+                .map(Follower::status)
+                .sorted(Comparator.comparing(Status::followingSince))
+                .toList();
+    }
+
+    /**
+     * Subscribes to the entries appended to a followed file from now on that
+     * match {@code query}. Close the subscription when done.
+     *
+     * @throws IllegalStateException if the file isn't followed
+     */
+    public Subscription subscribe(String fileId, QueryNode query) {
+        Follower follower = followers.get(fileId);
+        if (follower == null) {
+            throw new IllegalStateException("File is not followed: " + fileId);
+        }
+        Subscription subscription = new Subscription(follower, query);
+        follower.subscribers.add(subscription);
+        if (follower.stopped) {
+            // raced with unfollow, which may have missed it
+            subscription.close();
+        }
+        return subscription;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("logexplorer.tail.files", followers, Map::size)
+                .description("Files being followed for appended entries")
+                .register(registry);
+        Gauge.builder("logexplorer.tail.subscribers", this, LiveTailService::subscriberCount)
+                .description("Clients connected to a live tail")
+                .register(registry);
+        FunctionCounter.builder("logexplorer.tail.lines", appendedLines, LongAdder::sum)
+                .description("Log entries indexed from appends to followed files")
+                .register(registry);
+        FunctionCounter.builder("logexplorer.tail.dropped", droppedMatches, LongAdder::sum)
+                .description("Matches a live tail client missed because its buffer was full")
+                .register(registry);
+    }
+
+    private int subscriberCount() {
+        return followers.values().stream().mapToInt(follower -> follower.subscribers.size()).sum();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        for (String fileId : List.copyOf(followers.keySet())) {
+            Follower follower = followers.remove(fileId);
+            if (follower != null) {
+                follower.stop();
+            }
+        }
+        poller.shutdownNow();
+    }
+
+    /**
+     * Matches pushed to one client. The poller offers to it without waiting,
+     * the client takes them with {@link #next()} on a thread of its own.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        // wakes up a client waiting in next() once the subscription is closed
+        private static final byte[] CLOSED = new byte[0];
+
+        private final Follower follower;
+        private final QueryNode query;
+        private final BlockingQueue<byte[]> buffer;
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean closed;
+
+        private Subscription(Follower follower, QueryNode query) {
+            this.follower = follower;
+            this.query = query;
+            this.buffer = new ArrayBlockingQueue<>(config.subscriberBuffer());
+        }
+
+        private void offer(byte[] log) {
+            if (!closed && !buffer.offer(log)) {
+                dropped.incrementAndGet();
+                droppedMatches.increment();
+            }
+        }
+
+        /**
+         * The next matching entry, compacted to one line. Waits up to the
+         * keep-alive interval; null if nothing matched by then or the
+         * subscription was closed.
+         */
+        public byte[] next() throws InterruptedException {
+            if (closed) {
+                return null;
+            }
+            byte[] log = buffer.poll(config.keepAlive().toMillis(), TimeUnit.MILLISECONDS);
+            return log == CLOSED ? null : log;
+        }
+
+        /**
+         * Matches dropped for this client since the last call, because its
+         * buffer was full.
+         */
+        public long takeDropped() {
+            return dropped.getAndSet(0);
+        }
+
+        /**
+         * True once the client left or the file is no longer followed.
+         */
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                follower.subscribers.remove(this);
+                buffer.clear();
+                buffer.offer(CLOSED);
+            }
+        }
+    }
+
+    // one followed file, polled on the poller thread; its monitor keeps stop() out of a poll
+    private final class Follower {
+        final String fileId;
+        final SegmentManager.Lease lease;
+        final FileChannel channel;
+        final Instant since = Instant.now();
+        final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+        final AtomicLong appended = new AtomicLong();
+
+        // file position the next poll resumes parsing at
+        volatile long offset;
+        volatile boolean stopped;
+        ScheduledFuture<?> task;
+
+        Follower(SegmentManager.Lease lease, FileChannel channel, long offset) {
+            this.fileId = lease.segment().getFileId();
+            this.lease = lease;
+            this.channel = channel;
+            this.offset = offset;
+        }
+
+        void poll() {
+            try {
+                synchronized (this) {
+                    if (!stopped) {
+                        indexAppended();
+                    }
+                }
+            } catch (Exception e) {
+                // a failed poll would fail the same way next time, give up on the file
+                System.err.println("Stopped following " + fileId + ": " + e.getMessage());
+                followers.remove(fileId, this);
+                stop();
+            }
+        }
+
+        private void indexAppended() throws IOException {
+            LogSegment segment = lease.segment();
+            long size = channel.size();
+            if (size < offset) {
+                throw new IllegalStateException("File was truncated to " + size + " bytes");
+            }
+            while (offset < size) {
+                TailReader.Batch batch = reader.read(channel, offset, size, config.maxBatchBytes());
+                if (batch.end() == offset) {
+                    // the last entry is only partly written, next poll
+                    return;
+                }
+                if (!batch.entries().isEmpty()) {
+                    int first = segment.append(batch.entries());
+                    logService.appended(segment);
+                    appended.addAndGet(batch.entries().size());
+                    appendedLines.add(batch.entries().size());
+                    publish(segment, first, batch.entries());
+                }
+                offset = batch.end();
+            }
+        }
+
+        // each entry is read back once, and only if some subscriber wants it
+        private void publish(LogSegment segment, int first, List<IndexedLogMap> entries) {
+            if (subscribers.isEmpty()) {
+                return;
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                byte[] log = null;
+                for (Subscription subscription : subscribers) {
+                    if (segment.matches(subscription.query, entries.get(i).logEntry())) {
+                        if (log == null) {
+                            log = segment.readRaw(first + i);
+                        }
+                        if (log != null) {
+                            subscription.offer(log);
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized void stop() {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            if (task != null) {
+                task.cancel(false);
+            }
+            subscribers.forEach(Subscription::close);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close followed file: " + fileId + " " + e.getMessage());
+            }
+            logService.settle(lease.segment());
+            lease.close();
+        }
+
+        Status status() {
+            return new Status(fileId, offset, lease.segment().getDocCount(), appended.get(), subscribers.size(),
+                    since);
+        }
+    }
+}
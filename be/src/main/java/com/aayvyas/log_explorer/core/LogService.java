@@ -1,106 +1,358 @@
 package com.aayvyas.log_explorer.core;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import org.springframework.stereotype.Service;
 
-import com.aayvyas.log_explorer.core.ingestion.JacksonStreamLogParser;
+import com.aayvyas.log_explorer.config.LogExplorerProperties;
+import com.aayvyas.log_explorer.core.cache.QueryResultCache;
+import com.aayvyas.log_explorer.core.ingestion.DetectingLogParser;
+import com.aayvyas.log_explorer.core.ingestion.IndexedLogMap;
+import com.aayvyas.log_explorer.core.ingestion.IngestionJob;
+import com.aayvyas.log_explorer.core.ingestion.LogFormat;
 import com.aayvyas.log_explorer.core.ingestion.LogParser;
+import com.aayvyas.log_explorer.core.ingestion.ParallelLogIngester;
+import com.aayvyas.log_explorer.core.ingestion.TeeInputStream;
+import com.aayvyas.log_explorer.core.metrics.SearchMetrics;
+import com.aayvyas.log_explorer.core.search.Aggregations;
+import com.aayvyas.log_explorer.core.search.FederatedCursor;
+import com.aayvyas.log_explorer.core.search.FederatedHit;
+import com.aayvyas.log_explorer.core.search.FederatedPage;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.SearchCursor;
+import com.aayvyas.log_explorer.core.search.SearchPage;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+import com.aayvyas.log_explorer.core.storage.BlockCompressedWriter;
+import com.aayvyas.log_explorer.core.storage.DocSet;
 import com.aayvyas.log_explorer.core.storage.LogSegment;
+import com.aayvyas.log_explorer.core.storage.SegmentIndexFile;
+import com.aayvyas.log_explorer.core.storage.SegmentOptions;
 
 import com.aayvyas.log_explorer.model.LogFileMetadata;
 import com.aayvyas.log_explorer.model.LogSource;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @Service
-public class LogService {
+public class LogService implements MeterBinder {
 
     private final LogParser logParser;
 
+    private final ParallelLogIngester parallelIngester;
+
     private final ObjectMapper objectMapper;
 
-    private final ConcurrentHashMap<String, LogSegment> activeSegments = new ConcurrentHashMap<>();
+    private final SegmentOptions segmentOptions;
+
+    // every stored file, with the indexes of the recently used ones in memory
+    private final SegmentManager segments;
 
     private final LogMetadataRepository metadataRepository;
 
+    private final QueryResultCache queryCache;
+
+    private final boolean cachePages;
+
+    private final SearchMetrics searchMetrics;
+
+    // searches over several files plan and walk each one on its own virtual thread
+    private final ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor();
+
+    // files one search over several may hold in memory at once
+    private final int maxSearchFiles;
+
+    // loads that found no usable saved index and parsed the file again
+    private final LongAdder reindexes = new LongAdder();
+
     // Directory where we store raw logs
     private final Path storageDir = Paths.get("log_storage");
 
-    public LogService(JacksonStreamLogParser logParser, ObjectMapper objectMapper,
-            LogMetadataRepository metadataRepository) {
+    public LogService(DetectingLogParser logParser, ParallelLogIngester parallelIngester,
+            ObjectMapper objectMapper, SegmentOptions segmentOptions, LogMetadataRepository metadataRepository,
+            QueryResultCache queryCache, LogExplorerProperties properties, SearchMetrics searchMetrics) {
         this.logParser = logParser;
+        this.parallelIngester = parallelIngester;
         storageDir.toFile().mkdirs();
         this.objectMapper = objectMapper;
+        this.segmentOptions = segmentOptions;
         this.metadataRepository = metadataRepository;
+        this.queryCache = queryCache;
+        this.cachePages = properties.cache().cachePages();
+        this.maxSearchFiles = properties.segments().maxSearchFiles();
+        this.searchMetrics = searchMetrics;
+        this.segments = new SegmentManager(properties.segments().maxResidentBytes(), this::loadSegment,
+                queryCache::invalidate);
     }
 
-    // Rehydration
+    // Rehydration: files are only registered here, so each one is searchable right away and loaded on
+    // first access; RehydrationService loads the newest ones ahead of that once the app is up
     @PostConstruct
     public void loadExistingSegments() {
+        // uploads staged when the last run stopped never got a job back
+        try (Stream<Path> staged = Files.list(storageDir)) {
+            staged.filter(path -> path.toString().endsWith(".upload")).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Failed to clean up staged uploads: " + e.getMessage());
+        }
+
         List<LogFileMetadata> allFiles = metadataRepository.findAll();
         for (LogFileMetadata meta : allFiles) {
-            try {
-                Path filePath = Paths.get(meta.getStoragePath());
-                if (filePath.toFile().exists()) {
-                    System.out.println("Reloading Segment: " + meta.getFileId());
-
-                    // right now we are re-indexing file from scratch, but we need to serialise this
-                    // to disk
-                    // so that we can read universalIndexes from disk
-
-                    processLogFile(meta.getFileId(), filePath.toFile(), false);
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to reload file: " + meta.getFileId());
+            Path filePath = Paths.get(meta.getStoragePath());
+            if (filePath.toFile().exists()) {
+                segments.register(meta.getFileId(), filePath);
+            } else {
+                System.err.println("Stored file missing for: " + meta.getFileId());
             }
         }
+    }
 
+    @PreDestroy
+    public void shutdown() {
+        fanOut.shutdownNow();
+        segments.close();
     }
 
-    private void processLogFile(String fileId, File file, boolean isNew) throws Exception {
-        LogSegment segment = new LogSegment(fileId, file.toPath(), objectMapper);
+    /**
+     * Brings a stored file's index into memory for the {@link SegmentManager},
+     * re-indexing the file if the saved index can't be used.
+     */
+    private LogSegment loadSegment(String fileId, Path storedFile) throws Exception {
+        LogSegment segment = new LogSegment(fileId, storedFile, objectMapper, segmentOptions);
         segment.init();
+        if (segment.loadIndex(indexPath(fileId))) {
+            return withColumns(segment);
+        }
+        segment.close();
+
+        // index is missing, corrupt or from an older format, rebuild it
+        reindexes.increment();
+        LogSegment rebuilt = new LogSegment(fileId, storedFile, objectMapper, segmentOptions);
+        try {
+            rebuilt.init();
+            index(rebuilt, null);
+        } catch (Exception e) {
+            rebuilt.close();
+            throw e;
+        }
+        saveIndex(rebuilt);
+        return withColumns(rebuilt);
+    }
 
-        try (FileInputStream fis = new FileInputStream(file)) {
-            logParser.parse(fis, entry -> {
-                Map<String, Object> log = entry.logEntry();
-                long offset = entry.offset();
-                Map<String, Object> mapToIndex = objectMapper.convertValue(log, Map.class);
-                segment.addToIndex(mapToIndex, offset);
+    // columns are derived from the finished index and not persisted, so every load builds them again
+    private LogSegment withColumns(LogSegment segment) {
+        if (segmentOptions.columns()) {
+            segment.buildColumns();
+        }
+        return segment;
+    }
+
+    /**
+     * Builds the index of a stored file, on the parallel ingester when it is a
+     * big JSON array. {@code job} may be null.
+     */
+    private void index(LogSegment segment, IngestionJob job) throws Exception {
+        if (parallelIngester.accepts(segment.getFilePath().toFile())) {
+            parallelIngester.ingest(segment, job);
+            return;
+        }
+
+        // through the segment, a block compressed file is inflated as it is read
+        try (InputStream content = segment.openContent()) {
+            logParser.parse(content, entry -> {
+                segment.addToIndex(entry.logEntry(), entry.offset(), entry.length());
+                if (job != null) {
+                    job.setBytesProcessed(entry.offset() + entry.length());
+                    job.addLines(1);
+                }
             });
         }
+    }
+
+    private void publish(LogSegment segment) {
+        saveIndex(segment);
 
-        activeSegments.put(fileId, segment);
+        segments.publish(withColumns(segment));
+        queryCache.invalidate(segment.getFileId());
     }
 
-    public String processUploadedFile(File file, String originalName, String description, List<String> tags)
-            throws Exception {
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        segments.bindTo(registry);
+        FunctionCounter.builder("logexplorer.segments.reindexes", reindexes, LongAdder::sum)
+                .description("Segment loads that re-parsed the file for lack of a usable saved index")
+                .register(registry);
+    }
 
-        String fileId = UUID.randomUUID().toString();
+    private Path indexPath(String fileId) {
+        return SegmentIndexFile.indexPathFor(storageDir, fileId);
+    }
 
-        processLogFile(fileId, file, true);
+    private void saveIndex(LogSegment segment) {
+        // a missing index only costs a re-parse on the next boot, so don't fail ingestion
+        try {
+            segment.saveIndex(indexPath(segment.getFileId()));
+        } catch (Exception e) {
+            System.err.println("Failed to persist index for: " + segment.getFileId() + " " + e.getMessage());
+        }
+    }
 
+    private Path stagedPath(String fileId) {
+        return storageDir.resolve(fileId + ".upload");
+    }
+
+    /**
+     * Copies an upload into storage as it is, for {@link #ingestStaged} to
+     * pick up. This is all of an upload the request itself waits for.
+     */
+    public long stageUpload(String fileId, InputStream body) throws IOException {
+        Path staged = stagedPath(fileId);
+        try {
+            return Files.copy(body, staged);
+        } catch (IOException e) {
+            Files.deleteIfExists(staged);
+            throw e;
+        }
+    }
+
+    public void discardStaged(String fileId) {
+        try {
+            Files.deleteIfExists(stagedPath(fileId));
+        } catch (IOException e) {
+            System.err.println("Failed to delete staged upload: " + fileId + " " + e.getMessage());
+        }
+    }
+
+    /**
+     * Indexes a staged upload, reporting progress to {@code job}. The file is
+     * published (searchable, and listed) only once its index is complete; a
+     * failed or cancelled job leaves nothing behind.
+     *
+     * JSON arrays and NDJSON are moved into place as they are and indexed like
+     * any stored file, so big arrays still go to the parallel ingester.
+     * Gzipped uploads are inflated while parsing and stored as independently
+     * deflated blocks (see {@link BlockCompressedWriter}), so they stay
+     * compressed on disk and reading one entry inflates one block.
+     */
+    public void ingestStaged(IngestionJob job, String description, List<String> tags) throws Exception {
+        String fileId = job.getFileId();
+        Path staged = stagedPath(fileId);
+        try {
+            LogFormat format;
+            try (BufferedInputStream in = DetectingLogParser.buffered(Files.newInputStream(staged))) {
+                format = LogFormat.detect(in);
+            }
+            if (format == LogFormat.ZSTD) {
+                throw DetectingLogParser.unsupported(format);
+            }
+
+            LogSegment segment = format == LogFormat.GZIP ? storeCompressed(job, staged) : storeRaw(job, staged);
+            try {
+                // a cancel after the last entry still gets here
+                job.commit();
+            } catch (CancellationException e) {
+                segment.close();
+                Files.deleteIfExists(segment.getFilePath());
+                throw e;
+            }
+            publish(segment);
+
+            saveMetadata(fileId, job.getFileName(), description, tags, segment.getFilePath());
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    private LogSegment storeRaw(IngestionJob job, Path staged) throws Exception {
+        Path storedFile = storageDir.resolve(job.getFileId() + ".json");
+        // same directory, so just a rename
+        Files.move(staged, storedFile);
+
+        LogSegment segment = new LogSegment(job.getFileId(), storedFile, objectMapper, segmentOptions);
+        try {
+            segment.init();
+            index(segment, job);
+            return segment;
+        } catch (Exception e) {
+            segment.close();
+            Files.deleteIfExists(storedFile);
+            throw e;
+        }
+    }
+
+    private LogSegment storeCompressed(IngestionJob job, Path staged) throws Exception {
+        Path storedFile = storageDir.resolve(job.getFileId() + ".blk");
+
+        LogSegment segment = new LogSegment(job.getFileId(), storedFile, objectMapper, segmentOptions);
+        // resources close in reverse: the tee drains anything after the last entry, then
+        // the block writer appends its index
+        try (InputStream in = job.track(Files.newInputStream(staged));
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(storedFile), 1 << 16);
+                BlockCompressedWriter blocks = new BlockCompressedWriter(out);
+                TeeInputStream tee = new TeeInputStream(new GZIPInputStream(in, 1 << 16), blocks)) {
+            logParser.parse(tee, entry -> {
+                segment.addToIndex(entry.logEntry(), entry.offset(), entry.length());
+                markEntryEnd(blocks, entry);
+                job.addLines(1);
+            });
+        } catch (Exception e) {
+            Files.deleteIfExists(storedFile);
+            throw e;
+        }
+
+        // only now is the file complete enough to map
+        segment.init();
+        return segment;
+    }
+
+    private static void markEntryEnd(BlockCompressedWriter blocks, IndexedLogMap entry) {
+        try {
+            blocks.markEntryEnd(entry.offset() + entry.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void saveMetadata(String fileId, String originalName, String description, List<String> tags,
+            Path storedFile) {
         LogFileMetadata metadata = LogFileMetadata.builder().fileId(fileId).fileName(originalName)
                 .source(LogSource.LOCAL_UPLOAD)
-                .description(description).tags(tags).fileSizeBytes(file.length()).ingestedAt(Instant.now())
-                .storagePath(file.getAbsolutePath()).build();
+                .description(description).tags(tags).fileSizeBytes(storedFile.toFile().length())
+                .ingestedAt(Instant.now())
+                .storagePath(storedFile.toAbsolutePath().toString()).build();
 
         metadataRepository.save(metadata);
-
-        return fileId;
-
     }
 
     public List<LogFileMetadata> getAllFiles() {
@@ -109,46 +361,346 @@ public class LogService {
 
     public String processLogFile(File uploadedFile) throws Exception {
 
-        System.out.println(uploadedFile.getName().length());
-
         String fileId = UUID.randomUUID().toString();
 
         // create a new segment
-        LogSegment logSegment = new LogSegment(fileId, uploadedFile.toPath(), objectMapper);
+        LogSegment logSegment = new LogSegment(fileId, uploadedFile.toPath(), objectMapper, segmentOptions);
         logSegment.init();
 
         // stream the file and build the index
         try (FileInputStream fis = new FileInputStream(uploadedFile)) {
             logParser.parse(fis, entry -> {
-                Map<String, Object> log = entry.logEntry();
-                long offset = entry.offset();
                 // 3. Update the In-Memory Indices
-                // We are indexing by LEVEL and TIME
-                Map<String, Object> mapToIndex = objectMapper.convertValue(log, Map.class);
-                logSegment.addToIndex(mapToIndex, offset);
+                logSegment.addToIndex(entry.logEntry(), entry.offset(), entry.length());
             });
         }
 
-        activeSegments.put(fileId, logSegment);
+        segments.publish(withColumns(logSegment));
 
         return fileId;
 
     }
 
     public Stream<Map<String, Object>> searchLogs(String fileId, Map<String, String> queryFilters) {
-        LogSegment logSegment = activeSegments.get(fileId);
-        if (logSegment == null) {
-            throw new IllegalArgumentException("File not found: " + fileId);
+        return searchLogs(fileId, QueryNode.fromFilters(queryFilters), null, null, SortOrder.OLDEST, null);
+    }
+
+    /**
+     * The returned hits hold the file's segment in memory until they are
+     * closed.
+     */
+    public Stream<Map<String, Object>> searchLogs(String fileId, QueryNode query, Instant from, Instant to,
+            SortOrder order, SearchCursor after) {
+        SegmentManager.Lease lease = segments.acquire(fileId);
+        try {
+            LogSegment segment = lease.segment();
+            DocSet planned = plan(segment, query);
+            long started = System.nanoTime();
+            return fetched(segment.search(query, planned, from, to, order, after), started, lease);
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    public Stream<byte[]> searchLogsRaw(String fileId, QueryNode query, Instant from, Instant to, SortOrder order,
+            SearchCursor after) {
+        SegmentManager.Lease lease = segments.acquire(fileId);
+        try {
+            LogSegment segment = lease.segment();
+            DocSet planned = plan(segment, query);
+            long started = System.nanoTime();
+            return fetched(segment.searchRaw(query, planned, from, to, order, after), started, lease);
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
         }
+    }
+
+    public SearchPage<Map<String, Object>> searchLogsPage(String fileId, QueryNode query, Instant from, Instant to,
+            SortOrder order, SearchCursor after, int limit) {
+        SegmentManager.Lease lease = segments.acquire(fileId);
+        try {
+            LogSegment segment = lease.segment();
+            DocSet planned = plan(segment, query);
+            long started = System.nanoTime();
+            SearchPage<Map<String, Object>> page = segment.searchPage(query, planned, from, to, order, after,
+                    limit);
+            return new SearchPage<>(fetched(page.hits(), started, lease), page.next());
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
 
-        return logSegment.search(queryFilters);
+    // hits are read lazily, so the segment is released only once they are closed
+    private <T> Stream<T> fetched(Stream<T> hits, long started, SegmentManager.Lease lease) {
+        return searchMetrics.fetch(hits, started, SearchMetrics.Scope.FILE).onClose(lease::close);
+    }
+
+    /**
+     * Pages are what a UI re-requests most (refresh, back, a second tab), so
+     * with {@code cache-pages} the rendered bytes are kept along with the plan.
+     */
+    public SearchPage<byte[]> searchLogsRawPage(String fileId, QueryNode query, Instant from, Instant to,
+            SortOrder order, SearchCursor after, int limit) {
+        if (!cachePages) {
+            SegmentManager.Lease lease = segments.acquire(fileId);
+            try {
+                LogSegment segment = lease.segment();
+                DocSet planned = plan(segment, query);
+                long started = System.nanoTime();
+                SearchPage<byte[]> page = segment.searchRawPage(query, planned, from, to, order, after, limit);
+                return new SearchPage<>(fetched(page.hits(), started, lease), page.next());
+            } catch (RuntimeException e) {
+                lease.close();
+                throw e;
+            }
+        }
+
+        String key = "page:" + QueryNode.normalize(query) + '|' + from + '|' + to + '|' + order + '|'
+                + (after == null ? "" : after.encode()) + '|' + limit;
+        // a cache miss plans inside the loader, the fetch starts after that
+        long[] started = { System.nanoTime() };
+        CachedPage page;
+        // a cached page is a copy of the hits, the segment isn't needed past this
+        try (SegmentManager.Lease lease = segments.acquire(fileId)) {
+            LogSegment segment = lease.segment();
+            page = queryCache.computeIfAbsent(
+                    new QueryResultCache.Key(fileId, segment.getGeneration(), key),
+                    () -> {
+                        DocSet planned = plan(segment, query);
+                        started[0] = System.nanoTime();
+                        SearchPage<byte[]> result = segment.searchRawPage(query, planned, from, to, order, after,
+                                limit);
+                        return new CachedPage(result.hits().toList(), result.next());
+                    },
+                    CachedPage::estimatedBytes);
+        }
+        return new SearchPage<>(searchMetrics.fetch(page.hits().stream(), started[0], SearchMetrics.Scope.FILE),
+                page.next());
+    }
+
+    public Aggregations aggregate(String fileId, QueryNode query, Instant from, Instant to, List<String> fields,
+            int size, List<String> statsFields, List<Double> percentiles, Duration interval) {
+        try (SegmentManager.Lease lease = segments.acquire(fileId)) {
+            LogSegment segment = lease.segment();
+            return searchMetrics.aggregation(() -> {
+                DocSet planned = QueryNode.isMatchAll(query) ? null
+                        : queryCache.computeIfAbsent(
+                                new QueryResultCache.Key(fileId, segment.getGeneration(),
+                                        "exact:" + QueryNode.normalize(query)),
+                                () -> searchMetrics.intersection(() -> segment.planExact(query)),
+                                DocSet::estimatedBytes);
+                return segment.aggregate(planned, from, to, fields, size, statsFields, percentiles, interval);
+            });
+        }
+    }
+
+    /**
+     * Files to search together: the given ids (each must exist), else every
+     * file. With {@code tags} only files carrying all of them are kept, with
+     * an ingestion range only files ingested in [from, to). Files still being
+     * indexed are never picked.
+     */
+    public List<String> selectFiles(List<String> fileIds, List<String> tags, Instant ingestedFrom,
+            Instant ingestedTo) {
+        for (String fileId : fileIds) {
+            if (!segments.contains(fileId)) {
+                throw new IllegalArgumentException("File not found: " + fileId);
+            }
+        }
+        Set<String> known = segments.fileIds();
+        Set<String> selected = new TreeSet<>(fileIds.isEmpty() ? known : fileIds);
+
+        if (!tags.isEmpty() || ingestedFrom != null || ingestedTo != null) {
+            Set<String> matching = metadataRepository.findAll().stream()
+                    .filter(meta -> meta.getTags() != null && meta.getTags().containsAll(tags))
+                    .filter(meta -> ingestedFrom == null
+                            || (meta.getIngestedAt() != null && !meta.getIngestedAt().isBefore(ingestedFrom)))
+                    .filter(meta -> ingestedTo == null
+                            || (meta.getIngestedAt() != null && meta.getIngestedAt().isBefore(ingestedTo)))
+                    .map(LogFileMetadata::getFileId)
+                    .collect(Collectors.toSet());
+            selected.retainAll(matching);
+        }
+        selected.retainAll(known);
+        return List.copyOf(selected);
+    }
+
+    /**
+     * Raw hits of all {@code fileIds} merged by timestamp, see
+     * {@link FederatedSearch}. {@code after} is a cursor of a previous page.
+     * Every file stays in memory until the hits are closed, so a search may
+     * cover at most {@code maxSearchFiles} of them.
+     *
+     * @throws IllegalArgumentException if more files were selected
+     */
+    public Stream<FederatedHit> searchFederated(List<String> fileIds, QueryNode query, Instant from, Instant to,
+            SortOrder order, FederatedCursor after) {
+        long started = System.nanoTime();
+        List<SegmentManager.Lease> leases = acquireAll(fileIds);
+        try {
+            return searchMetrics.fetch(federated(leases, query, from, to, order, after).stream(), started,
+                    SearchMetrics.Scope.FEDERATED).onClose(() -> leases.forEach(SegmentManager.Lease::close));
+        } catch (RuntimeException e) {
+            leases.forEach(SegmentManager.Lease::close);
+            throw e;
+        }
+    }
+
+    public FederatedPage searchFederatedPage(List<String> fileIds, QueryNode query, Instant from, Instant to,
+            SortOrder order, FederatedCursor after, int limit) {
+        long started = System.nanoTime();
+        List<SegmentManager.Lease> leases = acquireAll(fileIds);
+        try {
+            FederatedPage page = federated(leases, query, from, to, order, after).page(limit);
+            return new FederatedPage(searchMetrics.fetch(page.hits(), started, SearchMetrics.Scope.FEDERATED)
+                    .onClose(() -> leases.forEach(SegmentManager.Lease::close)), page.next());
+        } catch (RuntimeException e) {
+            leases.forEach(SegmentManager.Lease::close);
+            throw e;
+        }
+    }
+
+    // file id order is the tie-break of the merge, and what the cursor relies on; the files load in parallel
+    private List<SegmentManager.Lease> acquireAll(List<String> fileIds) {
+        Set<String> sorted = new TreeSet<>(fileIds);
+        if (sorted.size() > maxSearchFiles) {
+            throw new IllegalArgumentException("A search covers at most " + maxSearchFiles + " files, "
+                    + sorted.size() + " were selected; narrow it down by fileIds, tags or ingestedFrom/ingestedTo");
+        }
+        List<Future<SegmentManager.Lease>> loads = new ArrayList<>(sorted.size());
+        for (String fileId : sorted) {
+            loads.add(fanOut.submit(() -> segments.acquire(fileId)));
+        }
+
+        // every load is waited for, one that is still running would leak its lease
+        List<SegmentManager.Lease> leases = new ArrayList<>(loads.size());
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        for (Future<SegmentManager.Lease> load : loads) {
+            while (true) {
+                try {
+                    leases.add(load.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException cause ? cause
+                                : new RuntimeException("Failed to load a segment", e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    continue;
+                }
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            leases.forEach(SegmentManager.Lease::close);
+            throw failure;
+        }
+        return leases;
+    }
+
+    private FederatedSearch federated(List<SegmentManager.Lease> leases, QueryNode query, Instant from,
+            Instant to, SortOrder order, FederatedCursor after) {
+        List<LogSegment> leased = leases.stream().map(SegmentManager.Lease::segment).toList();
+        return new FederatedSearch(leased, query, from, to, order, after, segment -> plan(segment, query),
+                fanOut);
+    }
+
+    /**
+     * Pins a file's segment for as long as {@link LiveTailService} follows it,
+     * see {@link SegmentManager#pin}.
+     *
+     * @throws IllegalArgumentException if the file is unknown
+     */
+    SegmentManager.Lease pin(String fileId) {
+        return segments.pin(fileId);
+    }
+
+    /**
+     * True if the file's stored copy was found, whether or not its segment is
+     * loaded.
+     */
+    boolean isStored(String fileId) {
+        return segments.contains(fileId);
+    }
+
+    /**
+     * Loads a file's segment before its first search if it fits in the
+     * memory budget, see {@link SegmentManager#preload}.
+     *
+     * @return false if it didn't fit and stays unloaded
+     */
+    boolean preload(String fileId) {
+        return segments.preload(fileId);
+    }
+
+    /**
+     * Entries were appended to a followed segment: its cached results can't
+     * be hit again, free them.
+     */
+    void appended(LogSegment segment) {
+        queryCache.invalidate(segment.getFileId());
+    }
+
+    /**
+     * A segment is no longer followed: it gets its columns back, its grown
+     * index is saved and counted against the memory budget.
+     */
+    void settle(LogSegment segment) {
+        withColumns(segment);
+        saveIndex(segment);
+        segments.resized(segment.getFileId());
+        queryCache.invalidate(segment.getFileId());
+    }
+
+    public QueryResultCache.Stats getCacheStats() {
+        return queryCache.stats();
+    }
+
+    /**
+     * The planned postings of a query, shared by every page, order and time
+     * range of it until the segment changes.
+     */
+    private DocSet plan(LogSegment segment, QueryNode query) {
+        if (QueryNode.isMatchAll(query)) {
+            return null;
+        }
+        return queryCache.computeIfAbsent(
+                new QueryResultCache.Key(segment.getFileId(), segment.getGeneration(),
+                        "plan:" + QueryNode.normalize(query)),
+                () -> searchMetrics.intersection(() -> segment.plan(query)),
+                DocSet::estimatedBytes);
+    }
+
+    private record CachedPage(List<byte[]> hits, SearchCursor next) {
+        long estimatedBytes() {
+            long bytes = 64;
+            for (byte[] hit : hits) {
+                bytes += hit.length + 16;
+            }
+            return bytes;
+        }
     }
 
     public Set<String> getAvailableFields(String fileId) {
-        LogSegment segment = activeSegments.get(fileId);
-        if (segment == null) {
-            throw new IllegalArgumentException("File ID not found: " + fileId);
+        try (SegmentManager.Lease lease = segments.acquire(fileId)) {
+            return Set.copyOf(lease.segment().getIndexedFields());
+        }
+    }
+
+    /**
+     * Values of a field starting with {@code prefix}, most common first, see
+     * {@link LogSegment#suggestValues}.
+     */
+    public List<Aggregations.ValueCount> suggestValues(String fileId, String field, String prefix, int size) {
+        try (SegmentManager.Lease lease = segments.acquire(fileId)) {
+            return lease.segment().suggestValues(field, prefix, size);
         }
-        return segment.getIndexedFields();
     }
 }
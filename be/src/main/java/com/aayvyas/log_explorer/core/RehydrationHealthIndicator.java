@@ -0,0 +1,51 @@
+package com.aayvyas.log_explorer.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * The {@code rehydration} health component: OUT_OF_SERVICE while stored
+ * files are still being loaded after startup, UP once none is, with the
+ * counts by state and the files that failed as details (a probe runs every
+ * few seconds, it doesn't list every stored file). It is part of the
+ * readiness group only, so an orchestrator only routes traffic to an instance
+ * that has its recent files in memory, and doesn't restart one that is still
+ * loading them. Files that failed to load are listed but don't hold readiness
+ * back, one bad file shouldn't take the instance out.
+ */
+@Component
+public class RehydrationHealthIndicator implements HealthIndicator {
+
+    private final RehydrationService rehydration;
+
+    public RehydrationHealthIndicator(RehydrationService rehydration) {
+        this.rehydration = rehydration;
+    }
+
+    @Override
+    public Health health() {
+        RehydrationService.Progress progress = rehydration.progress();
+        Health.Builder health = progress.isDone() ? Health.up() : Health.outOfService();
+        if (progress.startedAt() != null) {
+            health.withDetail("startedAt", progress.startedAt());
+        }
+        if (progress.finishedAt() != null) {
+            health.withDetail("finishedAt", progress.finishedAt());
+        }
+        Map<String, String> failed = new LinkedHashMap<>();
+        for (RehydrationService.FileStatus file : progress.files()) {
+            if (file.state() == RehydrationService.State.FAILED) {
+                failed.put(file.fileId(), file.error());
+            }
+        }
+        health.withDetail("counts", progress.counts());
+        if (!failed.isEmpty()) {
+            health.withDetail("failed", failed);
+        }
+        return health.build();
+    }
+}
@@ -0,0 +1,180 @@
+package com.aayvyas.log_explorer.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.aayvyas.log_explorer.config.LogExplorerProperties;
+import com.aayvyas.log_explorer.model.LogFileMetadata;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Loads the segments of the stored files in the background once the app is
+ * up, so the first searches after a restart don't each wait for a load.
+ *
+ * Startup only registers the files (see
+ * {@link LogService#loadExistingSegments()}): every file is searchable from
+ * the start and would be loaded by its first search anyway. Here the newest
+ * ones by ingestion time are loaded ahead of that, {@code rehydrationThreads}
+ * at a time, until the memory budget is full. The rest are left to their
+ * first search rather than evicting newer ones. A file that fails to load is
+ * recorded with its error and the others carry on.
+ *
+ * Progress is reported by {@link RehydrationHealthIndicator}.
+ */
+@Service
+public class RehydrationService {
+
+    public enum State {
+        /** queued or being loaded, a search now waits for the load */
+        LOADING,
+        READY,
+        /** didn't fit in the memory budget, loaded by its first search */
+        ON_DEMAND,
+        FAILED
+    }
+
+    /**
+     * @param loadMillis how long loading took, 0 unless it was tried
+     * @param error      why it failed, null unless FAILED
+     */
+    public record FileStatus(String fileId, State state, long loadMillis, String error) {
+    }
+
+    /**
+     * @param files      newest first
+     * @param finishedAt null until no file is LOADING
+     */
+    public record Progress(Map<State, Integer> counts, List<FileStatus> files, Instant startedAt,
+            Instant finishedAt) {
+
+        public boolean isDone() {
+            return finishedAt != null;
+        }
+    }
+
+    private final LogService logService;
+    private final int threads;
+
+    // newest first, fixed once rehydration starts
+    private volatile List<String> order = List.of();
+    private final Map<String, FileStatus> statuses = new ConcurrentHashMap<>();
+    private final AtomicInteger remaining = new AtomicInteger();
+    // set by the first file that didn't fit, the older ones aren't tried after it
+    private volatile boolean full;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private ExecutorService executor;
+
+    public RehydrationService(LogService logService, LogExplorerProperties properties) {
+        this.logService = logService;
+        this.threads = properties.segments().rehydrationThreads();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        List<String> fileIds = new ArrayList<>();
+        List<String> toLoad = new ArrayList<>();
+        for (LogFileMetadata meta : logService.getAllFiles()) {
+            String fileId = meta.getFileId();
+            fileIds.add(fileId);
+            if (!logService.isStored(fileId)) {
+                statuses.put(fileId, new FileStatus(fileId, State.FAILED, 0, "Stored file missing"));
+            } else if (threads <= 0) {
+                statuses.put(fileId, new FileStatus(fileId, State.ON_DEMAND, 0, null));
+            } else {
+                statuses.put(fileId, new FileStatus(fileId, State.LOADING, 0, null));
+                toLoad.add(fileId);
+            }
+        }
+        order = List.copyOf(fileIds);
+        startedAt = Instant.now();
+        if (toLoad.isEmpty()) {
+            finishedAt = startedAt;
+            return;
+        }
+
+        remaining.set(toLoad.size());
+        executor = Executors.newFixedThreadPool(Math.min(threads, toLoad.size()),
+                Thread.ofPlatform().name("rehydrate-", 1).daemon().factory());
+        // a fixed pool takes tasks in submission order, newest first
+        for (String fileId : toLoad) {
+            executor.execute(() -> load(fileId));
+        }
+        executor.shutdown();
+    }
+
+    private void load(String fileId) {
+        long start = System.nanoTime();
+        FileStatus status;
+        if (full) {
+            status = new FileStatus(fileId, State.ON_DEMAND, 0, null);
+        } else {
+            try {
+                boolean loaded = logService.preload(fileId);
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                if (!loaded) {
+                    full = true;
+                }
+                status = new FileStatus(fileId, loaded ? State.READY : State.ON_DEMAND, millis, null);
+            } catch (IllegalArgumentException e) {
+                // deleted in the meantime
+                status = null;
+            } catch (RuntimeException e) {
+                String error = e.getCause() != null ? e.getCause().toString() : e.getMessage();
+                System.err.println("Failed to rehydrate " + fileId + ": " + error);
+                status = new FileStatus(fileId, State.FAILED, (System.nanoTime() - start) / 1_000_000, error);
+            }
+        }
+
+        if (status == null) {
+            statuses.remove(fileId);
+        } else {
+            statuses.put(fileId, status);
+        }
+        if (remaining.decrementAndGet() == 0) {
+            finishedAt = Instant.now();
+        }
+    }
+
+    public Progress progress() {
+        Map<State, Integer> counts = new EnumMap<>(State.class);
+        for (State state : State.values()) {
+            counts.put(state, 0);
+        }
+        List<FileStatus> files = new ArrayList<>();
+        for (String fileId : order) {
+            FileStatus status = statuses.get(fileId);
+            if (status != null) {
+                files.add(status);
+                counts.merge(status.state(), 1, Integer::sum);
+            }
+        }
+        return new Progress(counts, files, startedAt, finishedAt);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                // a load still running would publish into a segment manager that is closing
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
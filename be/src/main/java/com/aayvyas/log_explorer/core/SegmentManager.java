@@ -0,0 +1,448 @@
+package com.aayvyas.log_explorer.core;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Every stored file, with the indexes of only some of them in memory.
+ *
+ * A file's segment is loaded on first access and stays resident until the
+ * estimated index bytes of all resident segments exceed the budget; then the
+ * least recently used ones are evicted, their file handles closed.
+ *
+ * Searches hold a {@link Lease} for as long as they read a segment. An
+ * evicted segment is only closed once its last lease is released, so a
+ * search never sees it go away underneath; while it is still leased it is
+ * no longer counted against the budget.
+ *
+ * A file followed by {@link LiveTailService} is pinned, see {@link #pin}:
+ * appends go to its resident segment, so that one must stay the file's
+ * segment. Pinned segments count against the budget but are never evicted,
+ * the others make room for them.
+ */
+final class SegmentManager implements MeterBinder {
+
+    /**
+     * Opens a stored file and brings its index into memory, from the saved
+     * index or by re-indexing the file.
+     */
+    @FunctionalInterface
+    interface Loader {
+        LogSegment load(String fileId, Path storedFile) throws Exception;
+    }
+
+    /**
+     * A segment held for reading, release it with {@link #close()}.
+     */
+    static final class Lease implements AutoCloseable {
+        private final Resident resident;
+        // the slot this lease keeps from being evicted, null for a plain lease
+        private final Slot pinned;
+        private boolean closed;
+
+        private Lease(Resident resident, Slot pinned) {
+            this.resident = resident;
+            this.pinned = pinned;
+        }
+
+        LogSegment segment() {
+            return resident.segment;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                if (pinned != null) {
+                    synchronized (pinned) {
+                        pinned.pins--;
+                    }
+                }
+                resident.release();
+            }
+        }
+    }
+
+    // a loaded segment; the manager holds one reference while it is resident, each lease another
+    private static final class Resident {
+        final LogSegment segment;
+        // only changes under the slot's monitor, see resized()
+        volatile long bytes;
+        final AtomicInteger refs = new AtomicInteger(1);
+        volatile long lastAccess = System.nanoTime();
+
+        Resident(LogSegment segment) {
+            this.segment = segment;
+            this.bytes = segment.estimatedIndexBytes();
+        }
+
+        // fails once the last reference is gone and the segment is closed
+        boolean retain() {
+            for (int count = refs.get(); count > 0; count = refs.get()) {
+                if (refs.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void release() {
+            if (refs.decrementAndGet() == 0) {
+                try {
+                    segment.close();
+                } catch (Exception e) {
+                    System.err.println("Failed to close segment: " + segment.getFileId() + " " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // a known file, loaded or not; its monitor serializes loading and replacing the segment
+    private static final class Slot {
+        final String fileId;
+        volatile Path storedFile;
+        volatile Resident resident;
+        // pinned leases of the resident segment, only changes under the monitor
+        volatile int pins;
+
+        Slot(String fileId, Path storedFile) {
+            this.fileId = fileId;
+            this.storedFile = storedFile;
+        }
+    }
+
+    private final long maxResidentBytes;
+    private final Loader loader;
+    private final Consumer<String> onEvict;
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicLong residentBytes = new AtomicLong();
+
+    private volatile Counter loads;
+    private volatile Counter evictions;
+    private volatile MultiGauge indexBytesGauge;
+    private volatile MultiGauge termsGauge;
+    private volatile MultiGauge docsGauge;
+
+    /**
+     * @param maxResidentBytes budget for the estimated index bytes of all
+     *                         resident segments, 0 for no limit
+     * @param onEvict          called with the file id of an evicted segment
+     */
+    SegmentManager(long maxResidentBytes, Loader loader, Consumer<String> onEvict) {
+        this.maxResidentBytes = maxResidentBytes;
+        this.loader = loader;
+        this.onEvict = onEvict;
+    }
+
+    /**
+     * Makes a stored file known without loading it.
+     */
+    void register(String fileId, Path storedFile) {
+        slots.putIfAbsent(fileId, new Slot(fileId, storedFile));
+    }
+
+    /**
+     * Makes a freshly indexed segment resident, replacing any previous
+     * segment of the same file.
+     */
+    void publish(LogSegment segment) {
+        Slot slot = slots.computeIfAbsent(segment.getFileId(), id -> new Slot(id, segment.getFilePath()));
+        Resident previous;
+        synchronized (slot) {
+            slot.storedFile = segment.getFilePath();
+            previous = slot.resident;
+            slot.resident = admit(segment);
+        }
+        if (previous != null) {
+            residentBytes.addAndGet(-previous.bytes);
+            previous.release();
+        }
+        evictToBudget(slot);
+    }
+
+    /**
+     * Re-estimates a resident segment whose index grew in place, see
+     * {@link LogSegment#append}, and evicts others if it no longer fits.
+     */
+    void resized(String fileId) {
+        Slot slot = slots.get(fileId);
+        if (slot == null) {
+            return;
+        }
+        synchronized (slot) {
+            Resident resident = slot.resident;
+            if (resident == null) {
+                return;
+            }
+            long bytes = resident.segment.estimatedIndexBytes();
+            residentBytes.addAndGet(bytes - resident.bytes);
+            resident.bytes = bytes;
+        }
+        evictToBudget(slot);
+    }
+
+    boolean contains(String fileId) {
+        return slots.containsKey(fileId);
+    }
+
+    Set<String> fileIds() {
+        return Set.copyOf(slots.keySet());
+    }
+
+    /**
+     * Pins the segment of a file, loading it first if it isn't resident.
+     *
+     * @throws IllegalArgumentException if the file is unknown
+     */
+    Lease acquire(String fileId) {
+        return new Lease(retain(slot(fileId)), null);
+    }
+
+    /**
+     * Like {@link #acquire}, and the segment is not evicted until the lease
+     * is closed, so it stays the file's segment all that time.
+     *
+     * @throws IllegalArgumentException if the file is unknown
+     */
+    Lease pin(String fileId) {
+        Slot slot = slot(fileId);
+        while (true) {
+            Resident resident = retain(slot);
+            synchronized (slot) {
+                // it may have been evicted between retaining and pinning it
+                if (slot.resident == resident) {
+                    slot.pins++;
+                    return new Lease(resident, slot);
+                }
+            }
+            resident.release();
+        }
+    }
+
+    private Slot slot(String fileId) {
+        Slot slot = slots.get(fileId);
+        if (slot == null) {
+            throw new IllegalArgumentException("File not found: " + fileId);
+        }
+        return slot;
+    }
+
+    private Resident retain(Slot slot) {
+        while (true) {
+            Resident resident = slot.resident;
+            if (resident != null && resident.retain()) {
+                resident.lastAccess = System.nanoTime();
+                return resident;
+            }
+            load(slot, resident);
+        }
+    }
+
+    /**
+     * Loads a file's segment ahead of its first search, but only into what is
+     * left of the budget: nothing is evicted for it, a segment that turns out
+     * not to fit is closed again.
+     *
+     * @return false if the segment didn't fit
+     * @throws IllegalArgumentException if the file is unknown
+     * @throws IllegalStateException    if the segment failed to load
+     */
+    boolean preload(String fileId) {
+        Slot slot = slot(fileId);
+        synchronized (slot) {
+            if (slot.resident != null) {
+                return true;
+            }
+            if (maxResidentBytes > 0 && residentBytes.get() >= maxResidentBytes) {
+                return false; // full already, don't bother loading
+            }
+            LogSegment segment;
+            try {
+                segment = loader.load(slot.fileId, slot.storedFile);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to load segment: " + slot.fileId, e);
+            }
+            Resident resident = new Resident(segment);
+            // checked and added in one step, concurrent preloads can't overshoot together
+            for (long current = residentBytes.get();; current = residentBytes.get()) {
+                if (maxResidentBytes > 0 && current + resident.bytes > maxResidentBytes) {
+                    resident.release();
+                    return false;
+                }
+                if (residentBytes.compareAndSet(current, current + resident.bytes)) {
+                    break;
+                }
+            }
+            slot.resident = resident;
+            if (loads != null) {
+                loads.increment();
+            }
+        }
+        refreshSegmentGauges();
+        return true;
+    }
+
+    // loads the slot's segment unless another thread has replaced `seen` in the meantime
+    private void load(Slot slot, Resident seen) {
+        synchronized (slot) {
+            if (slot.resident != seen) {
+                return;
+            }
+            LogSegment segment;
+            try {
+                segment = loader.load(slot.fileId, slot.storedFile);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to load segment: " + slot.fileId, e);
+            }
+            slot.resident = admit(segment);
+            if (loads != null) {
+                loads.increment();
+            }
+        }
+        evictToBudget(slot);
+    }
+
+    private Resident admit(LogSegment segment) {
+        Resident resident = new Resident(segment);
+        residentBytes.addAndGet(resident.bytes);
+        return resident;
+    }
+
+    // least recently used first, never the segment that was just brought in nor a pinned one
+    private synchronized void evictToBudget(Slot keep) {
+        if (maxResidentBytes > 0 && residentBytes.get() > maxResidentBytes) {
+            List<Slot> candidates = new ArrayList<>();
+            for (Slot slot : slots.values()) {
+                if (slot != keep && slot.resident != null && slot.pins == 0) {
+                    candidates.add(slot);
+                }
+            }
+            candidates.sort(Comparator.comparingLong(slot -> {
+                Resident resident = slot.resident;
+                return resident == null ? Long.MIN_VALUE : resident.lastAccess;
+            }));
+            for (int i = 0; i < candidates.size() && residentBytes.get() > maxResidentBytes; i++) {
+                evict(candidates.get(i));
+            }
+        }
+        refreshSegmentGauges();
+    }
+
+    private void evict(Slot slot) {
+        Resident resident;
+        synchronized (slot) {
+            resident = slot.resident;
+            if (resident == null || slot.pins > 0) {
+                return;
+            }
+            slot.resident = null;
+        }
+        residentBytes.addAndGet(-resident.bytes);
+        resident.release();
+        onEvict.accept(slot.fileId);
+        if (evictions != null) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Drops every resident segment, closing those no search holds.
+     */
+    synchronized void close() {
+        for (Slot slot : slots.values()) {
+            Resident resident;
+            synchronized (slot) {
+                resident = slot.resident;
+                slot.resident = null;
+            }
+            if (resident != null) {
+                residentBytes.addAndGet(-resident.bytes);
+                resident.release();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("logexplorer.segments.active", slots, ConcurrentHashMap::size)
+                .description("Files known and searchable, loaded or not")
+                .register(registry);
+        Gauge.builder("logexplorer.segments.resident", this, SegmentManager::residentCount)
+                .description("Files whose index is in memory")
+                .register(registry);
+        Gauge.builder("logexplorer.segments.resident.size", residentBytes, AtomicLong::get)
+                .description("Estimated index bytes of the resident segments, bounded by the budget")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        loads = Counter.builder("logexplorer.segments.loads")
+                .description("Segments loaded into memory on access")
+                .register(registry);
+        evictions = Counter.builder("logexplorer.segments.evictions")
+                .description("Segments evicted to stay within the memory budget")
+                .register(registry);
+        indexBytesGauge = MultiGauge.builder("logexplorer.segment.index.size")
+                .description("Estimated heap taken by the indexes of a file")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        termsGauge = MultiGauge.builder("logexplorer.segment.terms")
+                .description("Distinct values over all indexed fields of a file")
+                .register(registry);
+        docsGauge = MultiGauge.builder("logexplorer.segment.docs")
+                .description("Log entries indexed in a file")
+                .register(registry);
+        FunctionCounter.builder("logexplorer.index.bloom.fields", this, manager -> LogSegment.bloomFieldsIndexed())
+                .description("Fields moved from postings to bloom filters by the index policy")
+                .register(registry);
+        refreshSegmentGauges();
+    }
+
+    private long residentCount() {
+        return slots.values().stream().filter(slot -> slot.resident != null).count();
+    }
+
+    // one row per resident segment; the values are read on each scrape, only the set changes here
+    private synchronized void refreshSegmentGauges() {
+        if (indexBytesGauge == null) {
+            return;
+        }
+        List<LogSegment> resident = new ArrayList<>();
+        for (Slot slot : slots.values()) {
+            Resident r = slot.resident;
+            if (r != null) {
+                resident.add(r.segment);
+            }
+        }
+        indexBytesGauge.register(resident.stream()
+                .map(segment -> MultiGauge.Row.of(fileTag(segment), segment, LogSegment::estimatedIndexBytes))
+                .toList(), true);
+        termsGauge.register(resident.stream()
+                .map(segment -> MultiGauge.Row.of(fileTag(segment), segment, LogSegment::termCount))
+                .toList(), true);
+        docsGauge.register(resident.stream()
+                .map(segment -> MultiGauge.Row.of(fileTag(segment), segment, LogSegment::getDocCount))
+                .toList(), true);
+    }
+
+    private static Tags fileTag(LogSegment segment) {
+        return Tags.of("fileId", segment.getFileId());
+    }
+}
@@ -0,0 +1,152 @@
+package com.aayvyas.log_explorer.core.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.springframework.stereotype.Component;
+
+import com.aayvyas.log_explorer.config.LogExplorerProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * LRU cache of query results (planned postings, rendered pages), bounded by
+ * the estimated bytes of what it holds rather than by entry count.
+ *
+ * Keys carry the segment generation, so a segment that changes simply stops
+ * hitting its old entries; {@link #invalidate} frees them right away when a
+ * file is re-indexed. Loaders run outside the lock, two threads missing on
+ * the same key may both compute it.
+ */
+@Component
+public class QueryResultCache implements MeterBinder {
+
+    /**
+     * @param generation {@code LogSegment.getGeneration()} the value was computed at
+     * @param query      normalized query plus whatever else shapes the value
+     */
+    public record Key(String fileId, long generation, String query) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, long entries, long bytes, long maxBytes) {
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private record Entry(Object value, long bytes) {
+    }
+
+    // roughly what the key, the entry and the map node cost besides the value
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long maxBytes;
+    // one entry may not take more than this share of the cache
+    private final long maxEntryBytes;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public QueryResultCache(LogExplorerProperties properties) {
+        this.maxBytes = Math.max(0, properties.cache().maxBytes());
+        this.maxEntryBytes = maxBytes / 8;
+    }
+
+    /**
+     * @param weigher estimated size of a value in bytes; values too big for
+     *                the cache are returned but not kept
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(Key key, Supplier<T> loader, ToLongFunction<T> weigher) {
+        if (maxBytes == 0) {
+            return loader.get();
+        }
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return (T) entry.value();
+            }
+            misses++;
+        }
+
+        T value = loader.get();
+        long weight = weigher.applyAsLong(value) + ENTRY_OVERHEAD_BYTES;
+        if (weight > maxEntryBytes) {
+            return value;
+        }
+
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(value, weight));
+            bytes += weight - (previous == null ? 0 : previous.bytes());
+            evictToBudget();
+        }
+        return value;
+    }
+
+    /**
+     * Drops every entry of a file, e.g. after it was re-indexed.
+     */
+    public synchronized void invalidate(String fileId) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> entry = it.next();
+            if (entry.getKey().fileId().equals(fileId)) {
+                bytes -= entry.getValue().bytes();
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), bytes, maxBytes);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("logexplorer.cache.gets", this, cache -> cache.stats().hits())
+                .description("Query cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("logexplorer.cache.gets", this, cache -> cache.stats().misses())
+                .description("Query cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("logexplorer.cache.evictions", this, cache -> cache.stats().evictions())
+                .description("Entries evicted to stay within the byte budget")
+                .register(registry);
+        Gauge.builder("logexplorer.cache.entries", this, cache -> cache.stats().entries())
+                .description("Entries held by the query cache")
+                .register(registry);
+        Gauge.builder("logexplorer.cache.bytes", this, cache -> cache.stats().bytes())
+                .description("Estimated size of the query cache")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+    }
+
+    private void evictToBudget() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().bytes();
+            it.remove();
+            evictions++;
+        }
+    }
+}
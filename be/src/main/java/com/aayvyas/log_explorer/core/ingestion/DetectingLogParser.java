@@ -0,0 +1,53 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the parser from the first bytes of the input, see {@link LogFormat}.
+ * Gzip input is inflated on the fly, offsets then point into the inflated
+ * stream. Zstandard is recognized but needs a codec the JDK doesn't ship, so
+ * it is rejected with a clear message instead of failing as garbled JSON.
+ */
+@Component
+public class DetectingLogParser implements LogParser {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final JacksonStreamLogParser arrayParser;
+    private final NdjsonLogParser ndjsonParser;
+
+    public DetectingLogParser(JacksonStreamLogParser arrayParser, NdjsonLogParser ndjsonParser) {
+        this.arrayParser = arrayParser;
+        this.ndjsonParser = ndjsonParser;
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Consumer<IndexedLogMap> onLogFound) {
+        BufferedInputStream in = buffered(inputStream);
+        try {
+            switch (LogFormat.detect(in)) {
+                case GZIP -> parse(new GZIPInputStream(in, BUFFER_BYTES), onLogFound);
+                case ZSTD -> throw unsupported(LogFormat.ZSTD);
+                case JSON_ARRAY -> arrayParser.parse(in, onLogFound);
+                case NDJSON -> ndjsonParser.parse(in, onLogFound);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read log input", e);
+        }
+    }
+
+    public static IllegalArgumentException unsupported(LogFormat format) {
+        return new IllegalArgumentException(format + " input is not supported, upload it uncompressed or gzipped");
+    }
+
+    public static BufferedInputStream buffered(InputStream in) {
+        return in instanceof BufferedInputStream buffered ? buffered : new BufferedInputStream(in, BUFFER_BYTES);
+    }
+}
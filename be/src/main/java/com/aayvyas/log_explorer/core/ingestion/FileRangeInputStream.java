@@ -0,0 +1,42 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads [start, end) of a file with positional reads, so several workers can
+ * share one channel without fighting over its position.
+ */
+public class FileRangeInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    public FileRangeInputStream(FileChannel channel, long start, long end) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+        int toRead = (int) Math.min(len, end - position);
+        int read = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+}
@@ -4,7 +4,8 @@ import java.util.Map;
 
 /**
  * A wrapper that holds the log data AND exactly where it lives in the file.
- * We need the 'byteOffset' so we can point our Index to this location.
+ * We need the 'byteOffset' so we can point our Index to this location, and
+ * the 'length' so we can copy the raw bytes back out without re-parsing.
  */
-public record IndexedLogMap(Map<String, Object> logEntry, long offset) {
+public record IndexedLogMap(Map<String, Object> logEntry, long offset, int length) {
 }
@@ -0,0 +1,235 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One upload being indexed in the background.
+ *
+ * Only the indexing thread reports progress; any thread can read a
+ * {@link #status()} or ask for a cancel, which takes effect at the next
+ * indexed entry (see {@link #addLines}) or, after the last one, before the
+ * file is published (see {@link #commit}).
+ */
+public class IngestionJob {
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    /**
+     * Point-in-time view of a job. Rates are averaged since the job started,
+     * {@code etaSeconds} is null until there is a rate to go by.
+     */
+    public record Status(String jobId, String fileId, String fileName, State state, long bytesProcessed,
+            long totalBytes, long linesProcessed, double bytesPerSecond, double linesPerSecond, Long etaSeconds,
+            Instant submittedAt, Instant startedAt, Instant finishedAt, String error) {
+    }
+
+    private final String jobId = UUID.randomUUID().toString();
+    private final String fileId;
+    private final String fileName;
+    private final long totalBytes;
+    private final Instant submittedAt = Instant.now();
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+    private volatile boolean cancelRequested;
+    // past the last point a cancel can undo, see commit(); guarded by this
+    private boolean committed;
+
+    private volatile long bytesProcessed;
+    private volatile long linesProcessed;
+
+    private volatile long startNanos;
+    private volatile long finishNanos;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public IngestionJob(String fileId, String fileName, long totalBytes) {
+        this.fileId = fileId;
+        this.fileName = fileName;
+        this.totalBytes = totalBytes;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isFinished() {
+        State current = state.get();
+        return current != State.QUEUED && current != State.RUNNING;
+    }
+
+    /**
+     * Moves a queued job to running, false if it was cancelled first.
+     */
+    public boolean start() {
+        if (!state.compareAndSet(State.QUEUED, State.RUNNING)) {
+            return false;
+        }
+        startNanos = System.nanoTime();
+        startedAt = Instant.now();
+        return true;
+    }
+
+    /**
+     * Ends a running job: succeeded without a failure, cancelled if a cancel
+     * was asked for (whatever the failure it surfaced as), failed otherwise.
+     */
+    public void finish(Exception failure) {
+        finishNanos = System.nanoTime();
+        finishedAt = Instant.now();
+        if (failure == null) {
+            // offsets stop at the last entry, whatever trails it was read too
+            bytesProcessed = totalBytes;
+            state.set(State.SUCCEEDED);
+        } else if (cancelRequested) {
+            state.set(State.CANCELLED);
+        } else {
+            error = failure.getMessage();
+            state.set(State.FAILED);
+        }
+    }
+
+    /**
+     * Asks the job to stop. Returns true only if it had not started yet, in
+     * which case it is cancelled right here and will never run; a running job
+     * stops at its next entry, or at {@link #commit()}. Once committed the
+     * job finishes anyway and this does nothing.
+     */
+    public synchronized boolean cancel() {
+        if (committed) {
+            return false;
+        }
+        cancelRequested = true;
+        if (state.compareAndSet(State.QUEUED, State.CANCELLED)) {
+            finishedAt = Instant.now();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Marks the point past which the job's result is published and a cancel
+     * can't undo it any more.
+     *
+     * @throws CancellationException if a cancel came first
+     */
+    public synchronized void commit() {
+        if (cancelRequested) {
+            throw new CancellationException("Ingestion job " + jobId + " was cancelled");
+        }
+        committed = true;
+    }
+
+    /**
+     * True once {@link #commit()} succeeded; a cancel asked for before that
+     * means it never will.
+     */
+    public synchronized boolean isCommitted() {
+        return committed;
+    }
+
+    public long getBytesProcessed() {
+        return bytesProcessed;
+    }
+
+    public long getLinesProcessed() {
+        return linesProcessed;
+    }
+
+    public void setBytesProcessed(long bytes) {
+        bytesProcessed = bytes;
+    }
+
+    /**
+     * Counts indexed entries. Called once per entry (or per merged chunk),
+     * which makes it the place a requested cancel takes effect.
+     */
+    public void addLines(long lines) {
+        // single writer, the volatile is only for readers of status()
+        linesProcessed += lines;
+        if (cancelRequested) {
+            throw new CancellationException("Ingestion job " + jobId + " was cancelled");
+        }
+    }
+
+    /**
+     * Counts bytes as they are read from {@code in}, for inputs whose entry
+     * offsets don't say how far into the file we are (compressed ones).
+     */
+    public InputStream track(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    bytesProcessed++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytesProcessed += n;
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                bytesProcessed += skipped;
+                return skipped;
+            }
+        };
+    }
+
+    public Status status() {
+        State current = state.get();
+        long bytes = bytesProcessed;
+        long lines = linesProcessed;
+
+        double bytesPerSecond = 0;
+        double linesPerSecond = 0;
+        Long etaSeconds = null;
+        if (startedAt != null) {
+            long end = current == State.RUNNING ? System.nanoTime() : finishNanos;
+            double seconds = (end - startNanos) / 1e9;
+            if (seconds > 0) {
+                bytesPerSecond = bytes / seconds;
+                linesPerSecond = lines / seconds;
+            }
+            if (current == State.RUNNING && bytesPerSecond > 0) {
+                etaSeconds = (long) Math.ceil(Math.max(0, totalBytes - bytes) / bytesPerSecond);
+            }
+        }
+
+        return new Status(jobId, fileId, fileName, current, bytes, totalBytes, lines, bytesPerSecond,
+                linesPerSecond, etaSeconds, submittedAt, startedAt, finishedAt, error);
+    }
+}
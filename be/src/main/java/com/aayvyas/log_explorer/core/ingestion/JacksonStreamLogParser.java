@@ -1,6 +1,11 @@
 package com.aayvyas.log_explorer.core.ingestion;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -9,12 +14,16 @@ import org.springframework.stereotype.Component;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 @Component
 public class JacksonStreamLogParser implements LogParser {
 
+    private static final byte[] ARRAY_START = { '[' };
+    private static final byte[] ARRAY_END = { ']' };
+
     private final ObjectMapper objectMapper;
     private final JsonFactory jsonFactory;
 
@@ -47,11 +56,47 @@ public class JacksonStreamLogParser implements LogParser {
                 // RAM
                 Map<String, Object> log = parser.readValueAs(Map.class);
 
+                // after readValueAs the parser sits just past the closing '}'
+                int length = (int) (parser.currentLocation().getByteOffset() - offset);
+
                 // 4. Send it to the consumer (callback)
-                onLogFound.accept(new IndexedLogMap(log, offset));
+                onLogFound.accept(new IndexedLogMap(log, offset, length));
             }
         } catch (Exception e) {
             throw new RuntimeException("Failed to stream parse log file", e);
         }
     }
+
+    /**
+     * Parses one range produced by {@link JsonArraySplitter}: a run of top-level
+     * objects separated by commas, without the enclosing brackets. We wrap it as
+     * "[" + range + "]" (allowing the trailing comma) and shift the reported
+     * offsets back to file positions.
+     */
+    public void parseRange(FileChannel channel, JsonArraySplitter.ByteRange range,
+            Consumer<IndexedLogMap> onLogFound) {
+        InputStream wrapped = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(ARRAY_START),
+                new FileRangeInputStream(channel, range.start(), range.end()),
+                new ByteArrayInputStream(ARRAY_END))));
+
+        try (JsonParser parser = jsonFactory.createParser(wrapped)) {
+            parser.enable(JsonReadFeature.ALLOW_TRAILING_COMMA.mappedFeature());
+            parser.setCodec(objectMapper);
+
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Expected content to be an array");
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                long start = parser.getTokenLocation().getByteOffset();
+                Map<String, Object> log = parser.readValueAs(Map.class);
+                int length = (int) (parser.currentLocation().getByteOffset() - start);
+                long offset = range.start() + start - ARRAY_START.length;
+                onLogFound.accept(new IndexedLogMap(log, offset, length));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse range " + range, e);
+        }
+    }
 }
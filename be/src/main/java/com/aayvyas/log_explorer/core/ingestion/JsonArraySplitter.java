@@ -0,0 +1,122 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a file holding one top-level JSON array into byte ranges that start
+ * exactly on a top-level '{', so each range can be parsed on its own.
+ *
+ * This is a single byte scan that only tracks nesting depth and string state,
+ * which is several times cheaper than tokenizing, so it is fine to do it
+ * sequentially before fanning the real parsing out to workers.
+ */
+public final class JsonArraySplitter {
+
+    public record ByteRange(long start, long end) {
+        public long length() {
+            return end - start;
+        }
+    }
+
+    private JsonArraySplitter() {
+    }
+
+    /**
+     * @param targetChunkBytes a new range is started at the first object that
+     *                         begins after this many bytes
+     */
+    public static List<ByteRange> split(FileChannel channel, long targetChunkBytes) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+
+        long position = startsWithByteOrderMark(channel) ? 3 : 0;
+        long nextBoundary = 0;
+        long arrayEnd = -1;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        boolean seenArray = false;
+
+        scan: while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+
+            for (int i = 0; i < read; i++, position++) {
+                byte b = buffer.get(i);
+
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        inString = false;
+                    }
+                    continue;
+                }
+
+                switch (b) {
+                    case '"' -> inString = true;
+                    case '[' -> {
+                        if (depth == 0) {
+                            seenArray = true;
+                        }
+                        depth++;
+                    }
+                    case '{' -> {
+                        if (depth == 0) {
+                            throw new IllegalStateException("Expected content to be an array");
+                        }
+                        if (depth == 1 && position >= nextBoundary) {
+                            boundaries.add(position);
+                            nextBoundary = position + targetChunkBytes;
+                        }
+                        depth++;
+                    }
+                    case '}' -> depth--;
+                    case ']' -> {
+                        depth--;
+                        if (depth == 0) {
+                            arrayEnd = position;
+                            break scan;
+                        }
+                    }
+                    default -> {
+                        if (depth == 0 && !seenArray && !Character.isWhitespace(b)) {
+                            throw new IllegalStateException("Expected content to be an array");
+                        }
+                    }
+                }
+            }
+        }
+
+        if (arrayEnd < 0) {
+            throw new IllegalStateException("Unterminated JSON array");
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(boundaries.size());
+        for (int i = 0; i < boundaries.size(); i++) {
+            long end = i + 1 < boundaries.size() ? boundaries.get(i + 1) : arrayEnd;
+            ranges.add(new ByteRange(boundaries.get(i), end));
+        }
+        return ranges;
+    }
+
+    // a UTF-8 byte order mark, which Jackson skips and LogFormat looks past
+    private static boolean startsWithByteOrderMark(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(3);
+        while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+            // short reads, keep going
+        }
+        return head.position() == 3 && head.get(0) == (byte) 0xEF && head.get(1) == (byte) 0xBB
+                && head.get(2) == (byte) 0xBF;
+    }
+}
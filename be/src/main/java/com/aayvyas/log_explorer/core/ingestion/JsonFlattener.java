@@ -2,9 +2,13 @@ package com.aayvyas.log_explorer.core.ingestion;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 public class JsonFlattener {
 
+    // dotted paths seen so far, so nested keys aren't concatenated again for every entry
+    private final Path root = new Path("");
+
     public static Map<String, String> flatten(Map<String, Object> json) {
         Map<String, String> result = new HashMap<>();
         flattenRecursive("", json, result);
@@ -26,4 +30,49 @@ public class JsonFlattener {
             }
         }
     }
+
+    /**
+     * Same fields as {@link #flatten}, handed to {@code sink} one by one
+     * instead of collected into a map. The dotted field names are cached by
+     * this instance and shared between entries, so flattening an entry only
+     * allocates the string form of non-string values. Not thread safe, use one
+     * instance per indexing thread.
+     */
+    public void forEachField(Map<String, Object> json, BiConsumer<String, String> sink) {
+        visit(root, json, sink);
+    }
+
+    private static void visit(Path parent, Map<String, Object> current, BiConsumer<String, String> sink) {
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            Path path = parent.child(entry.getKey());
+            Object value = entry.getValue();
+
+            if (value instanceof Map) {
+                visit(path, (Map<String, Object>) value, sink);
+            } else {
+                sink.accept(path.name, String.valueOf(value));
+            }
+        }
+    }
+
+    private static final class Path {
+        private final String name;
+        private Map<String, Path> children;
+
+        Path(String name) {
+            this.name = name;
+        }
+
+        Path child(String key) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Path child = children.get(key);
+            if (child == null) {
+                child = new Path(name.isEmpty() ? key : name + "." + key);
+                children.put(key, child);
+            }
+            return child;
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * What an upload looks like, told from its first bytes.
+ */
+public enum LogFormat {
+    /** One top-level array of entries, {@code [{...},{...}]}. */
+    JSON_ARRAY,
+    /** One entry per line, or really any whitespace-separated run of objects. */
+    NDJSON,
+    GZIP,
+    ZSTD;
+
+    // how far past leading whitespace we look for the first real byte
+    private static final int PEEK_BYTES = 8192;
+
+    /**
+     * Peeks at the start of {@code in} without consuming it.
+     */
+    public static LogFormat detect(BufferedInputStream in) throws IOException {
+        in.mark(PEEK_BYTES);
+        try {
+            int b0 = in.read();
+            int b1 = in.read();
+            if (b0 == 0x1F && b1 == 0x8B) {
+                return GZIP;
+            }
+            if (b0 == 0x28 && b1 == 0xB5 && in.read() == 0x2F && in.read() == 0xFD) {
+                return ZSTD;
+            }
+        } finally {
+            in.reset();
+        }
+
+        in.mark(PEEK_BYTES);
+        try {
+            return firstNonWhitespace(in, PEEK_BYTES) == '[' ? JSON_ARRAY : NDJSON;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private static int firstNonWhitespace(InputStream in, int limit) throws IOException {
+        for (int i = 0; i < limit; i++) {
+            int b = in.read();
+            // a UTF-8 byte order mark counts as whitespace here, Jackson skips it too
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n' && b != 0xEF && b != 0xBB && b != 0xBF) {
+                return b;
+            }
+        }
+        return -1;
+    }
+}
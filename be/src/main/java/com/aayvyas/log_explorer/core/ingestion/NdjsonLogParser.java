@@ -0,0 +1,52 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Newline-delimited JSON: one object per line. Jackson reads a run of root
+ * level values natively, so this is the array parser minus the brackets;
+ * blank lines and pretty-printed objects spanning lines work as well.
+ */
+@Component
+public class NdjsonLogParser implements LogParser {
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+
+    public NdjsonLogParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Consumer<IndexedLogMap> onLogFound) {
+        try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+            parser.setCodec(objectMapper);
+
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalStateException("Expected one JSON object per line, found " + token + " at "
+                            + parser.getTokenLocation().getByteOffset());
+                }
+
+                long offset = parser.getTokenLocation().getByteOffset();
+                Map<String, Object> log = parser.readValueAs(Map.class);
+                int length = (int) (parser.currentLocation().getByteOffset() - offset);
+
+                onLogFound.accept(new IndexedLogMap(log, offset, length));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to stream parse log file", e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import com.aayvyas.log_explorer.config.LogExplorerProperties;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Multi-core ingestion for large JSON array files.
+ *
+ * The file is cut into byte ranges on top-level object boundaries
+ * ({@link JsonArraySplitter}); each range is parsed, flattened and indexed into
+ * its own partial {@link LogSegment} on a worker, and the partials are appended
+ * to the real segment in file order so doc ordinals stay global and sorted.
+ */
+@Component
+public class ParallelLogIngester {
+
+    private final JacksonStreamLogParser parser;
+    private final LogExplorerProperties.Ingestion config;
+    private final ExecutorService workers;
+
+    public ParallelLogIngester(JacksonStreamLogParser parser, LogExplorerProperties properties) {
+        this.parser = parser;
+        this.config = properties.ingestion();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(config.effectiveParallelism(), r -> {
+            Thread thread = new Thread(r, "ingest-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Only big raw JSON arrays can be split into ranges, NDJSON and block
+     * compressed files are parsed sequentially.
+     */
+    public boolean accepts(File file) {
+        return config.effectiveParallelism() > 1 && file.length() >= config.parallelThresholdBytes()
+                && isJsonArray(file);
+    }
+
+    private static boolean isJsonArray(File file) {
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return LogFormat.detect(in) == LogFormat.JSON_ARRAY;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param job reported to after each merged chunk, may be null
+     */
+    public void ingest(LogSegment segment, IngestionJob job) throws Exception {
+        try (FileChannel channel = FileChannel.open(segment.getFilePath(), StandardOpenOption.READ)) {
+            List<JsonArraySplitter.ByteRange> ranges = JsonArraySplitter.split(channel, config.chunkBytes());
+
+            // keep a bounded window of chunks in flight so finished partial indexes
+            // don't pile up faster than we merge them
+            int window = config.effectiveParallelism() * 2;
+            Deque<Future<LogSegment>> inFlight = new ArrayDeque<>(window);
+            int next = 0;
+            int merged = 0;
+
+            try {
+                while (next < ranges.size() || !inFlight.isEmpty()) {
+                    while (next < ranges.size() && inFlight.size() < window) {
+                        JsonArraySplitter.ByteRange range = ranges.get(next++);
+                        inFlight.add(workers.submit(() -> indexRange(segment, channel, range)));
+                    }
+                    LogSegment partial = inFlight.poll().get();
+                    segment.appendIndex(partial);
+
+                    if (job != null) {
+                        job.setBytesProcessed(ranges.get(merged++).end());
+                        job.addLines(partial.getDocCount());
+                    }
+                }
+            } catch (ExecutionException e) {
+                inFlight.forEach(f -> f.cancel(true));
+                throw new RuntimeException("Failed to stream parse log file", e.getCause());
+            } catch (InterruptedException e) {
+                inFlight.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (RuntimeException e) {
+                // e.g. the job was cancelled
+                inFlight.forEach(f -> f.cancel(true));
+                throw e;
+            }
+        }
+    }
+
+    private LogSegment indexRange(LogSegment segment, FileChannel channel, JsonArraySplitter.ByteRange range) {
+        LogSegment partial = segment.newPartial();
+        parser.parseRange(channel, range, entry -> partial.addToIndex(entry.logEntry(), entry.offset(), entry.length()));
+        return partial;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
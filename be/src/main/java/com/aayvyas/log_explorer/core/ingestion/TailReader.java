@@ -0,0 +1,123 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads the entries appended to a growing file, from where the last read
+ * stopped.
+ *
+ * Entries are top-level JSON objects, one per line or the elements of an
+ * array that is still being written; whitespace, commas and brackets
+ * between them are skipped. The same byte scan as {@link JsonArraySplitter}
+ * finds where each object ends, so an object that is only partly written yet
+ * is left for the next read instead of failing the parse.
+ */
+public final class TailReader {
+
+    /**
+     * @param entries complete entries, in file order
+     * @param end     where the next read resumes: past the last complete
+     *                entry and whatever separates it from the next one
+     */
+    public record Batch(List<IndexedLogMap> entries, long end) {
+    }
+
+    private final ObjectMapper objectMapper;
+
+    public TailReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The complete entries between {@code from} and {@code to}, reading about
+     * {@code maxBytes} at a time. More is read only if a single entry doesn't
+     * fit.
+     *
+     * @throws IllegalStateException if something other than a JSON object
+     *                               was appended
+     */
+    public Batch read(FileChannel channel, long from, long to, int maxBytes) throws IOException {
+        int window = (int) Math.min(to - from, maxBytes);
+        while (true) {
+            byte[] bytes = readFully(channel, from, window);
+            Batch batch = scan(bytes, from);
+            // nothing complete in the window, but the file has more: one entry is bigger than that
+            if (batch.entries().isEmpty() && window < to - from) {
+                window = (int) Math.min(to - from, Math.min((long) window * 2, Integer.MAX_VALUE - 8));
+                continue;
+            }
+            return batch;
+        }
+    }
+
+    private Batch scan(byte[] bytes, long base) throws IOException {
+        List<IndexedLogMap> entries = new ArrayList<>();
+        int end = 0;
+        int start = -1;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+
+        for (int i = 0; i < bytes.length; i++) {
+            byte b = bytes[i];
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            if (depth == 0) {
+                if (b == '{') {
+                    start = i;
+                    depth = 1;
+                } else if (b == ',' || b == '[' || b == ']' || Character.isWhitespace(b)) {
+                    end = i + 1;
+                } else {
+                    throw new IllegalStateException("Expected a JSON object at " + (base + i));
+                }
+                continue;
+            }
+
+            switch (b) {
+                case '"' -> inString = true;
+                case '{', '[' -> depth++;
+                case '}', ']' -> {
+                    if (--depth == 0) {
+                        int length = i + 1 - start;
+                        Map<String, Object> log = objectMapper.readValue(bytes, start, length, Map.class);
+                        entries.add(new IndexedLogMap(log, base + start, length));
+                        end = i + 1;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return new Batch(entries, base + end);
+    }
+
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.position() == length ? buffer.array()
+                : Arrays.copyOf(buffer.array(), buffer.position());
+    }
+}
@@ -0,0 +1,90 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Copies every byte read from the wrapped stream to {@code copy}, so an upload
+ * can be parsed and written to storage in the same pass. Byte offsets seen by
+ * the reader are offsets into the copy.
+ */
+public class TeeInputStream extends FilterInputStream {
+
+    private final OutputStream copy;
+    private long count;
+    private boolean closed;
+
+    public TeeInputStream(InputStream in, OutputStream copy) {
+        super(in);
+        this.copy = copy;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            copy.write(b);
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            copy.write(b, off, n);
+            count += n;
+        }
+        return n;
+    }
+
+    /**
+     * Skipped bytes still have to land in the copy, so they are read instead.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    /**
+     * Drains whatever the reader left unread (e.g. whitespace after the
+     * closing bracket) into the copy before closing, so the copy is always
+     * the whole stream. The copy itself is left open.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            count += in.transferTo(copy);
+        } finally {
+            super.close();
+        }
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Bytes copied so far.
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+package com.aayvyas.log_explorer.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency of searches, split by phase, and how much they return and read.
+ *
+ * <ul>
+ * <li>{@code planning}: turning the request into a query tree</li>
+ * <li>{@code intersection}: looking up and combining the postings of the
+ * query into a doc set; only on a query cache miss, a hit skips it</li>
+ * <li>{@code fetch}: walking the doc set in time order, verifying text
+ * candidates and reading the hits until the response is written</li>
+ * </ul>
+ *
+ * The files of a multi-file search are intersected in parallel, each timed
+ * on its own, while its fetch covers the whole search.
+ */
+@Component
+public class SearchMetrics {
+
+    public enum Scope {
+        FILE, FEDERATED
+    }
+
+    private final Timer planning;
+    private final Timer intersection;
+    private final Timer fileFetch;
+    private final Timer federatedFetch;
+    private final DistributionSummary fileHits;
+    private final DistributionSummary federatedHits;
+    private final Timer aggregation;
+
+    public SearchMetrics(MeterRegistry registry) {
+        this.planning = phase(registry, "planning", null);
+        this.intersection = phase(registry, "intersection", null);
+        this.fileFetch = phase(registry, "fetch", Scope.FILE);
+        this.federatedFetch = phase(registry, "fetch", Scope.FEDERATED);
+        this.fileHits = hits(registry, Scope.FILE);
+        this.federatedHits = hits(registry, Scope.FEDERATED);
+        this.aggregation = Timer.builder("logexplorer.aggregation.latency")
+                .description("Time to compute facets and a histogram")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        FunctionCounter.builder("logexplorer.search.docs.read", this, metrics -> LogSegment.docsRead())
+                .description("Entries read from storage, returned as hits or only read to verify a text match")
+                .register(registry);
+    }
+
+    private static Timer phase(MeterRegistry registry, String phase, Scope scope) {
+        return Timer.builder("logexplorer.search.latency")
+                .description("Time spent per search phase")
+                .tag("phase", phase)
+                .tag("scope", scope == null ? "any" : scope.name().toLowerCase())
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static DistributionSummary hits(MeterRegistry registry, Scope scope) {
+        return DistributionSummary.builder("logexplorer.search.hits")
+                .description("Entries returned per search")
+                .tag("scope", scope.name().toLowerCase())
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public <T> T planning(Supplier<T> parse) {
+        return planning.record(parse);
+    }
+
+    public <T> T intersection(Supplier<T> plan) {
+        return intersection.record(plan);
+    }
+
+    public <T> T aggregation(Supplier<T> aggregate) {
+        return aggregation.record(aggregate);
+    }
+
+    /**
+     * Counts what {@code hits} hands out and records the fetch once it is
+     * closed, measured from {@code startNanos}.
+     */
+    public <T> Stream<T> fetch(Stream<T> hits, long startNanos, Scope scope) {
+        LongAdder count = new LongAdder();
+        return hits.peek(hit -> count.increment()).onClose(() -> {
+            (scope == Scope.FILE ? fileFetch : federatedFetch)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            (scope == Scope.FILE ? fileHits : federatedHits).record(count.sum());
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package com.aayvyas.log_explorer.core.search;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts over the docs matching a query, computed from the indexes alone.
+ *
+ * @param total     number of matching docs
+ * @param facets    field -> most frequent values among the matches, by count
+ * @param stats     field -> summary of its numeric values among the matches,
+ *                  null for a field with none
+ * @param histogram matches per time bucket, null if none has a timestamp
+ */
+public record Aggregations(long total, Map<String, List<ValueCount>> facets, Map<String, NumericStats> stats,
+        Histogram histogram) {
+
+    public record ValueCount(String value, long count) {
+    }
+
+    /**
+     * @param count       matches with a numeric value of the field
+     * @param percentiles e.g. "p99" -> the smallest value at least 99% of
+     *                    those matches don't exceed (nearest rank), exact
+     */
+    public record NumericStats(long count, double min, double max, double sum, double avg,
+            Map<String, Double> percentiles) {
+    }
+
+    /**
+     * @param intervalMillis bucket width; buckets are aligned to multiples of it
+     * @param buckets        every bucket between the first and last match,
+     *                       including empty ones
+     */
+    public record Histogram(long intervalMillis, List<Bucket> buckets) {
+    }
+
+    /**
+     * @param start epoch millis of the bucket start (inclusive)
+     */
+    public record Bucket(long start, long count) {
+    }
+}
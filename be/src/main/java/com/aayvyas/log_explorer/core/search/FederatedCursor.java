@@ -0,0 +1,61 @@
+package com.aayvyas.log_explorer.core.search;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last hit of a page of a search over several files. Hits
+ * are merged in (timestamp, file id, doc ordinal) order, so this is the
+ * {@link SearchCursor} of that hit plus the file it came from; every file
+ * can work out its own cursor from it, see {@link #in(String)}.
+ *
+ * Clients only see it as an opaque url-safe token.
+ */
+public record FederatedCursor(long time, String fileId, int doc) {
+
+    private static final byte VERSION = 1;
+
+    /**
+     * Where to resume in {@code otherFileId}. Ties on the timestamp are broken
+     * by file id, so a file sorting before the cursor's has already had all
+     * its hits at that timestamp, one sorting after has had none of them.
+     * That holds in both orders, since NEWEST is the exact reverse of OLDEST.
+     */
+    public SearchCursor in(String otherFileId) {
+        int cmp = otherFileId.compareTo(fileId);
+        return new SearchCursor(time, cmp == 0 ? doc : cmp < 0 ? Integer.MAX_VALUE : -1);
+    }
+
+    public String encode() {
+        byte[] id = fileId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + Integer.BYTES + id.length)
+                .put(VERSION).putLong(time).putInt(doc).put(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @return null for a null or blank token
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static FederatedCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        int header = 1 + Long.BYTES + Integer.BYTES;
+        if (bytes.length <= header || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, header - 1);
+        long time = buffer.getLong();
+        int doc = buffer.getInt();
+        return new FederatedCursor(time, new String(bytes, header, bytes.length - header, StandardCharsets.UTF_8),
+                doc);
+    }
+}
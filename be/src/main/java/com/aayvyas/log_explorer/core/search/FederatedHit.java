@@ -0,0 +1,8 @@
+package com.aayvyas.log_explorer.core.search;
+
+/**
+ * A hit of a search over several files: the entry's stored bytes, compacted
+ * to one line, and the file they came from.
+ */
+public record FederatedHit(String fileId, byte[] log) {
+}
@@ -0,0 +1,11 @@
+package com.aayvyas.log_explorer.core.search;
+
+import java.util.stream.Stream;
+
+/**
+ * One page of a search over several files, see {@link SearchPage}.
+ *
+ * @param next cursor for the following page, or null on the last page
+ */
+public record FederatedPage(Stream<FederatedHit> hits, FederatedCursor next) {
+}
@@ -0,0 +1,309 @@
+package com.aayvyas.log_explorer.core.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * AST produced by {@link QueryParser}. Each node can also be evaluated
+ * directly against a flattened document, which is how residual predicates
+ * are checked once the index has narrowed the candidates down.
+ */
+public sealed interface QueryNode {
+
+    /**
+     * @param flatFields the document as produced by JsonFlattener
+     * @param textFields fields searched by a text match without a field
+     */
+    boolean matches(Map<String, String> flatFields, Set<String> textFields);
+
+    record And(List<QueryNode> children) implements QueryNode {
+        public And {
+            children = List.copyOf(children);
+        }
+
+        @Override
+        public boolean matches(Map<String, String> flatFields, Set<String> textFields) {
+            for (QueryNode child : children) {
+                if (!child.matches(flatFields, textFields)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    record Or(List<QueryNode> children) implements QueryNode {
+        public Or {
+            children = List.copyOf(children);
+        }
+
+        @Override
+        public boolean matches(Map<String, String> flatFields, Set<String> textFields) {
+            for (QueryNode child : children) {
+                if (child.matches(flatFields, textFields)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    record Not(QueryNode child) implements QueryNode {
+        @Override
+        public boolean matches(Map<String, String> flatFields, Set<String> textFields) {
+            return !child.matches(flatFields, textFields);
+        }
+    }
+
+    /**
+     * {@code field=value}. With {@code wildcard}, '*' matches any run of
+     * characters and '?' exactly one.
+     */
+    record FieldMatch(String field, String value, boolean wildcard) implements QueryNode {
+
+        private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+        public FieldMatch(String field, String value) {
+            this(field, value, false);
+        }
+
+        @Override
+        public boolean matches(Map<String, String> flatFields, Set<String> textFields) {
+            String actual = flatFields.get(field);
+            if (actual == null) {
+                return false;
+            }
+            return wildcard ? pattern().matcher(actual).matches() : value.equals(actual);
+        }
+
+        /**
+         * Literal text before the first wildcard, every match starts with it.
+         */
+        public String literalPrefix() {
+            if (!wildcard) {
+                return value;
+            }
+            int i = 0;
+            while (i < value.length() && value.charAt(i) != '*' && value.charAt(i) != '?') {
+                i++;
+            }
+            return value.substring(0, i);
+        }
+
+        public Pattern pattern() {
+            // residual checks call this per document, don't recompile every time
+            if (PATTERNS.size() > 1024) {
+                PATTERNS.clear();
+            }
+            return PATTERNS.computeIfAbsent(value, FieldMatch::globToRegex);
+        }
+
+        private static Pattern globToRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (char c : glob.toCharArray()) {
+                if (c == '*' || c == '?') {
+                    if (!literal.isEmpty()) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (!literal.isEmpty()) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+
+    /**
+     * {@code field=~regex}: values the regex is found in, anchor it with
+     * {@code ^} and {@code $} to match whole values.
+     */
+    record RegexMatch(String field, String regex) implements QueryNode {
+
+        private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+        // chars that end the literal start of a regex
+        private static final String META = "\\.[]{}()*+?^$|";
+
+        @Override
+        public boolean matches(Map<String, String> flatFields, Set<String> textFields) {
+            String actual = flatFields.get(field);
+            return actual != null && pattern().matcher(actual).find();
+        }
+
+        /**
+         * Literal text every match starts with, only known for a regex
+         * anchored with {@code ^} and without alternatives; empty otherwise.
+         */
+        public String literalPrefix() {
+            if (!regex.startsWith("^") || regex.indexOf('|') >= 0) {
+                return "";
+            }
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 1; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (META.indexOf(c) >= 0) {
+                    // "ab*", "ab?" and "ab{0,2}" may all lack the b
+                    if ((c == '*' || c == '?' || c == '{') && !prefix.isEmpty()) {
+                        prefix.setLength(prefix.length() - 1);
+                    }
+                    break;
+                }
+                prefix.append(c);
+            }
+            return prefix.toString();
+        }
+
+        /**
+         * @throws java.util.regex.PatternSyntaxException if the regex is invalid
+         */
+        public Pattern pattern() {
+            if (PATTERNS.size() > 1024) {
+                PATTERNS.clear();
+            }
+            return PATTERNS.computeIfAbsent(regex, Pattern::compile);
+        }
+    }
+
+    /**
+     * Numeric range on a field, {@code field > 500} or
+     * {@code field BETWEEN 100 AND 500}. An open end is an infinity. Values
+     * that aren't numbers never match.
+     */
+    record Range(String field, double from, boolean fromInclusive, double to, boolean toInclusive)
+            implements QueryNode {
+
+        @Override
+        public boolean matches(Map<String, String> flatFields, Set<String> textFields) {
+            return contains(parseNumber(flatFields.get(field)));
+        }
+
+        public boolean contains(double value) {
+            return (fromInclusive ? value >= from : value > from) && (toInclusive ? value <= to : value < to);
+        }
+
+        /**
+         * A field value as a number, NaN unless it is a JSON number. Values
+         * are indexed as text, so {@code 500} and {@code "500"} look the same
+         * and both count.
+         */
+        public static double parseNumber(String value) {
+            if (value == null || value.isEmpty()) {
+                return Double.NaN;
+            }
+            char first = value.charAt(0);
+            if (first != '-' && (first < '0' || first > '9')) {
+                return Double.NaN; // the common case for text, before looking any further
+            }
+            for (int i = 1; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if ((c < '0' || c > '9') && c != '.' && c != 'e' && c != 'E' && c != '+' && c != '-') {
+                    return Double.NaN;
+                }
+            }
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * Full-text match, see {@link TextQuery}. A null field means any of the
+     * configured text fields.
+     */
+    record TextMatch(TextQuery query) implements QueryNode {
+        @Override
+        public boolean matches(Map<String, String> flatFields, Set<String> textFields) {
+            if (query.field() != null) {
+                return query.matches(flatFields.get(query.field()));
+            }
+            for (String field : textFields) {
+                if (query.matches(flatFields.get(field))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * True for the empty AND a blank query parses to.
+     */
+    static boolean isMatchAll(QueryNode node) {
+        return node instanceof And and && and.children().isEmpty();
+    }
+
+    /**
+     * Canonical form for use as a cache key: nested ANDs / ORs are flattened,
+     * children sorted and deduplicated, double negation removed, so queries
+     * that only differ in term order map to the same key.
+     */
+    static QueryNode normalize(QueryNode node) {
+        return switch (node) {
+            case And and -> combine(and.children(), true);
+            case Or or -> combine(or.children(), false);
+            case Not not -> {
+                QueryNode child = normalize(not.child());
+                yield child instanceof Not inner ? inner.child() : new Not(child);
+            }
+            default -> node;
+        };
+    }
+
+    private static QueryNode combine(List<QueryNode> children, boolean and) {
+        Map<String, QueryNode> unique = new TreeMap<>();
+        for (QueryNode child : children) {
+            QueryNode normalized = normalize(child);
+            List<QueryNode> flattened = and && normalized instanceof And nested ? nested.children()
+                    : !and && normalized instanceof Or nested ? nested.children()
+                    : List.of(normalized);
+            for (QueryNode leaf : flattened) {
+                unique.putIfAbsent(leaf.toString(), leaf);
+            }
+        }
+        List<QueryNode> sorted = new ArrayList<>(unique.values());
+        if (sorted.size() == 1) {
+            return sorted.get(0);
+        }
+        return and ? new And(sorted) : new Or(sorted);
+    }
+
+    /**
+     * The legacy flat filter map of the search endpoint: every pair has to
+     * match exactly.
+     */
+    static QueryNode fromFilters(Map<String, String> filters) {
+        List<QueryNode> children = new ArrayList<>();
+        if (filters != null) {
+            filters.forEach((field, value) -> children.add(new FieldMatch(field, value)));
+        }
+        return new And(children);
+    }
+
+    /**
+     * AND of the non-null nodes, flattening nested ANDs.
+     */
+    static QueryNode and(QueryNode... nodes) {
+        List<QueryNode> children = new ArrayList<>();
+        for (QueryNode node : nodes) {
+            if (node instanceof And and) {
+                children.addAll(and.children());
+            } else if (node != null) {
+                children.add(node);
+            }
+        }
+        return children.size() == 1 ? children.get(0) : new And(children);
+    }
+}
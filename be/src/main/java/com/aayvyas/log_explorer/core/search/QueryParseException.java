@@ -0,0 +1,19 @@
+package com.aayvyas.log_explorer.core.search;
+
+/**
+ * Thrown by {@link QueryParser} for malformed queries. The message points at
+ * the offending character so it can be shown to the user as is.
+ */
+public class QueryParseException extends IllegalArgumentException {
+
+    private final int position;
+
+    public QueryParseException(String message, String query, int position) {
+        super(message + " at position " + position + ": " + query);
+        this.position = position;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+}
@@ -1,16 +1,323 @@
 package com.aayvyas.log_explorer.core.search;
 
-import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
 
-// TODO : implement query parser with structured query language support
+/**
+ * Parses the structured query language into a {@link QueryNode} tree.
+ *
+ * <pre>
+ * query    := or
+ * or       := and ( OR and )*
+ * and      := not ( [AND] not )*          adjacent terms are ANDed
+ * not      := NOT not | primary
+ * primary  := '(' or ')' | term
+ * term     := value                       full-text match on the text fields
+ *           | field '='  value            exact, '*' / '?' wildcards if unquoted
+ *           | field '!=' value
+ *           | field '~'  value            substring match on one field
+ *           | field '=~' value            regex found in the value, ^ and $ anchor it
+ *           | field ('>' | '>=' | '<' | '<=') number
+ *           | field BETWEEN number AND number      inclusive numeric range
+ * value    := bare-word | "quoted" | 'quoted'   (\" \' \\ \n \t \\uXXXX escapes)
+ * </pre>
+ *
+ * Any other backslash in a quoted value is kept as written, so a regex like
+ * {@code msg=~"a\.b"} or {@code msg=~"\d+ ms"} means what it says.
+ *
+ * Keywords are case-insensitive, {@code &&} and {@code ||} work as AND and
+ * OR. Example:
+ * {@code (level=ERROR OR level=WARN) AND service=payment-* AND NOT "health check"},
+ * {@code service=checkout AND latency_ms > 500} or {@code user.id=~^42}.
+ */
 public class QueryParser {
 
-    // TODO : Improve this regex matching , as may not handle nested quotes or
-    // escapred characters
-    private static final Pattern PAIR_PATTERN = Pattern.compile("([\\w\\.]+)=[\"']([^\"']+)[\"']");
+    private enum Kind {
+        LPAREN, RPAREN, AND, OR, NOT, EQ, NEQ, CONTAINS, REGEX, GT, GTE, LT, LTE, WORD, EOF
+    }
+
+    private record Token(Kind kind, String text, boolean quoted, int position) {
+    }
+
+    private final String input;
+    private final List<Token> tokens;
+    private int index;
+
+    private QueryParser(String input) {
+        this.input = input;
+        this.tokens = tokenize(input);
+    }
+
+    /**
+     * @return the AST; a blank query matches everything (an empty AND)
+     * @throws QueryParseException with the offending position on bad input
+     */
+    public static QueryNode parse(String queryString) {
+        if (queryString == null || queryString.isBlank()) {
+            return new QueryNode.And(List.of());
+        }
+        QueryParser parser = new QueryParser(queryString);
+        QueryNode node = parser.parseOr();
+        parser.expect(Kind.EOF);
+        return node;
+    }
+
+    private QueryNode parseOr() {
+        List<QueryNode> children = new ArrayList<>();
+        children.add(parseAnd());
+        while (peek().kind() == Kind.OR) {
+            index++;
+            children.add(parseAnd());
+        }
+        return children.size() == 1 ? children.get(0) : new QueryNode.Or(children);
+    }
+
+    private QueryNode parseAnd() {
+        List<QueryNode> children = new ArrayList<>();
+        children.add(parseNot());
+        while (true) {
+            Kind next = peek().kind();
+            if (next == Kind.AND) {
+                index++;
+            } else if (next != Kind.WORD && next != Kind.NOT && next != Kind.LPAREN) {
+                break;
+            }
+            children.add(parseNot());
+        }
+        return children.size() == 1 ? children.get(0) : new QueryNode.And(children);
+    }
+
+    private QueryNode parseNot() {
+        if (peek().kind() == Kind.NOT) {
+            index++;
+            return new QueryNode.Not(parseNot());
+        }
+        return parsePrimary();
+    }
+
+    private QueryNode parsePrimary() {
+        Token token = peek();
+        if (token.kind() == Kind.LPAREN) {
+            index++;
+            QueryNode inner = parseOr();
+            expect(Kind.RPAREN);
+            return inner;
+        }
+
+        Token word = expect(Kind.WORD);
+        Kind op = peek().kind();
+        if (isBetween(word)) {
+            index++;
+            double from = number(expect(Kind.WORD));
+            expect(Kind.AND);
+            double to = number(expect(Kind.WORD));
+            return new QueryNode.Range(word.text(), from, true, to, true);
+        }
+        if (op == Kind.GT || op == Kind.GTE || op == Kind.LT || op == Kind.LTE) {
+            if (word.quoted()) {
+                throw error("Field name must not be quoted", word.position());
+            }
+            index++;
+            double bound = number(expect(Kind.WORD));
+            return switch (op) {
+                case GT -> new QueryNode.Range(word.text(), bound, false, Double.POSITIVE_INFINITY, true);
+                case GTE -> new QueryNode.Range(word.text(), bound, true, Double.POSITIVE_INFINITY, true);
+                case LT -> new QueryNode.Range(word.text(), Double.NEGATIVE_INFINITY, true, bound, false);
+                default -> new QueryNode.Range(word.text(), Double.NEGATIVE_INFINITY, true, bound, true);
+            };
+        }
+        if (op != Kind.EQ && op != Kind.NEQ && op != Kind.CONTAINS && op != Kind.REGEX) {
+            if (word.text().isBlank()) {
+                throw error("Empty search text", word.position());
+            }
+            // bare value: full-text over the text fields, quoted means phrase
+            return new QueryNode.TextMatch(new TextQuery(null, word.text(),
+                    word.quoted() ? TextQuery.Mode.PHRASE : TextQuery.Mode.SUBSTRING));
+        }
+        if (word.quoted()) {
+            throw error("Field name must not be quoted", word.position());
+        }
+        index++;
+        Token value = expect(Kind.WORD);
+        if (op == Kind.CONTAINS && value.text().isBlank()) {
+            throw error("Empty search text", value.position());
+        }
+        if (op == Kind.REGEX) {
+            QueryNode.RegexMatch regex = new QueryNode.RegexMatch(word.text(), value.text());
+            try {
+                regex.pattern();
+            } catch (PatternSyntaxException e) {
+                throw error("Invalid regex: " + e.getDescription(), value.position());
+            }
+            return regex;
+        }
+
+        return switch (op) {
+            case CONTAINS -> new QueryNode.TextMatch(new TextQuery(word.text(), value.text(), TextQuery.Mode.SUBSTRING));
+            case NEQ -> new QueryNode.Not(fieldMatch(word, value));
+            default -> fieldMatch(word, value);
+        };
+    }
+
+    // "field BETWEEN number AND ...", anything else with "between" in it is text
+    private boolean isBetween(Token field) {
+        Token next = peek();
+        return !field.quoted() && next.kind() == Kind.WORD && !next.quoted()
+                && next.text().equalsIgnoreCase("BETWEEN") && index + 2 < tokens.size()
+                && tokens.get(index + 1).kind() == Kind.WORD
+                && !Double.isNaN(QueryNode.Range.parseNumber(tokens.get(index + 1).text()))
+                && tokens.get(index + 2).kind() == Kind.AND;
+    }
+
+    private double number(Token token) {
+        double value = QueryNode.Range.parseNumber(token.text());
+        if (Double.isNaN(value)) {
+            throw error("Expected a number but found '" + token.text() + "'", token.position());
+        }
+        return value;
+    }
+
+    private static QueryNode fieldMatch(Token field, Token value) {
+        boolean wildcard = !value.quoted() && (value.text().indexOf('*') >= 0 || value.text().indexOf('?') >= 0);
+        return new QueryNode.FieldMatch(field.text(), value.text(), wildcard);
+    }
+
+    private Token peek() {
+        return tokens.get(index);
+    }
+
+    private Token expect(Kind kind) {
+        Token token = peek();
+        if (token.kind() != kind) {
+            String found = token.kind() == Kind.EOF ? "end of query" : "'" + token.text() + "'";
+            throw error("Expected " + describe(kind) + " but found " + found, token.position());
+        }
+        index++;
+        return token;
+    }
+
+    private static String describe(Kind kind) {
+        return switch (kind) {
+            case RPAREN -> "')'";
+            case WORD -> "a field or value";
+            case EOF -> "end of query";
+            default -> kind.name();
+        };
+    }
+
+    private QueryParseException error(String message, int position) {
+        return new QueryParseException(message, input, position);
+    }
+
+    private List<Token> tokenize(String in) {
+        List<Token> out = new ArrayList<>();
+        int i = 0;
+        while (i < in.length()) {
+            char c = in.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                out.add(new Token(Kind.LPAREN, "(", false, i++));
+            } else if (c == ')') {
+                out.add(new Token(Kind.RPAREN, ")", false, i++));
+            } else if (in.startsWith("=~", i)) {
+                out.add(new Token(Kind.REGEX, "=~", false, i));
+                i += 2;
+            } else if (c == '=') {
+                out.add(new Token(Kind.EQ, "=", false, i++));
+            } else if (c == '~') {
+                out.add(new Token(Kind.CONTAINS, "~", false, i++));
+            } else if (c == '>' || c == '<') {
+                boolean orEqual = i + 1 < in.length() && in.charAt(i + 1) == '=';
+                Kind kind = c == '>' ? (orEqual ? Kind.GTE : Kind.GT) : (orEqual ? Kind.LTE : Kind.LT);
+                out.add(new Token(kind, orEqual ? c + "=" : String.valueOf(c), false, i));
+                i += orEqual ? 2 : 1;
+            } else if (c == '!' && i + 1 < in.length() && in.charAt(i + 1) == '=') {
+                out.add(new Token(Kind.NEQ, "!=", false, i));
+                i += 2;
+            } else if (in.startsWith("&&", i)) {
+                out.add(new Token(Kind.AND, "&&", false, i));
+                i += 2;
+            } else if (in.startsWith("||", i)) {
+                out.add(new Token(Kind.OR, "||", false, i));
+                i += 2;
+            } else if (c == '"' || c == '\'') {
+                i = readQuoted(in, i, out);
+            } else {
+                int start = i;
+                while (i < in.length() && !isDelimiter(in, i)) {
+                    i++;
+                }
+                String word = in.substring(start, i);
+                out.add(new Token(keyword(word), word, false, start));
+            }
+        }
+        out.add(new Token(Kind.EOF, "", false, in.length()));
+        return out;
+    }
+
+    private static boolean isDelimiter(String in, int i) {
+        char c = in.charAt(i);
+        return Character.isWhitespace(c) || c == '(' || c == ')' || c == '=' || c == '~' || c == '>' || c == '<'
+                || c == '"'
+                || c == '\'' || (c == '!' && i + 1 < in.length() && in.charAt(i + 1) == '=')
+                || in.startsWith("&&", i) || in.startsWith("||", i);
+    }
+
+    private static Kind keyword(String word) {
+        if (word.equalsIgnoreCase("AND")) {
+            return Kind.AND;
+        }
+        if (word.equalsIgnoreCase("OR")) {
+            return Kind.OR;
+        }
+        if (word.equalsIgnoreCase("NOT")) {
+            return Kind.NOT;
+        }
+        return Kind.WORD;
+    }
 
-    public static Map<String, String> parse(String queryString) throws Exception {
-        throw new Exception("not implemented yet");
+    private int readQuoted(String in, int start, List<Token> out) {
+        char quote = in.charAt(start);
+        StringBuilder value = new StringBuilder();
+        int i = start + 1;
+        while (i < in.length()) {
+            char c = in.charAt(i);
+            if (c == quote) {
+                out.add(new Token(Kind.WORD, value.toString(), true, start));
+                return i + 1;
+            }
+            if (c == '\\') {
+                if (i + 1 >= in.length()) {
+                    break;
+                }
+                char escaped = in.charAt(i + 1);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 't' -> value.append('\t');
+                    case 'r' -> value.append('\r');
+                    case '"', '\'', '\\' -> value.append(escaped);
+                    case 'u' -> {
+                        if (i + 6 > in.length()) {
+                            throw error("Incomplete \\u escape", i);
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(in.substring(i + 2, i + 6), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid \\u escape", i);
+                        }
+                        i += 4;
+                    }
+                    // a regex escape, \d or \., not one of ours
+                    default -> value.append('\\').append(escaped);
+                }
+                i += 2;
+            } else {
+                value.append(c);
+                i++;
+            }
+        }
+        throw error("Unterminated quoted string", start);
     }
 }
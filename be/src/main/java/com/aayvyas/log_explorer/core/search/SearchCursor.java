@@ -0,0 +1,43 @@
+package com.aayvyas.log_explorer.core.search;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position of the last hit of a page: its timestamp and doc ordinal, which
+ * together are the sort key. The next page starts right after it, so paging
+ * stays stable without the server keeping any state.
+ *
+ * Clients only see it as an opaque url-safe token.
+ */
+public record SearchCursor(long time, int doc) {
+
+    private static final byte VERSION = 1;
+    private static final int ENCODED_BYTES = 1 + Long.BYTES + Integer.BYTES;
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES).put(VERSION).putLong(time).putInt(doc);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @return null for a null or blank token
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static SearchCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        if (bytes.length != ENCODED_BYTES || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, ENCODED_BYTES - 1);
+        return new SearchCursor(buffer.getLong(), buffer.getInt());
+    }
+}
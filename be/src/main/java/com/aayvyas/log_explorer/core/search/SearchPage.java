@@ -0,0 +1,12 @@
+package com.aayvyas.log_explorer.core.search;
+
+import java.util.stream.Stream;
+
+/**
+ * One page of hits. Which docs belong to the page is settled up front, the
+ * hits themselves are read from disk lazily as the stream is consumed.
+ *
+ * @param next cursor for the following page, or null on the last page
+ */
+public record SearchPage<T>(Stream<T> hits, SearchCursor next) {
+}
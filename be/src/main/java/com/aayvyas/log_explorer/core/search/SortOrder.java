@@ -0,0 +1,10 @@
+package com.aayvyas.log_explorer.core.search;
+
+/**
+ * Order of search hits by entry timestamp; entries with the same timestamp
+ * keep file order. Entries without a timestamp count as the oldest.
+ */
+public enum SortOrder {
+    OLDEST,
+    NEWEST
+}
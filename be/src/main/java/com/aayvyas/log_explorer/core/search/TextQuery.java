@@ -0,0 +1,82 @@
+package com.aayvyas.log_explorer.core.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Case-insensitive full-text predicate over the configured text fields.
+ *
+ * @param field a single text field, or null for "any text field"
+ * @param text  the term, phrase or substring to look for
+ * @param mode  how {@code text} has to occur in the value
+ */
+public record TextQuery(String field, String text, Mode mode) {
+
+    public enum Mode {
+        /** value contains {@code text} anywhere */
+        SUBSTRING,
+        /** {@code text} is one whole token of the value */
+        TERM,
+        /** the tokens of {@code text} occur consecutively in the value */
+        PHRASE
+    }
+
+    public TextQuery {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Text query must not be blank");
+        }
+        if (mode == null) {
+            mode = Mode.SUBSTRING;
+        }
+    }
+
+    public boolean matches(String value) {
+        if (value == null) {
+            return false;
+        }
+        return switch (mode) {
+            case SUBSTRING -> value.toLowerCase(Locale.ROOT).contains(text.toLowerCase(Locale.ROOT));
+            case TERM -> tokenize(value).contains(text.toLowerCase(Locale.ROOT));
+            case PHRASE -> containsRun(tokenize(value), tokenize(text));
+        };
+    }
+
+    /**
+     * Pieces of {@code text} that must appear literally (lowercased) in any
+     * matching value; their trigrams are what the index is probed with.
+     */
+    public List<String> requiredFragments() {
+        return mode == Mode.SUBSTRING ? List.of(text.toLowerCase(Locale.ROOT)) : tokenize(text);
+    }
+
+    static List<String> tokenize(String value) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            boolean wordChar = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(value.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean containsRun(List<String> tokens, List<String> run) {
+        if (run.isEmpty()) {
+            return false;
+        }
+        outer: for (int i = 0; i + run.size() <= tokens.size(); i++) {
+            for (int j = 0; j < run.size(); j++) {
+                if (!tokens.get(i + j).equals(run.get(j))) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,402 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.aayvyas.log_explorer.core.search.Aggregations;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+
+/**
+ * Facet counts, numeric stats and time histograms over a set of matching
+ * docs, answered from the postings and the timestamp column without reading
+ * any document.
+ *
+ * A value's count is the size of its posting list intersected with the
+ * matches, walked from whichever side is smaller. Values are visited in
+ * descending posting size, so once the top N are settled every remaining
+ * value is skipped on its size alone. If the segment has a
+ * {@link FieldColumn} of the field the matches are counted from it instead.
+ */
+final class Aggregator {
+
+    static final int MAX_BUCKETS = 10_000;
+
+    // an auto histogram takes the first interval giving at most this many buckets
+    private static final int TARGET_BUCKETS = 60;
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long[] AUTO_INTERVALS = {
+            SECOND, 2 * SECOND, 5 * SECOND, 10 * SECOND, 15 * SECOND, 30 * SECOND,
+            MINUTE, 2 * MINUTE, 5 * MINUTE, 10 * MINUTE, 15 * MINUTE, 30 * MINUTE,
+            HOUR, 2 * HOUR, 3 * HOUR, 6 * HOUR, 12 * HOUR,
+            DAY, 2 * DAY, 7 * DAY, 30 * DAY, 90 * DAY, 365 * DAY };
+
+    private static final Comparator<Aggregations.ValueCount> BY_COUNT = Comparator
+            .comparingLong(Aggregations.ValueCount::count)
+            .thenComparing(Aggregations.ValueCount::value, Comparator.reverseOrder());
+
+    private final Map<String, FieldIndex> universalIndex;
+    private final Map<String, FieldColumn> columns;
+    private final TimeIndex timeIndex;
+    private final int docCount;
+
+    // sorted matching docs, null meaning every doc of the segment
+    private final int[] docs;
+    private BitSet members;
+
+    Aggregator(Map<String, FieldIndex> universalIndex, Map<String, FieldColumn> columns, TimeIndex timeIndex,
+            int docCount, int[] docs) {
+        this.universalIndex = universalIndex;
+        this.columns = columns;
+        this.timeIndex = timeIndex;
+        this.docCount = docCount;
+        this.docs = docs;
+    }
+
+    long total() {
+        return docs == null ? docCount : docs.length;
+    }
+
+    /**
+     * The {@code size} most frequent values of {@code field} among the
+     * matches, most frequent first; ties are broken by value.
+     */
+    List<Aggregations.ValueCount> topValues(String field, int size) {
+        FieldIndex values = universalIndex.get(field);
+        if (values == null || size <= 0 || total() == 0) {
+            return List.of();
+        }
+        FieldColumn column = columns.get(field);
+        if (column != null && docs != null && !column.hasAmbiguous()) {
+            // with every doc matching the posting sizes are the counts already
+            return topValues(values, column, size);
+        }
+
+        // (posting size, value id) packed in a long, so sorting needs no boxing
+        long[] bySize = new long[values.termCount()];
+        for (int id = 0; id < bySize.length; id++) {
+            bySize[id] = (long) values.docCount(id) << 32 | id;
+        }
+        Arrays.sort(bySize);
+
+        // min-heap of the best values so far
+        PriorityQueue<Aggregations.ValueCount> top = new PriorityQueue<>(size + 1, BY_COUNT);
+        for (int i = bySize.length - 1; i >= 0; i--) {
+            int id = (int) bySize[i];
+            int postingSize = (int) (bySize[i] >>> 32);
+            if (top.size() == size && postingSize < top.peek().count()) {
+                break; // the count can't exceed the posting size, and sizes only shrink from here
+            }
+            long count = count(values, id);
+            if (count == 0 || top.size() == size && count < top.peek().count()) {
+                continue; // lost on count alone, no need to decode the value
+            }
+            top.add(new Aggregations.ValueCount(values.term(id), count));
+            if (top.size() > size) {
+                top.poll();
+            }
+        }
+
+        List<Aggregations.ValueCount> result = new ArrayList<>(top);
+        result.sort(BY_COUNT.reversed());
+        return result;
+    }
+
+    // a counter per value is cheaper than sorting up to this many values per match
+    private static final int DENSE_COUNTS_PER_MATCH = 4;
+
+    private static void offer(PriorityQueue<Aggregations.ValueCount> top, int size, FieldIndex values, int id,
+            long count) {
+        if (count == 0 || top.size() == size && count < top.peek().count()) {
+            return; // lost on count alone, no need to decode the value
+        }
+        top.add(new Aggregations.ValueCount(values.term(id), count));
+        if (top.size() > size) {
+            top.poll();
+        }
+    }
+
+    /**
+     * Counts by value id over the column entries of the matches, so the cost
+     * follows the number of matches rather than of values. A counter per value
+     * when there are few values, else the ids of the matches sorted and
+     * counted in runs.
+     */
+    private List<Aggregations.ValueCount> topValues(FieldIndex values, FieldColumn column, int size) {
+        PriorityQueue<Aggregations.ValueCount> top = new PriorityQueue<>(size + 1, BY_COUNT);
+        if (values.termCount() <= DENSE_COUNTS_PER_MATCH * docs.length) {
+            int[] counts = new int[values.termCount()];
+            for (int doc : docs) {
+                int id = column.id(doc);
+                if (id >= 0) {
+                    counts[id]++;
+                }
+            }
+            for (int id = 0; id < counts.length; id++) {
+                offer(top, size, values, id, counts[id]);
+            }
+        } else {
+            int[] ids = new int[docs.length];
+            int n = 0;
+            for (int doc : docs) {
+                int id = column.id(doc);
+                if (id >= 0) {
+                    ids[n++] = id;
+                }
+            }
+            Arrays.sort(ids, 0, n);
+            for (int i = 0; i < n;) {
+                int start = i;
+                while (i < n && ids[i] == ids[start]) {
+                    i++;
+                }
+                offer(top, size, values, ids[start], i - start);
+            }
+        }
+
+        List<Aggregations.ValueCount> result = new ArrayList<>(top);
+        result.sort(BY_COUNT.reversed());
+        return result;
+    }
+
+    /**
+     * Count, min, max, sum, average and the given percentiles of the numeric
+     * values of {@code field} among the matches, or null if no match has
+     * one. Percentiles are exact: each distinct value is counted like a
+     * facet, then walked in numeric order, see {@link NumericValues}.
+     *
+     * @param percentiles each in (0, 100]
+     */
+    Aggregations.NumericStats numericStats(String field, List<Double> percentiles) {
+        FieldIndex values = universalIndex.get(field);
+        if (values == null || total() == 0) {
+            return null;
+        }
+        NumericValues numeric = values.numeric();
+        if (numeric.size() == 0) {
+            return null;
+        }
+
+        double[] sorted;
+        long[] counts;
+        FieldColumn column = columns.get(field);
+        if (docs == null || column == null || column.hasAmbiguous()) {
+            sorted = new double[numeric.size()];
+            counts = new long[numeric.size()];
+            for (int position = 0; position < sorted.length; position++) {
+                sorted[position] = numeric.value(position);
+                counts[position] = count(values, numeric.id(position));
+            }
+        } else if (values.termCount() <= DENSE_COUNTS_PER_MATCH * docs.length) {
+            int[] byId = new int[values.termCount()];
+            for (int doc : docs) {
+                int id = column.id(doc);
+                if (id >= 0) {
+                    byId[id]++;
+                }
+            }
+            sorted = new double[numeric.size()];
+            counts = new long[numeric.size()];
+            for (int position = 0; position < sorted.length; position++) {
+                sorted[position] = numeric.value(position);
+                counts[position] = byId[numeric.id(position)];
+            }
+        } else {
+            // few matches over many values: parse just the values that matched, then order them
+            int[] ids = new int[docs.length];
+            int n = 0;
+            for (int doc : docs) {
+                int id = column.id(doc);
+                if (id >= 0) {
+                    ids[n++] = id;
+                }
+            }
+            Arrays.sort(ids, 0, n);
+            long[] runs = new long[n];
+            double[] parsed = new double[n];
+            int distinct = 0;
+            for (int i = 0; i < n;) {
+                int start = i;
+                while (i < n && ids[i] == ids[start]) {
+                    i++;
+                }
+                double value = QueryNode.Range.parseNumber(values.term(ids[start]));
+                if (!Double.isNaN(value)) {
+                    parsed[distinct] = value;
+                    runs[distinct++] = i - start;
+                }
+            }
+            Integer[] order = new Integer[distinct];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, Comparator.comparingDouble(i -> parsed[i]));
+            sorted = new double[distinct];
+            counts = new long[distinct];
+            for (int i = 0; i < distinct; i++) {
+                sorted[i] = parsed[order[i]];
+                counts[i] = runs[order[i]];
+            }
+        }
+        return summarize(sorted, counts, percentiles);
+    }
+
+    // values ascending, each with its number of matches
+    private static Aggregations.NumericStats summarize(double[] sorted, long[] counts, List<Double> percentiles) {
+        long count = 0;
+        double sum = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        for (int i = 0; i < sorted.length; i++) {
+            if (counts[i] > 0) {
+                if (count == 0) {
+                    min = sorted[i];
+                }
+                max = sorted[i];
+                count += counts[i];
+                sum += sorted[i] * counts[i];
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        Map<String, Double> byName = new LinkedHashMap<>();
+        for (double percent : percentiles) {
+            long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+            long seen = 0;
+            int i = 0;
+            while (seen + counts[i] < rank) {
+                seen += counts[i++];
+            }
+            byName.put(percentileName(percent), sorted[i]);
+        }
+        return new Aggregations.NumericStats(count, min, max, sum, sum / count, byName);
+    }
+
+    // "p99", "p99.9"
+    private static String percentileName(double percent) {
+        return percent == Math.rint(percent) ? "p" + (long) percent : "p" + percent;
+    }
+
+    /**
+     * @param intervalMillis bucket width, or null to pick one giving about
+     *                       {@value #TARGET_BUCKETS} buckets
+     * @return null if no match has a timestamp. An interval that would need
+     *         more than {@value #MAX_BUCKETS} buckets is widened to fit.
+     */
+    Aggregations.Histogram histogram(Long intervalMillis) {
+        if (intervalMillis != null && intervalMillis <= 0) {
+            throw new IllegalArgumentException("Histogram interval must be positive");
+        }
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        boolean wholeOrderedColumn = docs == null && timeIndex.isOrdered();
+        if (wholeOrderedColumn) {
+            if (docCount > 0) {
+                min = timeIndex.timeOf(0);
+                max = timeIndex.timeOf(docCount - 1);
+            }
+        } else {
+            for (int i = 0, n = (int) total(); i < n; i++) {
+                long time = timeIndex.timeOf(docs == null ? i : docs[i]);
+                if (time != TimeIndex.MISSING) {
+                    min = Math.min(min, time);
+                    max = Math.max(max, time);
+                }
+            }
+        }
+        if (min > max) {
+            return null;
+        }
+
+        long interval = intervalMillis != null ? intervalMillis : autoInterval(max - min);
+        if ((max - min) / interval + 2 > MAX_BUCKETS) {
+            interval = (max - min) / (MAX_BUCKETS - 2) + 1;
+        }
+        long first = Math.floorDiv(min, interval);
+        long bucketCount = Math.floorDiv(max, interval) - first + 1;
+
+        long[] counts = new long[(int) bucketCount];
+        if (wholeOrderedColumn) {
+            // the column is sorted, each bucket is just two binary searches apart
+            for (int b = 0; b < counts.length; b++) {
+                long start = (first + b) * interval;
+                counts[b] = timeIndex.slice(start, start + interval).size();
+            }
+        } else {
+            for (int i = 0, n = (int) total(); i < n; i++) {
+                long time = timeIndex.timeOf(docs == null ? i : docs[i]);
+                if (time != TimeIndex.MISSING) {
+                    counts[(int) (Math.floorDiv(time, interval) - first)]++;
+                }
+            }
+        }
+
+        List<Aggregations.Bucket> buckets = new ArrayList<>(counts.length);
+        for (int b = 0; b < counts.length; b++) {
+            buckets.add(new Aggregations.Bucket((first + b) * interval, counts[b]));
+        }
+        return new Aggregations.Histogram(interval, buckets);
+    }
+
+    private long count(FieldIndex values, int id) {
+        if (docs == null) {
+            return values.docCount(id);
+        }
+        if (values.docCount(id) == 1) {
+            int doc = values.firstDoc(id);
+            return docs.length < docCount / 64 ? (Arrays.binarySearch(docs, doc) >= 0 ? 1 : 0)
+                    : (members().get(doc) ? 1 : 0);
+        }
+
+        PostingList postings = values.postings(id);
+        long count = 0;
+        PostingList.Cursor cursor = postings.cursor();
+        if (docs.length < postings.size()) {
+            // few matches: skip through the postings to each of them
+            for (int doc : docs) {
+                if (!cursor.advance(doc)) {
+                    break;
+                }
+                if (cursor.doc() == doc) {
+                    count++;
+                }
+            }
+        } else {
+            BitSet matches = members();
+            while (cursor.next()) {
+                if (matches.get(cursor.doc())) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private BitSet members() {
+        if (members == null) {
+            members = new BitSet(docCount);
+            for (int doc : docs) {
+                members.set(doc);
+            }
+        }
+        return members;
+    }
+
+    private static long autoInterval(long span) {
+        for (long interval : AUTO_INTERVALS) {
+            if (span / interval + 1 <= TARGET_BUCKETS) {
+                return interval;
+            }
+        }
+        return AUTO_INTERVALS[AUTO_INTERVALS.length - 1];
+    }
+}
@@ -0,0 +1,192 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only, thread-safe view of a log file stored by
+ * {@link BlockCompressedWriter}.
+ *
+ * Layout (big endian):
+ *
+ * <pre>
+ * header  : magic(int) version(int) blockBytes(int)
+ * blocks  : deflated bytes of each block, back to back
+ * index   : blockCount(int), per block uncompressedStart(long) fileOffset(long) compressedLength(int)
+ * trailer : indexOffset(long) uncompressedSize(long) magic(int)
+ * </pre>
+ *
+ * A read binary-searches the block holding the position and inflates just
+ * that block. Recently inflated blocks are kept in a small LRU, since hits of
+ * a page and sequential re-parses tend to land in the same block.
+ */
+final class BlockCompressedFile implements StoredLog {
+
+    static final int MAGIC = 0x4C58424B; // "LXBK"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4 + 4;
+
+    private static final int TRAILER_BYTES = 8 + 8 + 4;
+    private static final int CACHED_BLOCKS = 32;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long[] blockStarts;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+
+    private final Map<Integer, byte[]> inflated = new LinkedHashMap<>(CACHED_BLOCKS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    BlockCompressedFile(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            ByteBuffer header = readFully(0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a block compressed log: " + path);
+            }
+
+            ByteBuffer trailer = readFully(fileSize - TRAILER_BYTES, TRAILER_BYTES);
+            long indexOffset = trailer.getLong();
+            this.size = trailer.getLong();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("Block compressed log is truncated: " + path);
+            }
+
+            ByteBuffer index = readFully(indexOffset, (int) (fileSize - TRAILER_BYTES - indexOffset));
+            int blockCount = index.getInt();
+            this.blockStarts = new long[blockCount];
+            this.blockOffsets = new long[blockCount];
+            this.blockLengths = new int[blockCount];
+            for (int b = 0; b < blockCount; b++) {
+                blockStarts[b] = index.getLong();
+                blockOffsets[b] = index.getLong();
+                blockLengths[b] = index.getInt();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static boolean isBlockCompressed(Path path) throws IOException {
+        if (Files.size(path) < HEADER_BYTES + TRAILER_BYTES) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            channel.read(magic, 0);
+            return magic.getInt(0) == MAGIC;
+        }
+    }
+
+    @Override
+    public int read(long position, byte[] dst, int offset, int length) throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+
+        int copied = 0;
+        int block = blockAt(position);
+        while (copied < length && position < size) {
+            byte[] bytes = block(block);
+            int within = (int) (position - blockStarts[block]);
+            int chunk = Math.min(length - copied, bytes.length - within);
+            System.arraycopy(bytes, within, dst, offset + copied, chunk);
+            copied += chunk;
+            position += chunk;
+            block++;
+        }
+        return copied;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    int blockCount() {
+        return blockStarts.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // last block starting at or before position
+    private int blockAt(long position) {
+        int lo = 0;
+        int hi = blockStarts.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (blockStarts[mid] <= position) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private byte[] block(int block) throws IOException {
+        synchronized (inflated) {
+            byte[] bytes = inflated.get(block);
+            if (bytes != null) {
+                return bytes;
+            }
+        }
+
+        // inflate outside the lock, two readers of one block just both do the work
+        long end = block + 1 < blockStarts.length ? blockStarts[block + 1] : size;
+        byte[] bytes = new byte[(int) (end - blockStarts[block])];
+        ByteBuffer compressed = readFully(blockOffsets[block], blockLengths[block]);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while (n < bytes.length && !inflater.finished()) {
+                int inflatedBytes = inflater.inflate(bytes, n, bytes.length - n);
+                if (inflatedBytes == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflatedBytes;
+            }
+            if (n != bytes.length) {
+                throw new IOException("Block " + block + " inflated to " + n + " bytes, expected " + bytes.length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block " + block, e);
+        } finally {
+            inflater.end();
+        }
+
+        synchronized (inflated) {
+            inflated.put(block, bytes);
+        }
+        return bytes;
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of block compressed log at " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,145 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a log file as a sequence of independently deflated blocks followed
+ * by a block index, see {@link BlockCompressedFile} for the layout.
+ *
+ * Blocks are only cut at entry boundaries reported through
+ * {@link #markEntryEnd}, so any single entry can later be read back by
+ * inflating exactly one block. A block is cut at the first boundary at or
+ * past {@code blockBytes}, so it overshoots by at most one entry.
+ */
+public final class BlockCompressedWriter extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_BYTES = 64 << 10;
+
+    // without any reported boundary, cut anyway rather than buffer without limit;
+    // entries spanning two blocks still read fine, just with two inflates
+    private static final int MAX_PENDING_BLOCKS = 64;
+
+    private final DataOutputStream out;
+    private final int blockBytes;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+    // uncompressed bytes not yet in a block, starting at pendingStart
+    private byte[] pending;
+    private int pendingLength;
+    private long pendingStart;
+
+    private byte[] compressed;
+    private long fileOffset;
+
+    // per block: uncompressed start, file offset, compressed length
+    private final LongList blockStarts = new LongList();
+    private final LongList blockOffsets = new LongList();
+    private final IntList blockLengths = new IntList();
+
+    private boolean closed;
+
+    public BlockCompressedWriter(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_BYTES);
+    }
+
+    public BlockCompressedWriter(OutputStream out, int blockBytes) throws IOException {
+        if (blockBytes <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockBytes);
+        }
+        this.out = new DataOutputStream(out);
+        this.blockBytes = blockBytes;
+        this.pending = new byte[blockBytes * 2];
+        this.compressed = new byte[blockBytes];
+
+        this.out.writeInt(BlockCompressedFile.MAGIC);
+        this.out.writeInt(BlockCompressedFile.VERSION);
+        this.out.writeInt(blockBytes);
+        this.fileOffset = BlockCompressedFile.HEADER_BYTES;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (pendingLength + len > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + len));
+        }
+        System.arraycopy(b, off, pending, pendingLength, len);
+        pendingLength += len;
+
+        if (pendingLength >= (long) blockBytes * MAX_PENDING_BLOCKS) {
+            writeBlock(pendingLength);
+        }
+    }
+
+    /**
+     * Tells the writer an entry ends at {@code offset} (uncompressed, from the
+     * start of the stream). Offsets must not decrease and must not be past
+     * what was written so far.
+     */
+    public void markEntryEnd(long offset) throws IOException {
+        if (offset - pendingStart >= blockBytes) {
+            writeBlock((int) (offset - pendingStart));
+        }
+    }
+
+    /**
+     * Writes whatever is pending as the last block, then the block index.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (pendingLength > 0) {
+                writeBlock(pendingLength);
+            }
+
+            long indexOffset = fileOffset;
+            out.writeInt(blockStarts.size());
+            for (int b = 0; b < blockStarts.size(); b++) {
+                out.writeLong(blockStarts.get(b));
+                out.writeLong(blockOffsets.get(b));
+                out.writeInt(blockLengths.get(b));
+            }
+            out.writeLong(indexOffset);
+            out.writeLong(pendingStart);
+            out.writeInt(BlockCompressedFile.MAGIC);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock(int length) throws IOException {
+        deflater.reset();
+        deflater.setInput(pending, 0, length);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        out.write(compressed, 0, compressedLength);
+
+        blockStarts.add(pendingStart);
+        blockOffsets.add(fileOffset);
+        blockLengths.add(compressedLength);
+        fileOffset += compressedLength;
+
+        System.arraycopy(pending, length, pending, 0, pendingLength - length);
+        pendingLength -= length;
+        pendingStart += length;
+    }
+}
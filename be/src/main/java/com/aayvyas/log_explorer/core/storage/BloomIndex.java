@@ -0,0 +1,229 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Stand-in for the {@link FieldIndex} of a field whose values are nearly all
+ * distinct, such as trace ids: which docs have a value is only answered up to
+ * a block of docs.
+ *
+ * Docs are grouped in blocks of {@code blockDocs} consecutive ordinals, each
+ * with a bloom filter of the values of its docs, {@value #BITS_PER_VALUE}
+ * bits a value. A lookup tests every block and returns all docs of those that
+ * may hold the value, a superset the caller verifies against the entries:
+ * the block of the real match plus, in under 1 of 10,000 blocks, a false
+ * one. That is 2.5 bytes per value where the inverted index keeps the value
+ * itself, its first doc and a posting slot.
+ *
+ * The block being filled keeps the hashes of its values and is turned into a
+ * filter once a doc of the next block comes in. Single writer, like
+ * {@link FieldIndex}; docs must be added in increasing order.
+ */
+final class BloomIndex {
+
+    private static final int BITS_PER_VALUE = 20;
+    // optimal for 20 bits a value, a false positive rate of ~0.007%
+    private static final int HASHES = 14;
+
+    private final int blockDocs;
+
+    // filter bits of all closed blocks, block b owns words [starts[b], starts[b + 1])
+    private final LongList words = new LongList();
+    private final IntList starts = new IntList();
+
+    // hashes of the values of the open block, the one after the last closed one
+    private long[] open = new long[16];
+    private int openCount;
+
+    BloomIndex(int blockDocs) {
+        if (blockDocs < 1) {
+            throw new IllegalArgumentException("Bloom blocks need at least one doc: " + blockDocs);
+        }
+        this.blockDocs = blockDocs;
+    }
+
+    int blockDocs() {
+        return blockDocs;
+    }
+
+    void add(String value, int doc) {
+        add(hash(value), doc);
+    }
+
+    /**
+     * Adds the values of an inverted index whose docs follow the ones already
+     * here, shifted by {@code docBase}: to move a field over to blooms, or
+     * to append a partial index of it.
+     */
+    void addAll(FieldIndex values, int docBase) {
+        long[] hashes = new long[values.termCount()];
+        int postings = 0;
+        for (int id = 0; id < hashes.length; id++) {
+            hashes[id] = hash(values.term(id));
+            postings += values.docCount(id);
+        }
+
+        // (doc, value id) packed in a long, so the values are added in doc order
+        long[] byDoc = new long[postings];
+        int n = 0;
+        for (int id = 0; id < hashes.length; id++) {
+            if (values.docCount(id) == 1) {
+                byDoc[n++] = (long) values.firstDoc(id) << 32 | id;
+                continue;
+            }
+            PostingList.Cursor cursor = values.postings(id).cursor();
+            while (cursor.next()) {
+                byDoc[n++] = (long) cursor.doc() << 32 | id;
+            }
+        }
+        Arrays.sort(byDoc);
+        for (long posting : byDoc) {
+            add(hashes[(int) posting], (int) (posting >>> 32) + docBase);
+        }
+    }
+
+    private void add(long hash, int doc) {
+        int block = doc / blockDocs;
+        while (starts.size() < block) {
+            close();
+        }
+        if (openCount == open.length) {
+            open = Arrays.copyOf(open, openCount * 2);
+        }
+        open[openCount++] = hash;
+    }
+
+    // turns the open block into a filter sized for its distinct values, an empty one takes no words
+    private void close() {
+        Arrays.sort(open, 0, openCount);
+        int distinct = 0;
+        for (int i = 0; i < openCount; i++) {
+            if (i == 0 || open[i] != open[i - 1]) {
+                open[distinct++] = open[i];
+            }
+        }
+
+        long[] bits = new long[(distinct * BITS_PER_VALUE + 63) / 64];
+        for (int i = 0; i < distinct; i++) {
+            set(bits, open[i]);
+        }
+        starts.add(words.size());
+        for (long word : bits) {
+            words.add(word);
+        }
+        openCount = 0;
+    }
+
+    /**
+     * Sorted docs below {@code docCount} of the blocks that may hold
+     * {@code value}; every doc that has it is among them.
+     */
+    int[] candidates(String value, int docCount) {
+        long hash = hash(value);
+        IntList docs = new IntList();
+        int closed = starts.size();
+        for (int block = 0; block < closed; block++) {
+            if (mayContain(block, hash)) {
+                addBlock(docs, block, docCount);
+            }
+        }
+        for (int i = 0; i < openCount; i++) {
+            if (open[i] == hash) {
+                addBlock(docs, closed, docCount);
+                break;
+            }
+        }
+        return docs.toArray();
+    }
+
+    private void addBlock(IntList docs, int block, int docCount) {
+        for (int doc = block * blockDocs, end = Math.min(doc + blockDocs, docCount); doc < end; doc++) {
+            docs.add(doc);
+        }
+    }
+
+    private boolean mayContain(int block, long hash) {
+        int start = starts.get(block);
+        int end = block + 1 < starts.size() ? starts.get(block + 1) : words.size();
+        int bits = (end - start) * 64;
+        if (bits == 0) {
+            return false;
+        }
+        // double hashing, the two halves of the hash make up the probe sequence
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = Integer.remainderUnsigned(h1 + i * h2, bits);
+            if ((words.get(start + (bit >>> 6)) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void set(long[] bits, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = Integer.remainderUnsigned(h1 + i * h2, bits.length * 64);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    // FNV-1a over the chars, then the splitmix64 finalizer so both halves are well mixed
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    long estimatedBytes() {
+        return 48L + words.estimatedBytes() + starts.estimatedBytes() + 16L + 8L * open.length;
+    }
+
+    /**
+     * Block size, closed blocks and the open block's hashes, see
+     * {@link SegmentIndexFile}.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(blockDocs);
+        out.writeInt(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            out.writeInt(starts.get(i));
+        }
+        out.writeInt(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            out.writeLong(words.get(i));
+        }
+        out.writeInt(openCount);
+        for (int i = 0; i < openCount; i++) {
+            out.writeLong(open[i]);
+        }
+    }
+
+    static BloomIndex readFrom(ByteBuffer in) {
+        BloomIndex blooms = new BloomIndex(in.getInt());
+        int blocks = in.getInt();
+        for (int i = 0; i < blocks; i++) {
+            blooms.starts.add(in.getInt());
+        }
+        int wordCount = in.getInt();
+        for (int i = 0; i < wordCount; i++) {
+            blooms.words.add(in.getLong());
+        }
+        int openCount = in.getInt();
+        blooms.open = new long[Math.max(16, openCount)];
+        for (int i = 0; i < openCount; i++) {
+            blooms.open[i] = in.getLong();
+        }
+        blooms.openCount = openCount;
+        return blooms;
+    }
+}
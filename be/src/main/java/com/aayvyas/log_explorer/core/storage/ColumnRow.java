@@ -0,0 +1,75 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.AbstractMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The flattened fields of one doc read from its {@link FieldColumn}s, a
+ * stand-in for {@code JsonFlattener.flatten} of the entry that a query can
+ * be matched against without reading it. Moved from doc to doc by one
+ * thread, values are decoded only for the fields asked for.
+ */
+final class ColumnRow extends AbstractMap<String, String> {
+
+    private final Map<String, FieldColumn> columns;
+    // fields indexed by bloom filters, which have no column
+    private final Set<String> uncolumned;
+    private int doc;
+    private boolean exact;
+
+    ColumnRow(Map<String, FieldColumn> columns, Set<String> uncolumned) {
+        this.columns = columns;
+        this.uncolumned = uncolumned;
+    }
+
+    void moveTo(int doc) {
+        this.doc = doc;
+        this.exact = true;
+    }
+
+    /**
+     * False if a field looked up since {@link #moveTo} had more than one value
+     * in the doc or has no column, the entry itself then has to be consulted.
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    @Override
+    public String get(Object field) {
+        FieldColumn column = columns.get(field);
+        if (column == null) {
+            // no doc of the segment has the field, unless it is one without a column
+            if (uncolumned.contains(field)) {
+                exact = false;
+            }
+            return null;
+        }
+        if (column.isAmbiguous(doc)) {
+            exact = false;
+        }
+        return column.value(doc);
+    }
+
+    @Override
+    public boolean containsKey(Object field) {
+        return get(field) != null;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (!uncolumned.isEmpty()) {
+            exact = false;
+        }
+        Set<Entry<String, String>> entries = new HashSet<>();
+        for (String field : columns.keySet()) {
+            String value = get(field);
+            if (value != null) {
+                entries.add(new SimpleImmutableEntry<>(field, value));
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,19 @@
+package com.aayvyas.log_explorer.core.storage;
+
+/**
+ * Sorted doc ordinals a query plan produced, see {@link QueryPlanner}.
+ * {@code exact == false} means a superset of the real matches that still has
+ * to be verified against the documents.
+ */
+public record DocSet(int[] docs, boolean exact) {
+
+    static final DocSet EMPTY = new DocSet(new int[0], true);
+
+    public int size() {
+        return docs.length;
+    }
+
+    public long estimatedBytes() {
+        return 32 + 4L * docs.length;
+    }
+}
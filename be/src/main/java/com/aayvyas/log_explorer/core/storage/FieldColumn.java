@@ -0,0 +1,110 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.BitSet;
+
+/**
+ * Forward index of one field: the value id of every doc, by doc ordinal, so
+ * the value of a field can be looked up without reading the entry.
+ *
+ * Ids are the ones of the field's {@link FieldIndex} dictionary, bit-packed
+ * with just enough bits for the largest one: a field with a handful of
+ * values takes a few bits per doc, a unique id field about log2(docs).
+ * Built from the postings once the segment is fully indexed, and read-only
+ * after that.
+ */
+final class FieldColumn {
+
+    // stored ids are shifted by one, 0 is a doc without the field
+    private static final int MISSING = -1;
+
+    private final FieldIndex values;
+    private final int docCount;
+    private final int bits;
+    private final long mask;
+    private final long[] words;
+
+    // docs carrying the field twice ("a.b" and {"a":{"b"}}), which value wins is up to the entry
+    private final BitSet ambiguous = new BitSet();
+
+    FieldColumn(FieldIndex values, int docCount) {
+        this.values = values;
+        this.docCount = docCount;
+        this.bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(values.termCount()));
+        this.mask = (1L << bits) - 1;
+        this.words = new long[(int) (((long) docCount * bits + 63) >>> 6)];
+
+        for (int id = 0; id < values.termCount(); id++) {
+            if (values.docCount(id) == 1) {
+                store(values.firstDoc(id), id);
+                continue;
+            }
+            PostingList.Cursor cursor = values.postings(id).cursor();
+            while (cursor.next()) {
+                store(cursor.doc(), id);
+            }
+        }
+    }
+
+    private void store(int doc, int id) {
+        if (raw(doc) != 0) {
+            ambiguous.set(doc);
+            return;
+        }
+        long bit = (long) doc * bits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = id + 1L;
+        words[word] |= value << shift;
+        if (shift + bits > 64) {
+            words[word + 1] |= value >>> (64 - shift);
+        }
+    }
+
+    private long raw(int doc) {
+        long bit = (long) doc * bits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = words[word] >>> shift;
+        if (shift + bits > 64) {
+            value |= words[word + 1] << (64 - shift);
+        }
+        return value & mask;
+    }
+
+    /**
+     * @return the value id of {@code doc}, or -1 if the doc doesn't have the
+     *         field
+     */
+    int id(int doc) {
+        return doc < docCount ? (int) raw(doc) - 1 : MISSING;
+    }
+
+    /**
+     * @return the value of {@code doc}, or null if the doc doesn't have the
+     *         field
+     */
+    String value(int doc) {
+        int id = id(doc);
+        return id == MISSING ? null : values.term(id);
+    }
+
+    /**
+     * True if the doc has more than one value for the field, the column then
+     * holds just one of them and the entry has to be read to know.
+     */
+    boolean isAmbiguous(int doc) {
+        return ambiguous.get(doc);
+    }
+
+    boolean hasAmbiguous() {
+        return !ambiguous.isEmpty();
+    }
+
+    int termCount() {
+        return values.termCount();
+    }
+
+    long estimatedBytes() {
+        return 32L + 8L * words.length + ambiguous.size() / 8;
+    }
+}
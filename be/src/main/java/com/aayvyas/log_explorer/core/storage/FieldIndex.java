@@ -0,0 +1,182 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.Arrays;
+
+/**
+ * Inverted index of one field: the distinct values in a {@link TermDictionary}
+ * and the docs of each value, by value id.
+ *
+ * Most values of a high-cardinality field (ids, messages) occur in exactly
+ * one doc. Those only get their first doc recorded; a {@link PostingList} is
+ * created once a value shows up a second time.
+ *
+ * Single writer; readers may only look once the writer is done.
+ */
+final class FieldIndex {
+
+    private final TermDictionary values = new TermDictionary();
+
+    // value id -> first doc of the value
+    private final IntList firstDocs = new IntList();
+
+    // value id -> docs, null while the value has a single doc
+    private PostingList[] postings = new PostingList[16];
+
+    // views of the values in sorted and in numeric order, built on first use and again once values were added
+    private volatile SortedTerms sorted;
+    private volatile NumericValues numeric;
+
+    /**
+     * Docs must be added in increasing order.
+     */
+    void add(String value, int doc) {
+        addDoc(values.add(value), doc);
+    }
+
+    /**
+     * Appends the values of a partial index whose docs follow the ones already
+     * here, shifted by {@code docBase}.
+     */
+    void append(FieldIndex partial, int docBase) {
+        for (int id = 0; id < partial.termCount(); id++) {
+            int target = values.add(partial.values, id);
+            PostingList docs = partial.postings[id];
+            if (docs == null) {
+                addDoc(target, partial.firstDocs.get(id) + docBase);
+                continue;
+            }
+            PostingList.Cursor cursor = docs.cursor();
+            while (cursor.next()) {
+                addDoc(target, cursor.doc() + docBase);
+            }
+        }
+    }
+
+    /**
+     * Restores a value and its docs, see {@link SegmentIndexFile}.
+     */
+    void put(String value, PostingList docs) {
+        if (docs.isEmpty()) {
+            return;
+        }
+        int id = values.add(value);
+        if (id < firstDocs.size()) {
+            throw new IllegalStateException("Duplicate value in index: " + value);
+        }
+        PostingList.Cursor cursor = docs.cursor();
+        cursor.next();
+        firstDocs.add(cursor.doc());
+        ensureCapacity(id);
+        postings[id] = docs.size() > 1 ? docs : null;
+    }
+
+    int termCount() {
+        return values.size();
+    }
+
+    /**
+     * @return the id of {@code value}, or -1 if no doc has it
+     */
+    int find(String value) {
+        return values.find(value);
+    }
+
+    String term(int id) {
+        return values.term(id);
+    }
+
+    int docCount(int id) {
+        PostingList docs = postings[id];
+        return docs == null ? 1 : docs.size();
+    }
+
+    int firstDoc(int id) {
+        return firstDocs.get(id);
+    }
+
+    /**
+     * Docs of a value. Single-doc values get a fresh one-element list.
+     */
+    PostingList postings(int id) {
+        PostingList docs = postings[id];
+        if (docs == null) {
+            docs = new PostingList();
+            docs.add(firstDocs.get(id));
+        }
+        return docs;
+    }
+
+    int[] docs(int id) {
+        PostingList docs = postings[id];
+        return docs == null ? new int[] { firstDocs.get(id) } : docs.toArray();
+    }
+
+    /**
+     * The values in sorted order, see {@link SortedTerms}. Concurrent readers
+     * may each build it once, the result is the same.
+     */
+    SortedTerms sorted() {
+        SortedTerms view = sorted;
+        if (view == null || view.termCount() != termCount()) {
+            view = SortedTerms.of(values);
+            sorted = view;
+        }
+        return view;
+    }
+
+    /**
+     * The values that are numbers, see {@link NumericValues}. Concurrent
+     * readers may each build it once, the result is the same.
+     */
+    NumericValues numeric() {
+        NumericValues view = numeric;
+        if (view == null || view.termCount() != termCount()) {
+            view = NumericValues.of(this);
+            numeric = view;
+        }
+        return view;
+    }
+
+    long estimatedBytes() {
+        SortedTerms sortedView = sorted;
+        NumericValues numericView = numeric;
+        long bytes = values.estimatedBytes() + 16L + 4L * firstDocs.size() + 16L + 4L * postings.length
+                + (sortedView == null ? 0 : sortedView.estimatedBytes())
+                + (numericView == null ? 0 : numericView.estimatedBytes());
+        for (int id = 0; id < termCount(); id++) {
+            if (postings[id] != null) {
+                bytes += postings[id].estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private void addDoc(int id, int doc) {
+        ensureCapacity(id);
+        if (id == firstDocs.size()) {
+            firstDocs.add(doc);
+            return;
+        }
+
+        PostingList docs = postings[id];
+        if (docs == null) {
+            int first = firstDocs.get(id);
+            if (first == doc) {
+                return;
+            }
+            docs = new PostingList();
+            docs.add(first);
+            postings[id] = docs;
+        }
+        // a doc can carry the same flattened field twice ("a.b" and {"a":{"b"}})
+        if (docs.lastDoc() != doc) {
+            docs.add(doc);
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= postings.length) {
+            postings = Arrays.copyOf(postings, Math.max(id + 1, postings.length + (postings.length >> 1)));
+        }
+    }
+}
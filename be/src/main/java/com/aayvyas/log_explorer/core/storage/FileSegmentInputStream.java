@@ -2,26 +2,32 @@ package com.aayvyas.log_explorer.core.storage;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
 
+/**
+ * Stream over a {@link StoredLog} starting at a document offset. Each
+ * instance keeps its own position, so concurrent readers never share state.
+ */
 public class FileSegmentInputStream extends InputStream {
-    private final RandomAccessFile raf;
-    private long remaining;
+    private final StoredLog file;
+    private long position;
 
-    public FileSegmentInputStream(RandomAccessFile raf, long startOffset) throws IOException {
-        this.raf = raf;
-        this.raf.seek(startOffset);
+    public FileSegmentInputStream(StoredLog file, long startOffset) {
+        this.file = file;
+        this.position = startOffset;
     }
 
     @Override
     public int read() throws IOException {
-        // This is slow (byte by byte), but Jackson buffers internally so it's okay for
-        // now.
-        return raf.read();
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        return raf.read(b, off, len);
+        int read = file.read(position, b, off, len);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used for doc ordinals.
+ */
+public final class IntList {
+
+    // grown by copying, never changed below size; volatile so a reader of the
+    // values added before it started never sees a grown array without its contents
+    private volatile int[] values;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int initialCapacity) {
+        this.values = new int[Math.max(initialCapacity, 1)];
+    }
+
+    public void add(int value) {
+        int[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size + (size >> 1) + 1);
+            values = current;
+        }
+        current[size++] = value;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public long estimatedBytes() {
+        return 16L + 4L * values.length;
+    }
+}
@@ -1,20 +1,38 @@
 package com.aayvyas.log_explorer.core.storage;
 
 import java.io.FileReader;
-import java.io.RandomAccessFile;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import com.aayvyas.log_explorer.core.ingestion.IndexedLogMap;
 import com.aayvyas.log_explorer.core.ingestion.JsonFlattener;
-import com.aayvyas.log_explorer.model.LogEntry;
+import com.aayvyas.log_explorer.core.search.Aggregations;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.SearchCursor;
+import com.aayvyas.log_explorer.core.search.SearchPage;
+import com.aayvyas.log_explorer.core.search.SortOrder;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class LogSegment implements AutoCloseable {
@@ -22,162 +40,820 @@ public class LogSegment implements AutoCloseable {
     private final String fileId;
     private final Path filePath;
     private final ObjectMapper objectMapper;
+    private final SegmentOptions options;
     /**
-     * Not using normal {@link FileReader}, as it reads the whole file
-     * we are using RandomAccessFile to say , hey I want to go to 'some' byte and
-     * read it.
+     * Not using normal {@link FileReader}, as it reads the whole file.
+     * StoredLog lets us say "hey I want to go to 'some' byte and read it",
+     * from many threads at once without a lock, whether the file is stored
+     * raw ({@link SegmentFile}) or in compressed blocks.
      */
-    private RandomAccessFile randomAccessFile; //
+    private StoredLog storedLog;
 
-    private final Map<String, Map<String, List<Long>>> universalIndex = new ConcurrentHashMap<>();
+    /**
+     * fieldName -> { fieldValue -> sorted doc ordinals }. A doc ordinal is the
+     * position of the entry in {@link #allOffsets}. Values are dictionary
+     * encoded per field, see {@link FieldIndex}.
+     */
+    private final Map<String, FieldIndex> universalIndex = new ConcurrentHashMap<>();
+
+    /**
+     * fieldName -> bloom filters per block of docs, for the fields moved out
+     * of {@link #universalIndex} by {@link #applyIndexPolicy}. A field is in
+     * one of the two.
+     */
+    private final Map<String, BloomIndex> bloomIndex = new ConcurrentHashMap<>();
+
+    // caches the dotted names of nested fields across entries
+    private final JsonFlattener flattener = new JsonFlattener();
 
     // tracking all known fields for autocompletion
     private final Set<String> knownFields = ConcurrentHashMap.newKeySet();
 
-    private final List<Long> allOffsets = Collections.synchronizedList(new ArrayList<>());
+    // doc ordinal -> byte offset of the entry in the raw file
+    private final LongList allOffsets = new LongList();
+
+    // doc ordinal -> length in bytes of the entry in the raw file
+    private final IntList docLengths = new IntList();
+
+    // doc ordinal -> timestamp, for range filters and time-ordered output
+    private final TimeIndex timeIndex = new TimeIndex();
+
+    // trigrams of the configured text fields, for full-text search
+    private final TextIndex textIndex;
+
+    // fieldName -> value of every doc, see buildColumns(); empty until then
+    private volatile Map<String, FieldColumn> columns = Map.of();
+
+    // bumped whenever the index changes, so cached results can tell they are stale.
+    // Drawn from one counter, a segment replacing another never reuses its values
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+    private volatile long generation = GENERATIONS.incrementAndGet();
+
+    // index size and term count as of one generation, recomputed once it changes
+    private record IndexStats(long generation, long bytes, long terms) {
+    }
+
+    private volatile IndexStats indexStats;
+
+    // entries read back from storage by any segment, for hits and text verification alike
+    private static final LongAdder DOCS_READ = new LongAdder();
+    // fields moved to bloom filters by the index policy, by any segment
+    private static final LongAdder BLOOM_FIELDS = new LongAdder();
+
+    // entries appended to a searchable segment (see append()) take the write lock, planning
+    // and anything else walking the index structures the read lock. Hits being read lazily
+    // only look up values of docs that were there when they were planned
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     public LogSegment(String fileId, Path filePath, ObjectMapper objectMapper) {
+        this(fileId, filePath, objectMapper, SegmentOptions.defaults());
+    }
+
+    public LogSegment(String fileId, Path filePath, ObjectMapper objectMapper, SegmentOptions options) {
         this.fileId = fileId;
         this.filePath = filePath;
         this.objectMapper = objectMapper;
+        this.options = options;
+        this.textIndex = new TextIndex(options.textFields());
+    }
+
+    /**
+     * An empty segment over the same file and settings, for a worker to build a
+     * partial index that is later passed to {@link #appendIndex}.
+     */
+    public LogSegment newPartial() {
+        return new LogSegment(fileId, filePath, objectMapper, options.withoutBlooms());
     }
 
     public void init() throws Exception {
-        this.randomAccessFile = new RandomAccessFile(filePath.toFile(), "r");
+        this.storedLog = StoredLog.open(filePath);
     }
 
     @Override
     public void close() throws Exception {
-        if (randomAccessFile != null) {
-            randomAccessFile.close();
+        if (storedLog != null) {
+            storedLog.close();
         }
     }
 
     /**
-     * @param level
-     * @param timestamp
-     * @param byteOffset
+     * Entries must be added in file order, the doc ordinal is assigned here.
+     * Only while the segment is being built, nothing may search it yet; see
+     * {@link #append} for a segment that is already searched.
      */
-    public void addToIndex(Map<String, Object> rawLogMap, long byteOffset) {
+    public void addToIndex(Map<String, Object> rawLogMap, long byteOffset, int length) {
+        generation = GENERATIONS.incrementAndGet();
+        dropColumns();
+        int doc = allOffsets.size();
         allOffsets.add(byteOffset);
-        Map<String, String> flatFields = JsonFlattener.flatten(rawLogMap);
-
-        for (Map.Entry<String, String> entry : flatFields.entrySet()) {
-            String field = entry.getKey();
-            String value = entry.getValue();
+        docLengths.add(length);
+        timeIndex.add(rawLogMap);
+
+        flattener.forEachField(rawLogMap, (field, value) -> {
+            BloomIndex blooms = bloomIndex.get(field);
+            if (blooms != null) {
+                blooms.add(value, doc);
+                return;
+            }
 
-            // record that this field exists
-            knownFields.add(field);
+            FieldIndex fieldIndex = universalIndex.get(field);
+            if (fieldIndex == null) {
+                // record that this field exists
+                knownFields.add(field);
+                fieldIndex = new FieldIndex();
+                universalIndex.put(field, fieldIndex);
+            }
 
             // add to the inverted index
-            universalIndex
-                    .computeIfAbsent(field, k -> new ConcurrentHashMap<>())
-                    .computeIfAbsent(value, k -> new ArrayList<>())
-                    .add(byteOffset);
+            int terms = fieldIndex.termCount();
+            fieldIndex.add(value, doc);
+
+            if (textIndex.indexes(field)) {
+                textIndex.add(doc, field, value);
+            }
+
+            // checked once on reaching bloomMinTerms distinct values and each doubling of that
+            int minTerms = options.bloomMinTerms();
+            if (fieldIndex.termCount() > terms && minTerms > 0 && fieldIndex.termCount() % minTerms == 0
+                    && Integer.bitCount(fieldIndex.termCount() / minTerms) == 1) {
+                applyIndexPolicy(field, fieldIndex);
+            }
+        });
 
+    }
+
+    /**
+     * Index policy: a field with at least {@code bloomMinTerms} distinct
+     * values and one for every two docs so far holds ids or timestamps, nearly
+     * unique per entry. Its postings are mostly dictionary that only a point
+     * lookup would ever use, so it moves to a {@link BloomIndex}, which
+     * answers those at a fraction of the memory. Text fields keep their
+     * postings, text queries and verification go through the values; so do
+     * fields whose values are mostly numbers, for ranges and stats.
+     */
+    private void applyIndexPolicy(String field, FieldIndex values) {
+        int terms = values.termCount();
+        int docCount = allOffsets.size();
+        if (options.bloomMinTerms() == 0 || terms < options.bloomMinTerms() || terms * 2L < docCount
+                || textIndex.indexes(field) || mostlyNumbers(values)) {
+            return;
         }
 
+        BloomIndex blooms = new BloomIndex(options.bloomBlockDocs());
+        blooms.addAll(values, 0);
+        bloomIndex.put(field, blooms);
+        universalIndex.remove(field);
+        BLOOM_FIELDS.increment();
+    }
+
+    // judged on a sample spread over the value ids, i.e. over the order values first showed up in
+    private static boolean mostlyNumbers(FieldIndex values) {
+        int samples = Math.min(64, values.termCount());
+        int numbers = 0;
+        for (int i = 0; i < samples; i++) {
+            int id = (int) ((long) i * values.termCount() / samples);
+            if (!Double.isNaN(QueryNode.Range.parseNumber(values.term(id)))) {
+                numbers++;
+            }
+        }
+        return numbers * 2 > samples;
     }
 
-    private Map<String, Object> readLogAt(long offset) throws Exception {
+    /**
+     * Appends a partial index built by a worker over the entries that directly
+     * follow the ones already in this segment. Partials must be appended in
+     * file order so ordinals stay sorted.
+     */
+    public void appendIndex(LogSegment partial) {
+        generation = GENERATIONS.incrementAndGet();
+        dropColumns();
+        int docBase = allOffsets.size();
+        LongList partialOffsets = partial.allOffsets;
+        for (int i = 0; i < partialOffsets.size(); i++) {
+            allOffsets.add(partialOffsets.get(i));
+            docLengths.add(partial.docLengths.get(i));
+            timeIndex.add(partial.timeIndex.timeOf(i));
+        }
 
-        synchronized (randomAccessFile) {
-            randomAccessFile.seek(offset);
+        knownFields.addAll(partial.knownFields);
 
-            return objectMapper.readValue(new FileSegmentInputStream(randomAccessFile, offset), Map.class);
+        // partials keep every field's postings, the policy applies to the merged counts
+        for (Map.Entry<String, FieldIndex> field : partial.universalIndex.entrySet()) {
+            BloomIndex blooms = bloomIndex.get(field.getKey());
+            if (blooms != null) {
+                blooms.addAll(field.getValue(), docBase);
+                continue;
+            }
+            FieldIndex values = universalIndex.computeIfAbsent(field.getKey(), k -> new FieldIndex());
+            values.append(field.getValue(), docBase);
+            applyIndexPolicy(field.getKey(), values);
         }
 
+        textIndex.append(partial.textIndex, docBase);
     }
 
-    private List<Map<String, Object>> readLogsAt(List<Long> offsets) {
-        List<Map<String, Object>> results = new ArrayList<>();
-        Collections.sort(offsets);
-        for (Long offset : offsets) {
-            try {
-                results.add(readLogAt(offset));
-            } catch (Exception e) {
-                System.err.println("Read error at " + offset);
+    /**
+     * Indexes entries appended to the file since it was indexed, while the
+     * segment is being searched. Searches wait for the batch, hits already
+     * being read carry on; columns are dropped until rebuilt.
+     *
+     * @return the doc ordinal of the first entry
+     */
+    public int append(List<IndexedLogMap> entries) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            int first = allOffsets.size();
+            for (IndexedLogMap entry : entries) {
+                addToIndex(entry.logEntry(), entry.offset(), entry.length());
             }
+            return first;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Offset just past the last indexed entry, where indexing an appended-to
+     * file resumes.
+     */
+    public long indexedEnd() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            int last = allOffsets.size() - 1;
+            return last < 0 ? 0 : allOffsets.get(last) + docLengths.get(last);
+        } finally {
+            read.unlock();
         }
+    }
+
+    /**
+     * True if the entries sit in the stored file as they were uploaded, so
+     * offsets are file positions and appended entries can be indexed in place.
+     */
+    public boolean isRaw() {
+        return storedLog instanceof SegmentFile;
+    }
+
+    public int getDocCount() {
+        return allOffsets.size();
+    }
 
-        return results;
+    /**
+     * Uncompressed bytes of the stream this segment was indexed from, for
+     * re-indexing it. {@link #init()} must have been called.
+     */
+    public InputStream openContent() {
+        return new FileSegmentInputStream(storedLog, 0);
+    }
+
+    private Map<String, Object> readLogAt(int doc) throws Exception {
+        // exactly the entry's bytes, so a compressed file never inflates past its block
+        return objectMapper.readValue(readBytesAt(doc), Map.class);
+    }
 
+    /**
+     * Copies the stored bytes of one entry, with whitespace outside strings
+     * stripped so the result is a single NDJSON line. No parsing involved.
+     */
+    private byte[] readRawAt(int doc) throws IOException {
+        byte[] bytes = readBytesAt(doc);
+        int compacted = RawJson.compact(bytes, bytes.length);
+        return compacted == bytes.length ? bytes : Arrays.copyOf(bytes, compacted);
     }
 
-    private Map<String, Object> safeRead(Long offset) {
+    private byte[] readBytesAt(int doc) throws IOException {
+        DOCS_READ.increment();
+        int length = docLengths.get(doc);
+        byte[] bytes = new byte[length];
+        long position = allOffsets.get(doc);
+        int read = 0;
+        while (read < length) {
+            int n = storedLog.read(position + read, bytes, read, length - read);
+            if (n < 0) {
+                throw new IOException("Unexpected end of segment at " + (position + read));
+            }
+            read += n;
+        }
+        return bytes;
+    }
+
+    private byte[] safeReadRaw(int doc) {
         try {
-            return readLogAt(offset);
+            return readRawAt(doc);
         } catch (Exception e) {
+            System.err.println("Read error at doc " + doc);
             return null;
         }
     }
 
-    public Set<String> getIndexedFields() {
-        return Collections.unmodifiableSet(universalIndex.keySet());
+    private Map<String, Object> safeRead(int doc) {
+        try {
+            return readLogAt(doc);
+        } catch (Exception e) {
+            return null;
+        }
     }
 
-    public Stream<Map<String, Object>> search(Map<String, String> queryFilters) {
+    public String getFileId() {
+        return fileId;
+    }
+
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
 
-        if (queryFilters == null || queryFilters.isEmpty()) {
+    /**
+     * Rough heap taken by the indexes of this segment: postings, term
+     * dictionaries, bloom filters, trigrams, offsets and timestamps.
+     */
+    public long estimatedIndexBytes() {
+        return indexStats().bytes();
+    }
 
-            return allOffsets.stream().map(this::safeRead).filter(Objects::nonNull);
+    /**
+     * Distinct values over all fields with postings; those of the fields
+     * indexed by bloom filters aren't counted.
+     */
+    public long termCount() {
+        return indexStats().terms();
+    }
 
+    /**
+     * Entries read from storage by all segments since startup, whether they
+     * were returned or only read to verify a text match.
+     */
+    public static long docsRead() {
+        return DOCS_READ.sum();
+    }
+
+    /**
+     * Fields all segments moved from postings to bloom filters since startup,
+     * counted again when a file is re-indexed (not when a saved index is loaded).
+     */
+    public static long bloomFieldsIndexed() {
+        return BLOOM_FIELDS.sum();
+    }
+
+    // walks every field, so only once per generation however often it is scraped
+    private IndexStats indexStats() {
+        IndexStats stats = indexStats;
+        if (stats != null && stats.generation() == generation) {
+            return stats;
+        }
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            long bytes = allOffsets.estimatedBytes() + docLengths.estimatedBytes() + timeIndex.estimatedBytes()
+                    + textIndex.estimatedBytes();
+            long terms = 0;
+            for (FieldIndex field : universalIndex.values()) {
+                bytes += field.estimatedBytes();
+                terms += field.termCount();
+            }
+            for (BloomIndex blooms : bloomIndex.values()) {
+                bytes += blooms.estimatedBytes();
+            }
+            for (FieldColumn column : columns.values()) {
+                bytes += column.estimatedBytes();
+            }
+            stats = new IndexStats(generation, bytes, terms);
+        } finally {
+            read.unlock();
+        }
+        indexStats = stats;
+        return stats;
+    }
+
+    /**
+     * Builds a {@link FieldColumn} of every field with postings, so text
+     * candidates are verified and filtered facets counted from the columns
+     * instead of by reading and parsing entries. Call once the segment is
+     * fully indexed; columns aren't persisted, and indexing more entries
+     * drops them.
+     */
+    public void buildColumns() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            int docCount = allOffsets.size();
+            Map<String, FieldColumn> built = new HashMap<>();
+            universalIndex.forEach((field, values) -> built.put(field, new FieldColumn(values, docCount)));
+            columns = built;
+            indexStats = null;
+        } finally {
+            read.unlock();
         }
+    }
 
-        List<Long> resultOffsets = null;
+    public boolean hasColumns() {
+        return !columns.isEmpty();
+    }
 
-        System.out.println("--- SEARCH DEBUG ---");
-        System.out.println("Query: " + queryFilters);
+    private void dropColumns() {
+        if (!columns.isEmpty()) {
+            columns = Map.of();
+            indexStats = null;
+        }
+    }
 
-        for (Map.Entry<String, String> filter : queryFilters.entrySet()) {
-            String field = filter.getKey();
-            String value = filter.getValue();
+    /**
+     * Persists the index next to the raw file, see {@link SegmentIndexFile}.
+     */
+    public void saveIndex(Path indexPath) throws IOException {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            SegmentIndexFile.write(this, indexPath);
+        } finally {
+            read.unlock();
+        }
+    }
 
-            // 1. Check if Field Exists
-            Map<String, List<Long>> valueMap = universalIndex.get(field);
-            if (valueMap == null) {
-                System.out.println("Field NOT FOUND in Index: " + field);
-                System.out.println("Known Fields: " + universalIndex.keySet());
-                return Stream.empty(); // If one field is missing, AND fails.
+    /**
+     * @return true if the on-disk index was usable, false if the caller has to
+     *         re-index the raw file.
+     */
+    public boolean loadIndex(Path indexPath) {
+        generation = GENERATIONS.incrementAndGet();
+        dropColumns();
+        return SegmentIndexFile.read(this, indexPath);
+    }
+
+    // accessors for SegmentIndexFile
+
+    Set<String> knownFields() {
+        return knownFields;
+    }
+
+    LongList allOffsets() {
+        return allOffsets;
+    }
+
+    IntList docLengths() {
+        return docLengths;
+    }
+
+    TimeIndex timeIndex() {
+        return timeIndex;
+    }
+
+    TextIndex textIndex() {
+        return textIndex;
+    }
+
+    SegmentOptions options() {
+        return options;
+    }
+
+    Map<String, FieldIndex> universalIndex() {
+        return universalIndex;
+    }
+
+    Map<String, BloomIndex> bloomIndex() {
+        return bloomIndex;
+    }
+
+    void putPostings(String field, String value, PostingList postings) {
+        universalIndex
+                .computeIfAbsent(field, k -> new FieldIndex())
+                .put(value, postings);
+    }
+
+    void clearIndex() {
+        generation = GENERATIONS.incrementAndGet();
+        dropColumns();
+        universalIndex.clear();
+        bloomIndex.clear();
+        knownFields.clear();
+        allOffsets.clear();
+        docLengths.clear();
+        timeIndex.clear();
+        textIndex.clear();
+    }
+
+    public Set<String> getIndexedFields() {
+        return Collections.unmodifiableSet(knownFields);
+    }
+
+    /**
+     * Up to {@code size} values of {@code field} starting with
+     * {@code prefix}, those in the most docs first, to autocomplete a query.
+     * Only the values with that prefix are looked at, see
+     * {@link SortedTerms}. Fields indexed by bloom filters have none to
+     * suggest.
+     */
+    public List<Aggregations.ValueCount> suggestValues(String field, String prefix, int size) {
+        return reading(() -> {
+            FieldIndex values = universalIndex.get(field);
+            if (values == null || size <= 0) {
+                return List.of();
             }
+            SortedTerms sorted = values.sorted();
+            int start = sorted.start(prefix);
+            int end = sorted.end(prefix);
+
+            // (doc count, reversed position) packed in a long, so the biggest come last and ties go by value
+            long[] ranked = new long[end - start];
+            for (int position = start; position < end; position++) {
+                int id = sorted.id(position);
+                ranked[position - start] = (long) values.docCount(id) << 32 | (Integer.MAX_VALUE - position);
+            }
+            Arrays.sort(ranked);
 
-            // 2. Check if Value Exists
-            List<Long> offsetsForCondition = valueMap.get(value);
-            if (offsetsForCondition == null || offsetsForCondition.isEmpty()) {
-                System.out.println("Value NOT FOUND for field " + field + ": " + value);
-                System.out.println("Known Values: " + valueMap.keySet());
-                return Stream.empty(); // If one value missing, AND fails.
+            List<Aggregations.ValueCount> suggestions = new ArrayList<>(Math.min(size, ranked.length));
+            for (int i = ranked.length - 1; i >= 0 && suggestions.size() < size; i--) {
+                int id = sorted.id(Integer.MAX_VALUE - (int) ranked[i]);
+                suggestions.add(new Aggregations.ValueCount(values.term(id), ranked[i] >>> 32));
             }
+            return suggestions;
+        });
+    }
 
-            System.out.println("Found " + offsetsForCondition.size() + " matches for " + field + "=" + value);
+    public Stream<Map<String, Object>> search(Map<String, String> queryFilters) {
+        QueryNode query = QueryNode.fromFilters(queryFilters);
+        return search(query, plan(query), null, null, SortOrder.OLDEST, null);
+    }
 
-            // 3. Intersection
-            if (resultOffsets == null) {
-                resultOffsets = new ArrayList<>(offsetsForCondition);
-            } else {
-                resultOffsets.retainAll(offsetsForCondition);
-                if (resultOffsets.isEmpty()) {
-                    System.out.println("Intersection resulted in empty set.");
-                    return Stream.empty();
-                }
+    /**
+     * Evaluates {@code query} against the indexes, see {@link QueryPlanner}.
+     * The result only depends on the query and {@link #getGeneration()}, so
+     * callers may cache it.
+     *
+     * @return null for a query that matches every doc
+     */
+    public DocSet plan(QueryNode query) {
+        return QueryNode.isMatchAll(query) ? null
+                : reading(() -> new QueryPlanner(universalIndex, bloomIndex, textIndex, allOffsets.size(),
+                        this::entryMatches).evaluate(query));
+    }
+
+    /**
+     * Like {@link #plan}, but text matches are resolved against the distinct
+     * field values rather than trigram candidates, so the result is always
+     * exact. Only matches on a field indexed by bloom filters read entries,
+     * see {@link QueryPlanner}.
+     */
+    public DocSet planExact(QueryNode query) {
+        return QueryNode.isMatchAll(query) ? null
+                : reading(() -> new QueryPlanner(universalIndex, bloomIndex, textIndex, allOffsets.size(),
+                        this::entryMatches, true).evaluate(query));
+    }
+
+    /**
+     * True if {@code entry}, parsed but not indexed, matches the query; for
+     * checking entries as they are appended.
+     */
+    public boolean matches(QueryNode query, Map<String, Object> entry) {
+        return query.matches(JsonFlattener.flatten(entry), textIndex.fields());
+    }
+
+    private <T> T reading(Supplier<T> body) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return body.get();
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * @param query   boolean query, see {@link com.aayvyas.log_explorer.core.search.QueryParser}
+     * @param planned {@link #plan(QueryNode)} of the query
+     * @param from    inclusive lower bound on the entry timestamp, or null
+     * @param to      exclusive upper bound on the entry timestamp, or null
+     * @param after   only hits that sort after this cursor, or null
+     */
+    public Stream<Map<String, Object>> search(QueryNode query, DocSet planned, Instant from, Instant to,
+            SortOrder order, SearchCursor after) {
+        return matchingDocs(query, planned, from, to, order, after).mapToObj(this::safeRead)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Same matches as {@link #search}, but each hit is the original bytes of the
+     * entry compacted to one line, skipping the parse / re-serialize round trip.
+     */
+    public Stream<byte[]> searchRaw(QueryNode query, DocSet planned, Instant from, Instant to, SortOrder order,
+            SearchCursor after) {
+        return matchingDocs(query, planned, from, to, order, after).mapToObj(this::safeReadRaw)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * At most {@code limit} hits after {@code after}. Only the docs of the page
+     * are read, so the cost of a page does not grow with how deep it is.
+     */
+    public SearchPage<Map<String, Object>> searchPage(QueryNode query, DocSet planned, Instant from, Instant to,
+            SortOrder order, SearchCursor after, int limit) {
+        return page(matchingDocs(query, planned, from, to, order, after), limit, this::safeRead);
+    }
+
+    public SearchPage<byte[]> searchRawPage(QueryNode query, DocSet planned, Instant from, Instant to,
+            SortOrder order, SearchCursor after, int limit) {
+        return page(matchingDocs(query, planned, from, to, order, after), limit, this::safeReadRaw);
+    }
+
+    /**
+     * The docs {@link #searchRaw} would return, in the same order but not yet
+     * read, for merging with the hits of other segments. Read them with
+     * {@link #readRaw}; {@link #timeOf} is their sort key.
+     */
+    public IntStream matches(QueryNode query, DocSet planned, Instant from, Instant to, SortOrder order,
+            SearchCursor after) {
+        return matchingDocs(query, planned, from, to, order, after);
+    }
+
+    public long timeOf(int doc) {
+        return timeIndex.timeOf(doc);
+    }
+
+    /**
+     * The entry's bytes compacted to one line, null if it can't be read.
+     */
+    public byte[] readRaw(int doc) {
+        return safeReadRaw(doc);
+    }
+
+    /**
+     * The entry parsed, null if it can't be read.
+     */
+    public Map<String, Object> readLog(int doc) {
+        return safeRead(doc);
+    }
+
+    private <T> SearchPage<T> page(IntStream docs, int limit, IntFunction<T> reader) {
+        // one extra doc tells whether there is a next page
+        int[] page = docs.limit(limit + 1L).toArray();
+        int size = Math.min(page.length, limit);
+        SearchCursor next = page.length > limit
+                ? new SearchCursor(timeIndex.timeOf(page[size - 1]), page[size - 1])
+                : null;
+        return new SearchPage<>(Arrays.stream(page, 0, size).mapToObj(reader).filter(Objects::nonNull), next);
+    }
+
+    /**
+     * The plan of the query is put in order: the matches come back in (timestamp, doc) order, which is file order for
+     * time-ordered files. Those only need the plan's doc array cut at the
+     * range and cursor bounds. Otherwise small match sets are sorted by time
+     * and large ones are picked off the time-sorted slice, so deep pages never
+     * sort more than the matches. Text matches answered from trigrams are
+     * verified against the document last, after everything else has thinned
+     * them out, and only as far as the stream is consumed.
+     */
+    private IntStream matchingDocs(QueryNode query, DocSet planned, Instant from, Instant to, SortOrder order,
+            SearchCursor after) {
+        // everything up to the returned stream walks the index, the stream itself only reads docs
+        return reading(() -> orderedMatches(query, planned, from, to, order, after));
+    }
+
+    private IntStream orderedMatches(QueryNode query, DocSet planned, Instant from, Instant to, SortOrder order,
+            SearchCursor after) {
+        boolean newest = order == SortOrder.NEWEST;
+
+        // without a range, docs that have no timestamp are included too
+        long fromMillis = from != null ? from.toEpochMilli() : to != null ? Long.MIN_VALUE + 1 : Long.MIN_VALUE;
+        long toMillis = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+        TimeIndex.Slice slice = timeIndex.slice(fromMillis, toMillis);
+        if (after != null) {
+            slice = newest
+                    ? timeIndex.before(slice, after.time(), after.doc())
+                    : timeIndex.after(slice, after.time(), after.doc());
+        }
+
+        if (planned == null) {
+            return newest ? slice.descending() : slice.stream();
+        }
+
+        int[] docs = planned.docs();
+        IntStream ordered;
+        if (slice.docs() == null) {
+            // the slice is a range of ordinals, and so is the part of the plan we want
+            int lo = lowerBound(docs, slice.start());
+            int hi = lowerBound(docs, slice.end());
+            ordered = newest ? IntStream.range(0, hi - lo).map(i -> docs[hi - 1 - i]) : Arrays.stream(docs, lo, hi);
+        } else if (docs.length * 8L < slice.size()) {
+            int[] sorted = timeIndex.sortByTime(docs);
+            ordered = (newest ? IntStream.range(0, sorted.length).map(i -> sorted[sorted.length - 1 - i])
+                    : Arrays.stream(sorted)).filter(doc -> withinSlice(doc, fromMillis, toMillis, after, newest));
+        } else {
+            BitSet members = new BitSet(allOffsets.size());
+            for (int doc : docs) {
+                members.set(doc);
             }
+            ordered = (newest ? slice.descending() : slice.stream()).filter(members::get);
+        }
+        return verified(ordered, planned, query);
+    }
+
+    /**
+     * Facet counts for {@code fields} (top {@code size} values each), numeric
+     * stats for {@code statsFields} and a time histogram over the docs
+     * matching the query, computed from the indexes only, see
+     * {@link Aggregator}. No document is read; fields indexed by bloom
+     * filters get no facets or stats.
+     *
+     * @param planned     {@link #planExact(QueryNode)} of the query
+     * @param percentiles percentiles reported for each of {@code statsFields}
+     * @param interval    histogram bucket width, or null to pick one
+     */
+    public Aggregations aggregate(DocSet planned, Instant from, Instant to, List<String> fields, int size,
+            List<String> statsFields, List<Double> percentiles, Duration interval) {
+        return reading(() -> aggregateIndexed(planned, from, to, fields, size, statsFields, percentiles, interval));
+    }
+
+    private Aggregations aggregateIndexed(DocSet planned, Instant from, Instant to, List<String> fields, int size,
+            List<String> statsFields, List<Double> percentiles, Duration interval) {
+        Aggregator aggregator = new Aggregator(universalIndex, columns, timeIndex, allOffsets.size(),
+                exactMatches(planned, from, to));
+
+        Map<String, List<Aggregations.ValueCount>> facets = new LinkedHashMap<>();
+        for (String field : fields) {
+            facets.put(field, aggregator.topValues(field, size));
+        }
+        Map<String, Aggregations.NumericStats> stats = new LinkedHashMap<>();
+        for (String field : statsFields) {
+            stats.put(field, aggregator.numericStats(field, percentiles));
+        }
+        return new Aggregations(aggregator.total(), facets, stats,
+                aggregator.histogram(interval == null ? null : interval.toMillis()));
+    }
+
+    // sorted docs matching query and range, null meaning every doc
+    private int[] exactMatches(DocSet planned, Instant from, Instant to) {
+        int[] docs = planned == null ? null : planned.docs();
+        if (from == null && to == null) {
+            return docs;
         }
 
-        if (resultOffsets == null || resultOffsets.isEmpty()) {
-            System.out.println("Final Result: 0 logs.");
-            return Stream.empty();
+        long fromMillis = from == null ? Long.MIN_VALUE + 1 : from.toEpochMilli();
+        long toMillis = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+        TimeIndex.Slice slice = timeIndex.slice(fromMillis, toMillis);
+        if (slice.docs() == null) {
+            return docs == null ? IntStream.range(slice.start(), slice.end()).toArray()
+                    : Arrays.copyOfRange(docs, lowerBound(docs, slice.start()), lowerBound(docs, slice.end()));
+        }
+        if (docs == null) {
+            int[] inRange = slice.stream().toArray();
+            Arrays.sort(inRange);
+            return inRange;
         }
+        return Arrays.stream(docs).filter(doc -> timeIndex.inRange(doc, fromMillis, toMillis)).toArray();
+    }
 
-        System.out.println("Final Result: " + resultOffsets.size() + " logs.");
+    // same bounds the slice was cut with, checked on a single doc
+    private boolean withinSlice(int doc, long fromMillis, long toMillis, SearchCursor after, boolean newest) {
+        long time = timeIndex.timeOf(doc);
+        if (time < fromMillis || time >= toMillis) {
+            return false;
+        }
+        if (after == null) {
+            return true;
+        }
+        int cmp = time != after.time() ? Long.compare(time, after.time()) : Integer.compare(doc, after.doc());
+        return newest ? cmp < 0 : cmp > 0;
+    }
 
-        return resultOffsets.stream().map(offset -> {
-            try {
-                return readLogAt(offset);
-            } catch (Exception e) {
-                e.printStackTrace();
-                return null;
+    private static int lowerBound(int[] docs, int key) {
+        int lo = 0;
+        int hi = docs.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (docs[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
             }
-        }).filter(Objects::nonNull);
+        }
+        return lo;
+    }
+
+    private IntStream verified(IntStream docs, DocSet planned, QueryNode query) {
+        if (planned.exact()) {
+            return docs;
+        }
+        Map<String, FieldColumn> columns = this.columns;
+        if (columns.isEmpty()) {
+            return docs.filter(doc -> entryMatches(doc, query));
+        }
+        // the stream is walked by one thread at a time, one row can follow it
+        ColumnRow row = new ColumnRow(columns, bloomIndex.keySet());
+        return docs.filter(doc -> {
+            row.moveTo(doc);
+            boolean matches = query.matches(row, textIndex.fields());
+            return row.isExact() ? matches : entryMatches(doc, query);
+        });
+    }
+
+    private boolean entryMatches(int doc, QueryNode query) {
+        Map<String, Object> log = safeRead(doc);
+        return log != null && query.matches(JsonFlattener.flatten(log), textIndex.fields());
     }
 
 }
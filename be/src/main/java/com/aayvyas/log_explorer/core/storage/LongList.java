@@ -0,0 +1,59 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive longs. Avoids boxing every byte offset into a
+ * {@link Long}, which costs ~20 bytes per entry in an ArrayList.
+ */
+public final class LongList {
+
+    // grown by copying, never changed below size; volatile so a reader of the
+    // values added before it started never sees a grown array without its contents
+    private volatile long[] values;
+    private int size;
+
+    public LongList() {
+        this(16);
+    }
+
+    public LongList(int initialCapacity) {
+        this.values = new long[Math.max(initialCapacity, 1)];
+    }
+
+    public void add(long value) {
+        long[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size + (size >> 1) + 1);
+            values = current;
+        }
+        current[size++] = value;
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public long estimatedBytes() {
+        return 16L + 8L * values.length;
+    }
+}
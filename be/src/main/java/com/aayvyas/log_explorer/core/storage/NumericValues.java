@@ -0,0 +1,140 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.Arrays;
+
+import com.aayvyas.log_explorer.core.search.QueryNode;
+
+/**
+ * The values of one field that are numbers, in numeric order, each with its
+ * value id in the field's {@link FieldIndex}.
+ *
+ * Fields are indexed as text, so this is derived from the term dictionary
+ * rather than kept per doc: one entry per distinct value, 12 bytes each. A
+ * numeric range is a binary search for its ends plus the postings of the
+ * ids in between, and since every id keeps its docs, the same view gives
+ * exact percentiles of the matches. Values that aren't numbers are left
+ * out, a field with none gets an empty view.
+ */
+final class NumericValues {
+
+    // size of the dictionary this was built from, more values mean it is stale
+    private final int termCount;
+    private final double[] values;
+    private final int[] ids;
+
+    private NumericValues(int termCount, double[] values, int[] ids) {
+        this.termCount = termCount;
+        this.values = values;
+        this.ids = ids;
+    }
+
+    static NumericValues of(FieldIndex field) {
+        int termCount = field.termCount();
+        double[] parsed = new double[termCount];
+        int[] numeric = new int[termCount];
+        int n = 0;
+        for (int id = 0; id < termCount; id++) {
+            double value = QueryNode.Range.parseNumber(field.term(id));
+            if (!Double.isNaN(value)) {
+                parsed[id] = value;
+                numeric[n++] = id;
+            }
+        }
+
+        int[] ids = Arrays.copyOf(numeric, n);
+        mergeSort(ids, new int[n], parsed, 0, n);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = parsed[ids[i]];
+        }
+        return new NumericValues(termCount, values, ids);
+    }
+
+    int termCount() {
+        return termCount;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    double value(int position) {
+        return values[position];
+    }
+
+    int id(int position) {
+        return ids[position];
+    }
+
+    /**
+     * First position with a value within {@code range}.
+     */
+    int start(QueryNode.Range range) {
+        return range.fromInclusive() ? firstAtLeast(range.from()) : firstAbove(range.from());
+    }
+
+    /**
+     * Position past the last value within {@code range}, never before
+     * {@link #start}.
+     */
+    int end(QueryNode.Range range) {
+        int end = range.toInclusive() ? firstAbove(range.to()) : firstAtLeast(range.to());
+        return Math.max(start(range), end);
+    }
+
+    private int firstAtLeast(double bound) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < bound) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int firstAbove(double bound) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= bound) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    long estimatedBytes() {
+        return 48L + 12L * ids.length;
+    }
+
+    // ids by their value; "5" and "5.0" are equal, the lower id goes first
+    private static void mergeSort(int[] ids, int[] scratch, double[] values, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(ids, scratch, values, from, mid);
+        mergeSort(ids, scratch, values, mid, to);
+        if (values[ids[mid - 1]] <= values[ids[mid]]) {
+            return;
+        }
+
+        System.arraycopy(ids, from, scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && values[scratch[left]] <= values[scratch[right]])) {
+                ids[i] = scratch[left++];
+            } else {
+                ids[i] = scratch[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sorted, compressed list of doc ordinals for one field value.
+ *
+ * Ordinals are appended in increasing order during ingestion and stored as
+ * varint-encoded deltas, so a common value like level=INFO costs 1-2 bytes
+ * per occurrence instead of a boxed Long in an ArrayList.
+ *
+ * Every {@link #BLOCK_SIZE} docs we record a skip entry (first doc of the
+ * block, byte position of the rest of the block). A {@link Cursor} can then
+ * jump straight to the block that may contain a target doc, which is what
+ * makes smallest-list-first intersection cheap against huge lists.
+ */
+public final class PostingList {
+
+    static final int BLOCK_SIZE = 128;
+
+    private byte[] data = new byte[8];
+    private int dataLength;
+
+    private int[] skipDocs = new int[1];
+    private int[] skipPositions = new int[1];
+    private int blockCount;
+
+    private int size;
+    private int lastDoc = -1;
+
+    public void add(int doc) {
+        if (doc <= lastDoc) {
+            throw new IllegalArgumentException("Doc ordinals must be increasing: " + doc + " after " + lastDoc);
+        }
+
+        if (size % BLOCK_SIZE == 0) {
+            // first doc of a block lives in the skip table only
+            if (blockCount == skipDocs.length) {
+                skipDocs = Arrays.copyOf(skipDocs, blockCount * 2);
+                skipPositions = Arrays.copyOf(skipPositions, blockCount * 2);
+            }
+            skipDocs[blockCount] = doc;
+            skipPositions[blockCount] = dataLength;
+            blockCount++;
+        } else {
+            writeVInt(doc - lastDoc);
+        }
+
+        lastDoc = doc;
+        size++;
+    }
+
+    /**
+     * Appends every doc of {@code other} shifted by {@code docBase}. Used to
+     * merge partial indexes built on separate threads, in file order.
+     */
+    public void addAll(PostingList other, int docBase) {
+        Cursor cursor = other.cursor();
+        while (cursor.next()) {
+            add(cursor.doc() + docBase);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int lastDoc() {
+        return lastDoc;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public int[] toArray() {
+        int[] docs = new int[size];
+        Cursor cursor = cursor();
+        int i = 0;
+        while (cursor.next()) {
+            docs[i++] = cursor.doc();
+        }
+        return docs;
+    }
+
+    public long estimatedBytes() {
+        return 48L + data.length + 8L * skipDocs.length;
+    }
+
+    private void writeVInt(int value) {
+        if (dataLength + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[dataLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[dataLength++] = (byte) value;
+    }
+
+    // persistence, see SegmentIndexFile
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(lastDoc);
+        out.writeInt(blockCount);
+        for (int b = 0; b < blockCount; b++) {
+            out.writeInt(skipDocs[b]);
+            out.writeInt(skipPositions[b]);
+        }
+        out.writeInt(dataLength);
+        out.write(data, 0, dataLength);
+    }
+
+    static PostingList readFrom(ByteBuffer in) {
+        PostingList postings = new PostingList();
+        postings.size = in.getInt();
+        postings.lastDoc = in.getInt();
+        postings.blockCount = in.getInt();
+        postings.skipDocs = new int[Math.max(postings.blockCount, 1)];
+        postings.skipPositions = new int[Math.max(postings.blockCount, 1)];
+        for (int b = 0; b < postings.blockCount; b++) {
+            postings.skipDocs[b] = in.getInt();
+            postings.skipPositions[b] = in.getInt();
+        }
+        postings.dataLength = in.getInt();
+        postings.data = new byte[Math.max(postings.dataLength, 1)];
+        in.get(postings.data, 0, postings.dataLength);
+        return postings;
+    }
+
+    /**
+     * Forward-only iterator. Call {@link #next()} or {@link #advance(int)}
+     * before reading {@link #doc()}.
+     */
+    public final class Cursor {
+        private int index = -1;
+        private int doc = -1;
+        private int position;
+
+        public int doc() {
+            return doc;
+        }
+
+        public boolean next() {
+            if (++index >= size) {
+                doc = Integer.MAX_VALUE;
+                return false;
+            }
+            if (index % BLOCK_SIZE == 0) {
+                int block = index / BLOCK_SIZE;
+                doc = skipDocs[block];
+                position = skipPositions[block];
+            } else {
+                doc += readVInt();
+            }
+            return true;
+        }
+
+        /**
+         * Moves to the first doc &gt;= target.
+         *
+         * @return false once the list is exhausted
+         */
+        public boolean advance(int target) {
+            if (doc >= target && index >= 0) {
+                return index < size;
+            }
+
+            // jump over whole blocks using the skip table
+            int currentBlock = Math.max(index, 0) / BLOCK_SIZE;
+            int block = findBlock(target, currentBlock);
+            if (block > currentBlock || index < 0) {
+                index = block * BLOCK_SIZE - 1;
+                doc = -1;
+            }
+
+            while (next()) {
+                if (doc >= target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Last block whose first doc is &lt;= target, galloping from the
+         * current block before binary searching.
+         */
+        private int findBlock(int target, int from) {
+            int lo = from;
+            int step = 1;
+            int hi = from + step;
+            while (hi < blockCount && skipDocs[hi] <= target) {
+                lo = hi;
+                step <<= 1;
+                hi = from + step;
+            }
+            hi = Math.min(hi, blockCount);
+
+            while (lo + 1 < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (skipDocs[mid] <= target) {
+                    lo = mid;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private int readVInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
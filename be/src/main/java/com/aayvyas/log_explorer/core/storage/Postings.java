@@ -0,0 +1,145 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Set operations over {@link PostingList}s. Results are plain sorted int[]
+ * of doc ordinals.
+ */
+public final class Postings {
+
+    private Postings() {
+    }
+
+    /**
+     * AND of all lists. The smallest list leads and every other list is only
+     * advanced (via its skip table) to the lead's current doc, so the cost is
+     * driven by the rarest term rather than the most common one.
+     */
+    public static int[] intersect(List<PostingList> lists) {
+        if (lists.isEmpty()) {
+            return new int[0];
+        }
+
+        PostingList[] sorted = lists.toArray(new PostingList[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(PostingList::size));
+        if (sorted[0].isEmpty()) {
+            return new int[0];
+        }
+        if (sorted.length == 1) {
+            return sorted[0].toArray();
+        }
+
+        PostingList.Cursor[] cursors = new PostingList.Cursor[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            cursors[i] = sorted[i].cursor();
+        }
+
+        IntList out = new IntList(sorted[0].size());
+        PostingList.Cursor lead = cursors[0];
+        if (!lead.next()) {
+            return new int[0];
+        }
+        int doc = lead.doc();
+
+        while (true) {
+            boolean match = true;
+            for (int i = 1; i < cursors.length; i++) {
+                PostingList.Cursor other = cursors[i];
+                if (!other.advance(doc)) {
+                    return out.toArray();
+                }
+                if (other.doc() > doc) {
+                    // lead jumps forward to the first candidate the other list allows
+                    if (!lead.advance(other.doc())) {
+                        return out.toArray();
+                    }
+                    doc = lead.doc();
+                    match = false;
+                    break;
+                }
+            }
+
+            if (match) {
+                out.add(doc);
+                if (!lead.next()) {
+                    return out.toArray();
+                }
+                doc = lead.doc();
+            }
+        }
+    }
+
+    /**
+     * OR of already sorted doc arrays.
+     */
+    public static int[] union(List<int[]> sets) {
+        if (sets.isEmpty()) {
+            return new int[0];
+        }
+        if (sets.size() > 4) {
+            // many small lists (e.g. every distinct value of a field): a bitset beats
+            // repeated pairwise merges
+            BitSet bits = new BitSet();
+            for (int[] set : sets) {
+                for (int doc : set) {
+                    bits.set(doc);
+                }
+            }
+            return bits.stream().toArray();
+        }
+        int[] result = sets.get(0);
+        for (int i = 1; i < sets.size(); i++) {
+            result = union(result, sets.get(i));
+        }
+        return result;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                out[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            out[n++] = a[i++];
+        }
+        while (j < b.length) {
+            out[n++] = b[j++];
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * AND of two already sorted doc arrays.
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
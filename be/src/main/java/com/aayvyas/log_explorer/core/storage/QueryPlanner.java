@@ -0,0 +1,337 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.TextQuery;
+
+/**
+ * Evaluates a {@link QueryNode} against the indexes of one segment.
+ *
+ * Exact field terms of an AND go through the leapfrog intersection together,
+ * so the rarest one drives the cost. Remaining children are evaluated
+ * cheapest first against the shrinking result, and negated children are
+ * subtracted last. Trigram lookups only narrow text matches down to
+ * candidates, so their results are marked inexact and the caller has to
+ * verify them against the documents. A field indexed by bloom filters only
+ * narrows a lookup down to the blocks that may hold the value; the few docs
+ * of those are verified right away, so the lookup stays exact and can be
+ * negated. Any other match on such a field is a scan of every doc.
+ */
+final class QueryPlanner {
+
+    /**
+     * Checks one doc against a query by its stored entry.
+     */
+    interface Verifier {
+        boolean matches(int doc, QueryNode query);
+    }
+
+    private final Map<String, FieldIndex> universalIndex;
+    private final Map<String, BloomIndex> bloomIndex;
+    private final TextIndex textIndex;
+    private final int docCount;
+    private final Verifier verifier;
+    private final boolean exact;
+
+    QueryPlanner(Map<String, FieldIndex> universalIndex, Map<String, BloomIndex> bloomIndex, TextIndex textIndex,
+            int docCount, Verifier verifier) {
+        this(universalIndex, bloomIndex, textIndex, docCount, verifier, false);
+    }
+
+    /**
+     * @param verifier checks the candidates of fields indexed by bloom filters
+     * @param exact    answer text matches by scanning the distinct values
+     *                 instead of trigram candidates, and verify scans of
+     *                 bloom fields, so every result is exact and nothing is
+     *                 left for the caller to verify
+     */
+    QueryPlanner(Map<String, FieldIndex> universalIndex, Map<String, BloomIndex> bloomIndex, TextIndex textIndex,
+            int docCount, Verifier verifier, boolean exact) {
+        this.universalIndex = universalIndex;
+        this.bloomIndex = bloomIndex;
+        this.textIndex = textIndex;
+        this.docCount = docCount;
+        this.verifier = verifier;
+        this.exact = exact;
+    }
+
+    DocSet evaluate(QueryNode node) {
+        return switch (node) {
+            case QueryNode.FieldMatch match -> fieldMatch(match);
+            case QueryNode.RegexMatch match -> regexMatch(match);
+            case QueryNode.Range range -> range(range);
+            case QueryNode.TextMatch match -> textMatch(match);
+            case QueryNode.And and -> and(and.children());
+            case QueryNode.Or or -> or(or.children());
+            case QueryNode.Not not -> not(not.child());
+        };
+    }
+
+    private DocSet fieldMatch(QueryNode.FieldMatch match) {
+        FieldIndex values = universalIndex.get(match.field());
+        if (values == null) {
+            BloomIndex blooms = bloomIndex.get(match.field());
+            if (blooms != null) {
+                return match.wildcard() ? bloomScan(match) : verify(match, blooms.candidates(match.value(), docCount));
+            }
+            return DocSet.EMPTY;
+        }
+        if (!match.wildcard()) {
+            int id = values.find(match.value());
+            return id < 0 ? DocSet.EMPTY : new DocSet(values.docs(id), true);
+        }
+
+        String prefix = match.literalPrefix();
+        if (match.value().equals(prefix + "*")) {
+            return matchingTerms(values, prefix, term -> true);
+        }
+        return matchingTerms(values, prefix, term -> match.pattern().matcher(term).matches());
+    }
+
+    private DocSet regexMatch(QueryNode.RegexMatch match) {
+        FieldIndex values = universalIndex.get(match.field());
+        if (values == null) {
+            return bloomIndex.containsKey(match.field()) ? bloomScan(match) : DocSet.EMPTY;
+        }
+        return matchingTerms(values, match.literalPrefix(), term -> match.pattern().matcher(term).find());
+    }
+
+    /**
+     * Union of the postings of the values starting with {@code prefix} that
+     * pass {@code test}. Those are one run of the sorted values, only that
+     * run is decoded and tested; without a prefix every value is.
+     */
+    private static DocSet matchingTerms(FieldIndex values, String prefix, Predicate<String> test) {
+        List<int[]> matches = new ArrayList<>();
+        if (prefix.isEmpty()) {
+            for (int id = 0; id < values.termCount(); id++) {
+                if (test.test(values.term(id))) {
+                    matches.add(values.docs(id));
+                }
+            }
+        } else {
+            SortedTerms sorted = values.sorted();
+            for (int position = sorted.start(prefix), end = sorted.end(prefix); position < end; position++) {
+                int id = sorted.id(position);
+                if (test.test(values.term(id))) {
+                    matches.add(values.docs(id));
+                }
+            }
+        }
+        return new DocSet(Postings.union(matches), true);
+    }
+
+    // the values in range are a contiguous run of the numeric view, their postings are the answer
+    private DocSet range(QueryNode.Range range) {
+        FieldIndex values = universalIndex.get(range.field());
+        if (values == null) {
+            return bloomIndex.containsKey(range.field()) ? bloomScan(range) : DocSet.EMPTY;
+        }
+        NumericValues numeric = values.numeric();
+        int start = numeric.start(range);
+        int end = numeric.end(range);
+        List<int[]> matches = new ArrayList<>(end - start);
+        for (int position = start; position < end; position++) {
+            matches.add(values.docs(numeric.id(position)));
+        }
+        return new DocSet(Postings.union(matches), true);
+    }
+
+    // the filters don't help beyond one value, every doc is a candidate
+    private DocSet bloomScan(QueryNode node) {
+        return exact ? verify(node, allDocs()) : new DocSet(allDocs(), false);
+    }
+
+    private DocSet verify(QueryNode node, int[] candidates) {
+        return new DocSet(Arrays.stream(candidates).filter(doc -> verifier.matches(doc, node)).toArray(), true);
+    }
+
+    /**
+     * Trigram candidates when the query has fragments of 3+ chars on an
+     * indexed field, otherwise an exact scan of the distinct field values.
+     * With {@code exact} the scan is always done, but values none of
+     * whose docs are candidates are skipped without matching the text. A
+     * field indexed by bloom filters has no values to scan, every doc is.
+     */
+    private DocSet textMatch(QueryNode.TextMatch match) {
+        TextQuery query = match.query();
+        if (query.field() != null && bloomIndex.containsKey(query.field())) {
+            return bloomScan(match);
+        }
+        int[] candidates = query.field() == null || textIndex.indexes(query.field())
+                ? textIndex.candidates(query)
+                : null;
+        if (candidates != null && !exact) {
+            return new DocSet(candidates, false);
+        }
+
+        BitSet possible = null;
+        if (candidates != null) {
+            possible = new BitSet(docCount);
+            for (int doc : candidates) {
+                possible.set(doc);
+            }
+        }
+
+        List<int[]> matches = new ArrayList<>();
+        for (String field : query.field() != null ? List.of(query.field()) : textIndex.fields()) {
+            FieldIndex values = universalIndex.get(field);
+            if (values == null) {
+                continue;
+            }
+            for (int id = 0; id < values.termCount(); id++) {
+                if ((possible == null || anyOf(values, id, possible)) && query.matches(values.term(id))) {
+                    matches.add(values.docs(id));
+                }
+            }
+        }
+        return new DocSet(Postings.union(matches), true);
+    }
+
+    private static boolean anyOf(FieldIndex values, int id, BitSet docs) {
+        if (values.docCount(id) == 1) {
+            return docs.get(values.firstDoc(id));
+        }
+        PostingList.Cursor cursor = values.postings(id).cursor();
+        while (cursor.next()) {
+            if (docs.get(cursor.doc())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private DocSet and(List<QueryNode> children) {
+        List<PostingList> terms = new ArrayList<>();
+        List<QueryNode> others = new ArrayList<>();
+        List<QueryNode> negated = new ArrayList<>();
+
+        for (QueryNode child : children) {
+            if (child instanceof QueryNode.FieldMatch match && !match.wildcard()
+                    && !bloomIndex.containsKey(match.field())) {
+                PostingList postings = postings(match);
+                if (postings == null) {
+                    return DocSet.EMPTY; // one term without docs empties the whole AND
+                }
+                terms.add(postings);
+            } else if (child instanceof QueryNode.Not not) {
+                negated.add(not.child());
+            } else {
+                others.add(child);
+            }
+        }
+
+        int[] docs = terms.isEmpty() ? null : Postings.intersect(terms);
+        boolean exact = true;
+
+        others.sort(Comparator.comparingLong(this::estimate));
+        for (QueryNode child : others) {
+            if (docs != null && docs.length == 0) {
+                return DocSet.EMPTY;
+            }
+            DocSet result = evaluate(child);
+            docs = docs == null ? result.docs() : Postings.intersect(docs, result.docs());
+            exact &= result.exact();
+        }
+
+        if (docs == null) {
+            docs = allDocs();
+        }
+        for (QueryNode child : negated) {
+            if (docs.length == 0) {
+                return DocSet.EMPTY;
+            }
+            DocSet excluded = evaluate(child);
+            if (excluded.exact()) {
+                docs = subtract(docs, excluded.docs());
+            } else {
+                // can't drop candidates of a superset, verification sorts it out
+                exact = false;
+            }
+        }
+        return new DocSet(docs, exact);
+    }
+
+    private DocSet or(List<QueryNode> children) {
+        List<int[]> sets = new ArrayList<>(children.size());
+        boolean exact = true;
+        for (QueryNode child : children) {
+            DocSet result = evaluate(child);
+            sets.add(result.docs());
+            exact &= result.exact();
+        }
+        return new DocSet(Postings.union(sets), exact);
+    }
+
+    private DocSet not(QueryNode child) {
+        DocSet excluded = evaluate(child);
+        if (!excluded.exact()) {
+            return new DocSet(allDocs(), false);
+        }
+        return new DocSet(subtract(allDocs(), excluded.docs()), true);
+    }
+
+    private PostingList postings(QueryNode.FieldMatch match) {
+        FieldIndex values = universalIndex.get(match.field());
+        if (values == null) {
+            return null;
+        }
+        int id = values.find(match.value());
+        return id < 0 ? null : values.postings(id);
+    }
+
+    /**
+     * Upper bound on the docs a node can produce, only used for ordering.
+     */
+    private long estimate(QueryNode node) {
+        return switch (node) {
+            case QueryNode.FieldMatch match when bloomIndex.containsKey(match.field()) -> {
+                // the block of the match, a false one is rare
+                yield match.wildcard() ? docCount : bloomIndex.get(match.field()).blockDocs();
+            }
+            case QueryNode.FieldMatch match when !match.wildcard() -> {
+                PostingList postings = postings(match);
+                yield postings == null ? 0 : postings.size();
+            }
+            case QueryNode.FieldMatch match -> universalIndex.containsKey(match.field()) ? docCount : 0;
+            case QueryNode.RegexMatch match -> indexed(match.field()) ? docCount : 0;
+            case QueryNode.Range range -> indexed(range.field()) ? docCount : 0;
+            case QueryNode.TextMatch match -> docCount;
+            case QueryNode.And and -> and.children().stream().mapToLong(this::estimate).min().orElse(docCount);
+            case QueryNode.Or or -> Math.min(docCount, or.children().stream().mapToLong(this::estimate).sum());
+            case QueryNode.Not not -> docCount;
+        };
+    }
+
+    private boolean indexed(String field) {
+        return universalIndex.containsKey(field) || bloomIndex.containsKey(field);
+    }
+
+    private int[] allDocs() {
+        int[] docs = new int[docCount];
+        Arrays.setAll(docs, i -> i);
+        return docs;
+    }
+
+    private static int[] subtract(int[] docs, int[] excluded) {
+        int[] out = new int[docs.length];
+        int j = 0;
+        int n = 0;
+        for (int doc : docs) {
+            while (j < excluded.length && excluded[j] < doc) {
+                j++;
+            }
+            if (j >= excluded.length || excluded[j] != doc) {
+                out[n++] = doc;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
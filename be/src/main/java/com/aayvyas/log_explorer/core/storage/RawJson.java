@@ -0,0 +1,42 @@
+package com.aayvyas.log_explorer.core.storage;
+
+/**
+ * Byte-level helpers for stored JSON documents.
+ */
+final class RawJson {
+
+    private RawJson() {
+    }
+
+    /**
+     * Removes whitespace outside string literals in place, turning a
+     * pretty-printed object into a single line. JSON strings cannot contain raw
+     * newlines, so the result never spans lines.
+     *
+     * @return the new length
+     */
+    static int compact(byte[] json, int length) {
+        int write = 0;
+        boolean inString = false;
+        boolean escaped = false;
+
+        for (int read = 0; read < length; read++) {
+            byte b = json[read];
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                continue;
+            } else if (b == '"') {
+                inString = true;
+            }
+            json[write++] = b;
+        }
+        return write;
+    }
+}
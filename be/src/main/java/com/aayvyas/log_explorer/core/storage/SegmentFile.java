@@ -0,0 +1,93 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only, thread-safe view of a raw log file.
+ *
+ * The file is memory-mapped in fixed-size windows (a single MappedByteBuffer
+ * can't address more than 2GB), mapped lazily on first touch. Reads use
+ * absolute gets on the mapped buffers, so there is no shared position and no
+ * lock: any number of request threads can fetch documents at once, and a
+ * fetch is a memcpy instead of a handful of read syscalls.
+ *
+ * Bytes past the size seen at open time (a file that grew afterwards) are
+ * served with positional {@link FileChannel} reads, which are also lock-free.
+ */
+public final class SegmentFile implements StoredLog {
+
+    static final long DEFAULT_WINDOW_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final long mappedSize;
+    private final long windowBytes;
+    private final AtomicReferenceArray<MappedByteBuffer> windows;
+
+    public SegmentFile(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_BYTES);
+    }
+
+    SegmentFile(Path path, long windowBytes) throws IOException {
+        if (windowBytes <= 0 || windowBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Window must fit in a single mapping: " + windowBytes);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.mappedSize = channel.size();
+        this.windowBytes = windowBytes;
+        this.windows = new AtomicReferenceArray<>((int) ((mappedSize + windowBytes - 1) / windowBytes));
+    }
+
+    @Override
+    public int read(long position, byte[] dst, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position >= mappedSize) {
+            return channel.read(ByteBuffer.wrap(dst, offset, length), position);
+        }
+
+        int copied = 0;
+        while (copied < length && position < mappedSize) {
+            int windowIndex = (int) (position / windowBytes);
+            MappedByteBuffer window = window(windowIndex);
+            int within = (int) (position - windowIndex * windowBytes);
+            int chunk = Math.min(length - copied, window.limit() - within);
+
+            window.get(within, dst, offset + copied, chunk);
+
+            copied += chunk;
+            position += chunk;
+        }
+        return copied;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    private MappedByteBuffer window(int index) throws IOException {
+        MappedByteBuffer window = windows.get(index);
+        if (window == null) {
+            long start = index * windowBytes;
+            long length = Math.min(windowBytes, mappedSize - start);
+            // two threads may race to map the same window; both mappings are valid
+            // and the loser's is simply dropped
+            windows.compareAndSet(index, null, channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+            window = windows.get(index);
+        }
+        return window;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // mappings are released when the buffers are collected
+        channel.close();
+    }
+}
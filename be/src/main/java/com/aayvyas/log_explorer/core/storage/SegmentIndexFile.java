@@ -0,0 +1,263 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * On-disk format for the in-memory index of a {@link LogSegment}, so a restart
+ * can skip re-parsing the raw log file.
+ *
+ * Layout (big endian):
+ *
+ * <pre>
+ * header : magic(int) version(int) sourceLength(long) sourceLastModified(long)
+ * body   : textFields, knownFields, allOffsets, docLengths, docTimes,
+ *          universalIndex, bloomIndex, trigram index
+ * footer : crc32 of body (long)
+ * </pre>
+ *
+ * The source length / mtime pair lets us notice that the raw file changed under
+ * us. Anything unexpected (wrong magic, older version, bad checksum, stale
+ * source) makes {@link #read} return false, and the caller re-indexes from the
+ * raw file.
+ */
+public final class SegmentIndexFile {
+
+    static final int MAGIC = 0x4C584958; // "LXIX"
+    static final int VERSION = 6;
+
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+
+    private SegmentIndexFile() {
+    }
+
+    public static Path indexPathFor(Path storageDir, String fileId) {
+        return storageDir.resolve(fileId + ".idx");
+    }
+
+    /**
+     * Writes the index to a temp file and atomically moves it into place, so a
+     * crash mid-write never leaves a half-written index behind.
+     */
+    public static void write(LogSegment segment, Path indexPath) throws IOException {
+        Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        Path source = segment.getFilePath();
+
+        try (OutputStream fos = Files.newOutputStream(tmp);
+                DataOutputStream header = new DataOutputStream(fos)) {
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeLong(Files.size(source));
+            header.writeLong(Files.getLastModifiedTime(source).toMillis());
+            header.flush();
+
+            CheckedOutputStream checked = new CheckedOutputStream(fos, new CRC32());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16));
+            writeBody(segment, out);
+            out.flush();
+
+            header.writeLong(checked.getChecksum().getValue());
+        }
+
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a previously written index into an empty segment.
+     *
+     * @return false if the index is missing, corrupt, stale or from another
+     *         version; the segment is left untouched in that case.
+     */
+    public static boolean read(LogSegment segment, Path indexPath) {
+        if (!Files.isRegularFile(indexPath)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8 || size > Integer.MAX_VALUE) {
+                return false;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return false;
+            }
+            Path source = segment.getFilePath();
+            if (buffer.getLong() != Files.size(source)
+                    || buffer.getLong() != Files.getLastModifiedTime(source).toMillis()) {
+                return false;
+            }
+
+            ByteBuffer body = buffer.slice(HEADER_BYTES, (int) size - HEADER_BYTES - 8);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if (crc.getValue() != buffer.getLong((int) size - 8)) {
+                return false;
+            }
+
+            readBody(segment, body);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // truncated or garbled file, treat it as missing
+            segment.clearIndex();
+            return false;
+        }
+    }
+
+    private static void writeBody(LogSegment segment, DataOutputStream out) throws IOException {
+        List<String> textFields = new ArrayList<>(segment.options().textFields());
+        out.writeInt(textFields.size());
+        for (String field : textFields) {
+            writeString(out, field);
+        }
+
+        List<String> fields = new ArrayList<>(segment.knownFields());
+        out.writeInt(fields.size());
+        for (String field : fields) {
+            writeString(out, field);
+        }
+
+        LongList offsets = segment.allOffsets();
+        out.writeInt(offsets.size());
+        for (int i = 0; i < offsets.size(); i++) {
+            out.writeLong(offsets.get(i));
+        }
+
+        IntList lengths = segment.docLengths();
+        for (int i = 0; i < offsets.size(); i++) {
+            out.writeInt(lengths.get(i));
+        }
+
+        LongList times = segment.timeIndex().times();
+        for (int i = 0; i < offsets.size(); i++) {
+            out.writeLong(times.get(i));
+        }
+
+        Map<String, FieldIndex> index = segment.universalIndex();
+        out.writeInt(index.size());
+        for (Map.Entry<String, FieldIndex> field : index.entrySet()) {
+            writeString(out, field.getKey());
+            FieldIndex values = field.getValue();
+            out.writeInt(values.termCount());
+            for (int id = 0; id < values.termCount(); id++) {
+                writeString(out, values.term(id));
+                values.postings(id).writeTo(out);
+            }
+        }
+
+        Map<String, BloomIndex> blooms = segment.bloomIndex();
+        out.writeInt(blooms.size());
+        for (Map.Entry<String, BloomIndex> field : blooms.entrySet()) {
+            writeString(out, field.getKey());
+            field.getValue().writeTo(out);
+        }
+
+        Map<String, Map<Long, PostingList>> trigrams = segment.textIndex().trigrams();
+        out.writeInt(trigrams.size());
+        for (Map.Entry<String, Map<Long, PostingList>> field : trigrams.entrySet()) {
+            writeString(out, field.getKey());
+            out.writeInt(field.getValue().size());
+            for (Map.Entry<Long, PostingList> gram : field.getValue().entrySet()) {
+                out.writeLong(gram.getKey());
+                gram.getValue().writeTo(out);
+            }
+        }
+    }
+
+    private static void readBody(LogSegment segment, ByteBuffer in) {
+        // the trigram index only covers the text fields configured when it was built
+        int textFieldCount = in.getInt();
+        Set<String> textFields = new HashSet<>();
+        for (int i = 0; i < textFieldCount; i++) {
+            textFields.add(readString(in));
+        }
+        if (!textFields.equals(segment.options().textFields())) {
+            throw new IllegalStateException("Index was built for other text fields: " + textFields);
+        }
+
+        int fieldCount = in.getInt();
+        for (int i = 0; i < fieldCount; i++) {
+            segment.knownFields().add(readString(in));
+        }
+
+        int offsetCount = in.getInt();
+        LongList offsets = segment.allOffsets();
+        for (int i = 0; i < offsetCount; i++) {
+            offsets.add(in.getLong());
+        }
+
+        IntList lengths = segment.docLengths();
+        for (int i = 0; i < offsetCount; i++) {
+            lengths.add(in.getInt());
+        }
+
+        TimeIndex times = segment.timeIndex();
+        for (int i = 0; i < offsetCount; i++) {
+            times.add(in.getLong());
+        }
+
+        int indexedFields = in.getInt();
+        for (int i = 0; i < indexedFields; i++) {
+            String field = readString(in);
+            int valueCount = in.getInt();
+            for (int v = 0; v < valueCount; v++) {
+                String value = readString(in);
+                segment.putPostings(field, value, PostingList.readFrom(in));
+            }
+        }
+
+        // kept as they were built, whatever the policy is now
+        int bloomFields = in.getInt();
+        for (int i = 0; i < bloomFields; i++) {
+            String field = readString(in);
+            segment.bloomIndex().put(field, BloomIndex.readFrom(in));
+        }
+
+        int textIndexed = in.getInt();
+        for (int i = 0; i < textIndexed; i++) {
+            String field = readString(in);
+            int gramCount = in.getInt();
+            for (int g = 0; g < gramCount; g++) {
+                long gram = in.getLong();
+                segment.textIndex().put(field, gram, PostingList.readFrom(in));
+            }
+        }
+
+        if (in.hasRemaining()) {
+            throw new IllegalStateException("Trailing bytes in index body");
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        // writeUTF caps at 64KB, and log messages can be longer than that
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,48 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.Set;
+
+/**
+ * Per-segment indexing settings, built from {@code log-explorer.index.*}.
+ *
+ * @param textFields     flattened field names that also get a trigram index
+ *                       for full-text / substring search
+ * @param columns        also keep a column of every field once a segment is
+ *                       indexed, see {@link LogSegment#buildColumns()}
+ * @param bloomMinTerms  distinct values from which a field whose values are
+ *                       nearly all unique is indexed by {@link BloomIndex}
+ *                       instead, 0 keeps every field's inverted index
+ * @param bloomBlockDocs docs per bloom filter of such a field
+ */
+public record SegmentOptions(Set<String> textFields, boolean columns, int bloomMinTerms, int bloomBlockDocs) {
+
+    // same names LogEntry accepts for the message
+    public static final Set<String> DEFAULT_TEXT_FIELDS = Set.of("message", "msg", "text", "textPayload");
+
+    public static final int DEFAULT_BLOOM_BLOCK_DOCS = 128;
+
+    public SegmentOptions {
+        textFields = Set.copyOf(textFields);
+        if (bloomMinTerms < 0 || bloomBlockDocs < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid bloom settings: min terms " + bloomMinTerms + ", block docs " + bloomBlockDocs);
+        }
+    }
+
+    public SegmentOptions(Set<String> textFields) {
+        this(textFields, false, 0, DEFAULT_BLOOM_BLOCK_DOCS);
+    }
+
+    public static SegmentOptions defaults() {
+        return new SegmentOptions(DEFAULT_TEXT_FIELDS);
+    }
+
+    /**
+     * The same settings with every field keeping its inverted index, for
+     * partial indexes: whether a field is unique enough is only known once
+     * they are appended.
+     */
+    SegmentOptions withoutBlooms() {
+        return new SegmentOptions(textFields, columns, 0, bloomBlockDocs);
+    }
+}
@@ -0,0 +1,136 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The values of one field in sorted order, as value ids of the field's
+ * {@link TermDictionary}.
+ *
+ * The dictionary finds a value by hash, which answers exact lookups but says
+ * nothing about which values share a prefix. This keeps the order next to
+ * it, 4 bytes a value: the values starting with a prefix are one run of it,
+ * found with two binary searches, so a prefix, wildcard or anchored regex
+ * query only looks at the values that can match. Values are ordered by their
+ * UTF-8 bytes, i.e. by code point, and compared in place without decoding.
+ */
+final class SortedTerms {
+
+    // leading bytes ordered by primitive sorts, 4 at a time
+    private static final int KEY_BYTES = 16;
+
+    private final TermDictionary values;
+    private final int[] ids;
+
+    private SortedTerms(TermDictionary values, int[] ids) {
+        this.values = values;
+        this.ids = ids;
+    }
+
+    static SortedTerms of(TermDictionary values) {
+        int[] ids = new int[values.size()];
+        Arrays.setAll(ids, id -> id);
+        sort(values, ids, new long[ids.length], new int[ids.length], 0, ids.length, 0);
+        return new SortedTerms(values, ids);
+    }
+
+    /**
+     * Orders {@code ids[from, to)}, which share their first {@code offset}
+     * bytes, by the next 4: packed with the id into a long, that is a
+     * primitive sort of one pass over the values instead of a comparison
+     * that reads two of them at random. Runs that share those bytes too go
+     * another 4 deeper, whole values are only compared past
+     * {@value #KEY_BYTES} bytes.
+     */
+    private static void sort(TermDictionary values, int[] ids, long[] keys, int[] scratch, int from, int to,
+            int offset) {
+        if (to - from < 2) {
+            return;
+        }
+        if (offset == KEY_BYTES) {
+            mergeSort(values, ids, scratch, from, to);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            // sign bit flipped, so the signed sort orders the bytes as unsigned
+            keys[i] = (long) (values.head(ids[i], offset) ^ Integer.MIN_VALUE) << 32 | ids[i];
+        }
+        Arrays.sort(keys, from, to);
+        for (int i = from; i < to;) {
+            int start = i;
+            long head = keys[i] >>> 32;
+            while (i < to && keys[i] >>> 32 == head) {
+                ids[i] = (int) keys[i];
+                i++;
+            }
+            sort(values, ids, keys, scratch, start, i, offset + 4);
+        }
+    }
+
+    // size of the dictionary this was built from, more values mean it is stale
+    int termCount() {
+        return ids.length;
+    }
+
+    int id(int position) {
+        return ids[position];
+    }
+
+    /**
+     * First position of a value starting with {@code prefix}, or where one
+     * would be.
+     */
+    int start(String prefix) {
+        return search(prefix.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * Position past the last value starting with {@code prefix}.
+     */
+    int end(String prefix) {
+        return search(prefix.getBytes(StandardCharsets.UTF_8), true);
+    }
+
+    // first position ordered after the prefix, or after or within it if not past
+    private int search(byte[] prefix, boolean past) {
+        int lo = 0;
+        int hi = ids.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = values.comparePrefix(ids[mid], prefix);
+            if (cmp < 0 || (past && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    long estimatedBytes() {
+        return 32L + 4L * ids.length;
+    }
+
+    private static void mergeSort(TermDictionary values, int[] ids, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(values, ids, scratch, from, mid);
+        mergeSort(values, ids, scratch, mid, to);
+        if (values.compare(ids[mid - 1], ids[mid]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(ids, from, scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && values.compare(scratch[left], scratch[right]) <= 0)) {
+                ids[i] = scratch[left++];
+            } else {
+                ids[i] = scratch[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Random access to the uncompressed bytes of a stored log file, whether it is
+ * kept as-is ({@link SegmentFile}) or in compressed blocks
+ * ({@link BlockCompressedFile}). Doc offsets always refer to uncompressed
+ * positions, so the index doesn't care which one it is talking to.
+ */
+public interface StoredLog extends AutoCloseable {
+
+    /**
+     * Copies up to {@code length} bytes starting at {@code position}.
+     *
+     * @return bytes copied, or -1 at end of file
+     */
+    int read(long position, byte[] dst, int offset, int length) throws IOException;
+
+    /**
+     * Uncompressed size in bytes.
+     */
+    long size() throws IOException;
+
+    @Override
+    void close() throws IOException;
+
+    static StoredLog open(Path path) throws IOException {
+        return BlockCompressedFile.isBlockCompressed(path) ? new BlockCompressedFile(path) : new SegmentFile(path);
+    }
+}
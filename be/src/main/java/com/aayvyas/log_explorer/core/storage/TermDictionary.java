@@ -0,0 +1,323 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Maps distinct strings to dense int ids, 0, 1, 2... in insertion order.
+ *
+ * The strings themselves are not kept as {@link String} objects: their UTF-8
+ * bytes are packed back to back into pages of up to 1MB and found again
+ * through an open-addressing table of ids. A term costs its bytes plus ~24
+ * bytes of bookkeeping, where a String key in a hash map costs 80+ before its
+ * characters. Lookups compare a String against the stored bytes in place, so
+ * finding an existing term allocates nothing.
+ *
+ * Single writer; readers may only look once the writer is done, except that
+ * {@link #term} and the comparisons of ids the reader already knows are safe
+ * while more terms are added.
+ */
+final class TermDictionary {
+
+    // pages double from the first size up to the max, a field with a handful
+    // of values shouldn't pay for a full page
+    private static final int FIRST_PAGE_BYTES = 4 << 10;
+    private static final int MAX_PAGE_BYTES = 1 << 20;
+
+    // a new page every MB at most, copying the list of them is cheap
+    private final List<byte[]> pages = new CopyOnWriteArrayList<>();
+    // free bytes at the end of the last page
+    private int pageFree;
+
+    // id -> (page << 32 | offset), byte length and String.hashCode() of the term
+    private final LongList addresses = new LongList();
+    private final IntList lengths = new IntList();
+    private final IntList hashes = new IntList();
+
+    // slot -> id + 1, 0 meaning free; linear probing, at most half full
+    private int[] table = new int[16];
+
+    int size() {
+        return hashes.size();
+    }
+
+    /**
+     * @return the id of {@code term}, or -1 if it was never added
+     */
+    int find(String term) {
+        int hash = term.hashCode();
+        int mask = table.length - 1;
+        for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes.get(id) == hash && matches(id, term)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @return the id of {@code term}, assigning the next one if it is new
+     */
+    int add(String term) {
+        int hash = term.hashCode();
+        int mask = table.length - 1;
+        int slot = mix(hash) & mask;
+        for (;; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                break;
+            }
+            if (hashes.get(id) == hash && matches(id, term)) {
+                return id;
+            }
+        }
+
+        int length = utf8Length(term);
+        long address = reserve(length);
+        encode(term, page(address), (int) address);
+        return insert(slot, address, length, hash);
+    }
+
+    /**
+     * Same as {@code add(other.term(otherId))}, copying the bytes without
+     * decoding them.
+     */
+    int add(TermDictionary other, int otherId) {
+        int hash = other.hashes.get(otherId);
+        int length = other.lengths.get(otherId);
+        long otherAddress = other.addresses.get(otherId);
+        byte[] otherPage = other.page(otherAddress);
+        int otherOffset = (int) otherAddress;
+
+        int mask = table.length - 1;
+        int slot = mix(hash) & mask;
+        for (;; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                break;
+            }
+            if (hashes.get(id) == hash && lengths.get(id) == length) {
+                long address = addresses.get(id);
+                if (Arrays.equals(page(address), (int) address, (int) address + length,
+                        otherPage, otherOffset, otherOffset + length)) {
+                    return id;
+                }
+            }
+        }
+
+        long address = reserve(length);
+        System.arraycopy(otherPage, otherOffset, page(address), (int) address, length);
+        return insert(slot, address, length, hash);
+    }
+
+    String term(int id) {
+        long address = addresses.get(id);
+        return new String(page(address), (int) address, lengths.get(id), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Orders two terms by their UTF-8 bytes, which is code point order.
+     */
+    int compare(int a, int b) {
+        long addressA = addresses.get(a);
+        long addressB = addresses.get(b);
+        return Arrays.compareUnsigned(page(addressA), (int) addressA, (int) addressA + lengths.get(a),
+                page(addressB), (int) addressB, (int) addressB + lengths.get(b));
+    }
+
+    /**
+     * Bytes {@code offset} to {@code offset + 4} of a term as an unsigned
+     * big-endian int, zero past its end: of two terms with the same bytes
+     * before {@code offset}, the one with the smaller head comes first in
+     * {@link #compare}.
+     */
+    int head(int id, int offset) {
+        long address = addresses.get(id);
+        byte[] page = page(address);
+        int pos = (int) address + offset;
+        int remaining = lengths.get(id) - offset;
+        int head = 0;
+        for (int i = 0; i < 4; i++) {
+            head = head << 8 | (i < remaining ? page[pos + i] & 0xFF : 0);
+        }
+        return head;
+    }
+
+    /**
+     * Orders a term against the UTF-8 bytes of a prefix, 0 meaning the term
+     * starts with it.
+     */
+    int comparePrefix(int id, byte[] prefix) {
+        long address = addresses.get(id);
+        int length = Math.min(lengths.get(id), prefix.length);
+        return Arrays.compareUnsigned(page(address), (int) address, (int) address + length, prefix, 0,
+                prefix.length);
+    }
+
+    void clear() {
+        pages.clear();
+        pageFree = 0;
+        addresses.clear();
+        lengths.clear();
+        hashes.clear();
+        table = new int[16];
+    }
+
+    long estimatedBytes() {
+        long bytes = 16L + 4L * table.length + addresses.estimatedBytes() + 8L * hashes.size();
+        for (byte[] page : pages) {
+            bytes += 16 + page.length;
+        }
+        return bytes;
+    }
+
+    private int insert(int slot, long address, int length, int hash) {
+        int id = hashes.size();
+        addresses.add(address);
+        lengths.add(length);
+        hashes.add(hash);
+        table[slot] = id + 1;
+        if (2 * (id + 1) > table.length) {
+            grow();
+        }
+        return id;
+    }
+
+    private void grow() {
+        int[] grown = new int[table.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < hashes.size(); id++) {
+            int slot = mix(hashes.get(id)) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        table = grown;
+    }
+
+    // room for length bytes, terms never straddle two pages
+    private long reserve(int length) {
+        if (length > pageFree || pages.isEmpty()) {
+            int pageBytes = pages.isEmpty() ? FIRST_PAGE_BYTES
+                    : Math.min(MAX_PAGE_BYTES, pages.get(pages.size() - 1).length * 2);
+            // a term bigger than that gets a page of its own
+            pageBytes = Math.max(pageBytes, length);
+            pages.add(new byte[pageBytes]);
+            pageFree = pageBytes;
+        }
+        int page = pages.size() - 1;
+        int offset = pages.get(page).length - pageFree;
+        pageFree -= length;
+        return (long) page << 32 | offset;
+    }
+
+    private byte[] page(long address) {
+        return pages.get((int) (address >>> 32));
+    }
+
+    /**
+     * Compares the stored bytes of {@code id} with the UTF-8 encoding of
+     * {@code s}, encoding one char at a time instead of the whole string.
+     */
+    private boolean matches(int id, String s) {
+        long address = addresses.get(id);
+        byte[] page = page(address);
+        int pos = (int) address;
+        int end = pos + lengths.get(id);
+
+        for (int i = 0; i < s.length(); i++) {
+            int c = s.charAt(i);
+            if (c < 0x80) {
+                if (pos >= end || page[pos++] != c) {
+                    return false;
+                }
+                continue;
+            }
+            int codePoint = c;
+            if (Character.isHighSurrogate((char) c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                codePoint = Character.toCodePoint((char) c, s.charAt(++i));
+            } else if (Character.isSurrogate((char) c)) {
+                codePoint = '?'; // what the UTF-8 encoder writes for a lone surrogate
+            }
+            int n = utf8Length(codePoint);
+            if (pos + n > end) {
+                return false;
+            }
+            for (int b = 0; b < n; b++) {
+                if (page[pos++] != utf8Byte(codePoint, n, b)) {
+                    return false;
+                }
+            }
+        }
+        return pos == end;
+    }
+
+    private static void encode(String s, byte[] page, int pos) {
+        for (int i = 0; i < s.length(); i++) {
+            int c = s.charAt(i);
+            if (c < 0x80) {
+                page[pos++] = (byte) c;
+                continue;
+            }
+            int codePoint = c;
+            if (Character.isHighSurrogate((char) c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                codePoint = Character.toCodePoint((char) c, s.charAt(++i));
+            } else if (Character.isSurrogate((char) c)) {
+                codePoint = '?';
+            }
+            int n = utf8Length(codePoint);
+            for (int b = 0; b < n; b++) {
+                page[pos++] = utf8Byte(codePoint, n, b);
+            }
+        }
+    }
+
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += utf8Length((int) c);
+            }
+        }
+        return length;
+    }
+
+    private static int utf8Length(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+
+    // byte b of the n-byte encoding of codePoint
+    private static byte utf8Byte(int codePoint, int n, int b) {
+        if (n == 1) {
+            return (byte) codePoint;
+        }
+        int shift = 6 * (n - 1 - b);
+        if (b == 0) {
+            int lead = n == 2 ? 0xC0 : n == 3 ? 0xE0 : 0xF0;
+            return (byte) (lead | (codePoint >>> shift));
+        }
+        return (byte) (0x80 | ((codePoint >>> shift) & 0x3F));
+    }
+
+    private static int mix(int hash) {
+        // fold the high bits in, the table only looks at the low ones
+        return hash ^ (hash >>> 16);
+    }
+}
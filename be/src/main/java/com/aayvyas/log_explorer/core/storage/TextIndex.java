@@ -0,0 +1,126 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.aayvyas.log_explorer.core.search.TextQuery;
+
+/**
+ * Trigram inverted index over the text fields of a segment:
+ * field -> { trigram -> docs whose value contains it }.
+ *
+ * A query fragment of length n has n-2 trigrams; intersecting their postings
+ * gives every doc that could contain the fragment. That is a superset (the
+ * trigrams may occur in a different order), so candidates still have to be
+ * checked against the document, but only candidates.
+ */
+final class TextIndex {
+
+    private final Set<String> fields;
+
+    private final Map<String, Map<Long, PostingList>> trigrams = new ConcurrentHashMap<>();
+
+    TextIndex(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    boolean indexes(String field) {
+        return fields.contains(field);
+    }
+
+    Set<String> fields() {
+        return fields;
+    }
+
+    void add(int doc, String field, String value) {
+        if (value.length() < 3) {
+            return;
+        }
+        Map<Long, PostingList> grams = trigrams.computeIfAbsent(field, k -> new HashMap<>());
+        String lower = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            PostingList postings = grams.computeIfAbsent(key(lower, i), k -> new PostingList());
+            // the same trigram can repeat within one value
+            if (postings.lastDoc() != doc) {
+                postings.add(doc);
+            }
+        }
+    }
+
+    void append(TextIndex partial, int docBase) {
+        for (Map.Entry<String, Map<Long, PostingList>> field : partial.trigrams.entrySet()) {
+            Map<Long, PostingList> grams = trigrams.computeIfAbsent(field.getKey(), k -> new HashMap<>());
+            for (Map.Entry<Long, PostingList> gram : field.getValue().entrySet()) {
+                grams.computeIfAbsent(gram.getKey(), k -> new PostingList()).addAll(gram.getValue(), docBase);
+            }
+        }
+    }
+
+    /**
+     * Docs that may match {@code query}, sorted.
+     *
+     * @return null if no fragment is long enough to prune with trigrams
+     */
+    int[] candidates(TextQuery query) {
+        List<String> fragments = query.requiredFragments().stream().filter(f -> f.length() >= 3).toList();
+        if (fragments.isEmpty()) {
+            return null;
+        }
+
+        List<int[]> perField = new ArrayList<>();
+        for (String field : query.field() != null ? Set.of(query.field()) : fields) {
+            Map<Long, PostingList> grams = trigrams.get(field);
+            if (grams == null) {
+                continue;
+            }
+
+            List<PostingList> required = new ArrayList<>();
+            boolean missing = false;
+            for (String fragment : fragments) {
+                for (int i = 0; i + 3 <= fragment.length() && !missing; i++) {
+                    PostingList postings = grams.get(key(fragment, i));
+                    if (postings == null) {
+                        missing = true;
+                    } else {
+                        required.add(postings);
+                    }
+                }
+            }
+            if (!missing) {
+                perField.add(Postings.intersect(required));
+            }
+        }
+        return Postings.union(perField);
+    }
+
+    void clear() {
+        trigrams.clear();
+    }
+
+    Map<String, Map<Long, PostingList>> trigrams() {
+        return trigrams;
+    }
+
+    void put(String field, long trigram, PostingList postings) {
+        trigrams.computeIfAbsent(field, k -> new HashMap<>()).put(trigram, postings);
+    }
+
+    long estimatedBytes() {
+        long bytes = 0;
+        for (Map<Long, PostingList> grams : trigrams.values()) {
+            for (PostingList postings : grams.values()) {
+                bytes += 64 + postings.estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private static long key(String lower, int i) {
+        return ((long) lower.charAt(i) << 32) | ((long) lower.charAt(i + 1) << 16) | lower.charAt(i + 2);
+    }
+}
@@ -0,0 +1,267 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Timestamp column of a segment: doc ordinal -> epoch millis, plus a sorted
+ * view for range lookups.
+ *
+ * Most log files are already written in time order. While that holds the
+ * column itself is the sorted view and a range is two binary searches over
+ * ordinals. Only files that are out of order pay for an extra (doc, time)
+ * array sorted by time, built lazily on the first range query.
+ */
+final class TimeIndex {
+
+    static final long MISSING = Long.MIN_VALUE;
+
+    // same names LogEntry / common shippers use, checked in order
+    private static final String[] TIMESTAMP_FIELDS = { "timestamp", "@timestamp", "time", "ts" };
+
+    private final LongList times = new LongList();
+    private boolean ordered = true;
+    private long last = MISSING;
+
+    private volatile Sorted sorted;
+
+    private record Sorted(int[] docs, long[] times) {
+    }
+
+    /**
+     * Docs [start, end) of a time-ordered run. {@code docs == null} means the
+     * ordinals themselves are in time order.
+     */
+    record Slice(int[] docs, int start, int end) {
+        int size() {
+            return end - start;
+        }
+
+        IntStream stream() {
+            return docs == null ? IntStream.range(start, end) : Arrays.stream(docs, start, end);
+        }
+
+        IntStream descending() {
+            return IntStream.range(0, size()).map(i -> docs == null ? end - 1 - i : docs[end - 1 - i]);
+        }
+    }
+
+    void add(Map<String, Object> rawLogMap) {
+        add(extract(rawLogMap));
+    }
+
+    void add(long time) {
+        if (time == MISSING || time < last) {
+            ordered = false;
+        }
+        times.add(time);
+        last = Math.max(last, time);
+        sorted = null;
+    }
+
+    void clear() {
+        times.clear();
+        ordered = true;
+        last = MISSING;
+        sorted = null;
+    }
+
+    LongList times() {
+        return times;
+    }
+
+    long timeOf(int doc) {
+        return times.get(doc);
+    }
+
+    boolean isOrdered() {
+        return ordered;
+    }
+
+    boolean inRange(int doc, long from, long toExclusive) {
+        long time = times.get(doc);
+        return time != MISSING && time >= from && time < toExclusive;
+    }
+
+    /**
+     * Docs with {@code from <= time < toExclusive}, in ascending time order.
+     */
+    Slice slice(long from, long toExclusive) {
+        if (ordered) {
+            return new Slice(null, lowerBound(times, from), lowerBound(times, toExclusive));
+        }
+
+        Sorted view = sortedView();
+        return new Slice(view.docs(), lowerBound(view.times(), from), lowerBound(view.times(), toExclusive));
+    }
+
+    /**
+     * Docs of {@code slice} whose (time, doc) key is greater than the given
+     * one, i.e. everything after a cursor in ascending order.
+     */
+    Slice after(Slice slice, long time, int doc) {
+        return new Slice(slice.docs(), firstAfter(slice, time, doc), slice.end());
+    }
+
+    /**
+     * Docs of {@code slice} whose (time, doc) key is less than the given one.
+     */
+    Slice before(Slice slice, long time, int doc) {
+        return new Slice(slice.docs(), slice.start(), firstAfter(slice, time, doc - 1));
+    }
+
+    /**
+     * A copy of {@code docs} (ascending ordinals) in ascending (time, doc)
+     * order, for match sets small enough that sorting beats walking a slice.
+     */
+    int[] sortByTime(int[] docs) {
+        int[] copy = docs.clone();
+        mergeSortByTime(copy, new int[copy.length], 0, copy.length);
+        return copy;
+    }
+
+    // first position in the slice with key > (time, doc)
+    private int firstAfter(Slice slice, long time, int doc) {
+        long[] sortedTimes = slice.docs() == null ? null : sortedView().times();
+        int lo = slice.start();
+        int hi = slice.end();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long midTime = sortedTimes == null ? times.get(mid) : sortedTimes[mid];
+            int midDoc = slice.docs() == null ? mid : slice.docs()[mid];
+            if (midTime < time || (midTime == time && midDoc <= doc)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    long estimatedBytes() {
+        Sorted view = sorted;
+        return times.estimatedBytes() + (view == null ? 0 : 12L * view.docs().length);
+    }
+
+    private Sorted sortedView() {
+        Sorted view = sorted;
+        if (view == null) {
+            synchronized (this) {
+                view = sorted;
+                if (view == null) {
+                    view = buildSorted();
+                    sorted = view;
+                }
+            }
+        }
+        return view;
+    }
+
+    private Sorted buildSorted() {
+        // MISSING sorts first; ranges start above it, full scans still see those docs
+        int[] docs = new int[times.size()];
+        Arrays.setAll(docs, i -> i);
+
+        // stable sort by time, so equal timestamps keep file order
+        mergeSortByTime(docs, new int[docs.length], 0, docs.length);
+
+        long[] sortedTimes = new long[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            sortedTimes[i] = times.get(docs[i]);
+        }
+        return new Sorted(docs, sortedTimes);
+    }
+
+    private void mergeSortByTime(int[] docs, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSortByTime(docs, scratch, from, mid);
+        mergeSortByTime(docs, scratch, mid, to);
+        if (times.get(docs[mid - 1]) <= times.get(docs[mid])) {
+            return; // already in order, the common case for mostly sorted files
+        }
+
+        System.arraycopy(docs, from, scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && times.get(scratch[left]) <= times.get(scratch[right]))) {
+                docs[i] = scratch[left++];
+            } else {
+                docs[i] = scratch[right++];
+            }
+        }
+    }
+
+    private static int lowerBound(long[] values, long key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int lowerBound(LongList values, long key) {
+        int lo = 0;
+        int hi = values.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values.get(mid) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    static long extract(Map<String, Object> rawLogMap) {
+        for (String field : TIMESTAMP_FIELDS) {
+            Object value = rawLogMap.get(field);
+            if (value != null) {
+                return toEpochMillis(value);
+            }
+        }
+        return MISSING;
+    }
+
+    static long toEpochMillis(Object value) {
+        if (value instanceof Number number) {
+            return numericToMillis(number.doubleValue());
+        }
+
+        String text = value.toString().trim();
+        try {
+            return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // fall through
+        }
+        try {
+            return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // fall through
+        }
+        try {
+            return numericToMillis(Double.parseDouble(text));
+        } catch (NumberFormatException e) {
+            return MISSING;
+        }
+    }
+
+    // epoch seconds (possibly fractional) vs epoch millis
+    private static long numericToMillis(double value) {
+        return Math.abs(value) < 1e11 ? (long) (value * 1000) : (long) value;
+    }
+}
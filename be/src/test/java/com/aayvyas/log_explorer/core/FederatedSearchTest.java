@@ -0,0 +1,172 @@
+package com.aayvyas.log_explorer.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.ingestion.NdjsonLogParser;
+import com.aayvyas.log_explorer.core.search.FederatedCursor;
+import com.aayvyas.log_explorer.core.search.FederatedHit;
+import com.aayvyas.log_explorer.core.search.FederatedPage;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+import com.aayvyas.log_explorer.core.storage.SegmentOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Merging files whose entries share timestamps: hits come in (timestamp,
+ * file id, doc) order, and pages resumed from their cursors add up to the
+ * unpaged merge.
+ */
+class FederatedSearchTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final List<String> QUERIES = List.of("", "level=ERROR", "NOT level=INFO", "timeout",
+            "seq=3 OR seq=40");
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void mergesTiesByFileIdThenDoc() throws Exception {
+        List<LogSegment> segments = segments();
+        for (String query : QUERIES) {
+            QueryNode node = QueryParser.parse(query);
+            for (SortOrder order : SortOrder.values()) {
+                List<String> expected = expected(segments, node, order);
+                List<String> merged = search(segments, node, order, null).stream().map(FederatedSearchTest::key)
+                        .toList();
+                assertEquals(expected, merged, query + " " + order);
+            }
+        }
+    }
+
+    @Test
+    void pagesResumeAcrossTies() throws Exception {
+        List<LogSegment> segments = segments();
+        for (String query : QUERIES) {
+            QueryNode node = QueryParser.parse(query);
+            for (SortOrder order : SortOrder.values()) {
+                List<String> expected = expected(segments, node, order);
+                for (int limit : new int[] { 1, 2, 3, 4, 9, 100 }) {
+                    List<String> paged = new ArrayList<>();
+                    FederatedCursor after = null;
+                    do {
+                        FederatedPage page = search(segments, node, order, after).page(limit);
+                        List<String> hits = page.hits().map(FederatedSearchTest::key).toList();
+                        paged.addAll(hits);
+                        // what a client would send back
+                        after = page.next() == null ? null : FederatedCursor.decode(page.next().encode());
+                        if (after != null) {
+                            assertEquals(limit, hits.size());
+                            assertEquals(hits.get(limit - 1), after.fileId() + ":" + after.doc());
+                        }
+                    } while (after != null);
+                    assertEquals(expected, paged, query + " " + order + " page of " + limit);
+                }
+            }
+        }
+    }
+
+    @Test
+    void cursorPlacesOtherFilesByFileId() {
+        FederatedCursor cursor = new FederatedCursor(1000, "b.log", 7);
+        assertEquals(7, cursor.in("b.log").doc());
+        // files before the cursor's are done at its timestamp, files after it have not started it
+        assertEquals(Integer.MAX_VALUE, cursor.in("a.log").doc());
+        assertEquals(-1, cursor.in("c.log").doc());
+        assertEquals(1000, cursor.in("a.log").time());
+
+        assertEquals(cursor, FederatedCursor.decode(cursor.encode()));
+        assertNull(FederatedCursor.decode(""));
+    }
+
+    private FederatedSearch search(List<LogSegment> segments, QueryNode query, SortOrder order,
+            FederatedCursor after) {
+        return new FederatedSearch(segments, query, null, null, order, after, segment -> segment.plan(query),
+                executor);
+    }
+
+    // every file's matches, sorted by (timestamp, file id, doc) as the merge should
+    private static List<String> expected(List<LogSegment> segments, QueryNode query, SortOrder order) {
+        record Hit(long time, String fileId, int doc) {
+        }
+        List<Hit> hits = new ArrayList<>();
+        for (LogSegment segment : segments) {
+            segment.search(query, segment.plan(query), null, null, SortOrder.OLDEST, null)
+                    .forEach(log -> {
+                        int doc = (Integer) log.get("seq");
+                        hits.add(new Hit(segment.timeOf(doc), segment.getFileId(), doc));
+                    });
+        }
+        Comparator<Hit> ascending = Comparator.comparingLong(Hit::time).thenComparing(Hit::fileId)
+                .thenComparingInt(Hit::doc);
+        hits.sort(order == SortOrder.OLDEST ? ascending : ascending.reversed());
+        return hits.stream().map(hit -> hit.fileId() + ":" + hit.doc()).toList();
+    }
+
+    private static String key(FederatedHit hit) {
+        try {
+            return hit.fileId() + ":" + MAPPER.readValue(hit.log(), Map.class).get("seq");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Three pods logging the same seconds, one of them out of order, and a
+     * file without errors.
+     */
+    private List<LogSegment> segments() throws Exception {
+        return List.of(
+                segment("a.log", 60, i -> i / 4, i -> i % 3 == 0 ? "ERROR" : "INFO"),
+                segment("b.log", 45, i -> i / 3, i -> i % 2 == 0 ? "ERROR" : "WARN"),
+                segment("c.log", 50, i -> i * 7 % 15, i -> i % 5 == 0 ? "ERROR" : "INFO"),
+                segment("d.log", 20, i -> i, i -> "INFO"));
+    }
+
+    private LogSegment segment(String fileId, int count, IntUnaryOperator second, IntFunction<String> level)
+            throws Exception {
+        List<String> lines = IntStream.range(0, count)
+                .mapToObj(i -> String.format("{\"timestamp\":\"2024-01-01T00:00:%02dZ\",\"seq\":%d,"
+                        + "\"level\":\"%s\",\"message\":\"%s\"}", second.applyAsInt(i), i, level.apply(i),
+                        i % 4 == 1 ? "failed with timeout" : "served"))
+                .toList();
+        Path file = Files.write(dir.resolve(fileId), lines);
+        LogSegment segment = new LogSegment(fileId, file, MAPPER, SegmentOptions.defaults());
+        segment.init();
+        try (InputStream in = Files.newInputStream(file)) {
+            new NdjsonLogParser(MAPPER).parse(in,
+                    entry -> segment.addToIndex(entry.logEntry(), entry.offset(), entry.length()));
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,152 @@
+package com.aayvyas.log_explorer.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.ingestion.NdjsonLogParser;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+import com.aayvyas.log_explorer.core.storage.SegmentOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Eviction under a budget that fits one segment, with and without a file
+ * pinned the way {@link LiveTailService} pins the files it follows.
+ */
+class SegmentManagerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private final List<String> evicted = new CopyOnWriteArrayList<>();
+    private SegmentManager segments;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (String fileId : List.of("a.log", "b.log", "c.log")) {
+            Files.write(dir.resolve(fileId), IntStream.range(0, 200)
+                    .mapToObj(i -> "{\"level\":\"INFO\",\"traceId\":\"" + fileId + "-" + i + "\",\"message\":\"m "
+                            + i + "\"}")
+                    .toList());
+        }
+        LogSegment sample = load("a.log", dir.resolve("a.log"));
+        long budget = sample.estimatedIndexBytes() * 3 / 2;
+        sample.close();
+
+        segments = new SegmentManager(budget, SegmentManagerTest::load, evicted::add);
+        for (String fileId : List.of("a.log", "b.log", "c.log")) {
+            segments.register(fileId, dir.resolve(fileId));
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        LogSegment a;
+        try (SegmentManager.Lease lease = segments.acquire("a.log")) {
+            a = lease.segment();
+        }
+        segments.acquire("b.log").close();
+        assertEquals(List.of("a.log"), evicted);
+
+        // a lease keeps an evicted segment open, but the file gets a new one
+        SegmentManager.Lease held = segments.acquire("b.log");
+        segments.acquire("a.log").close();
+        assertEquals(List.of("a.log", "b.log"), evicted);
+        assertNotNull(held.segment().readLog(0));
+        try (SegmentManager.Lease lease = segments.acquire("b.log")) {
+            assertNotSame(held.segment(), lease.segment());
+        }
+        held.close();
+        try (SegmentManager.Lease lease = segments.acquire("a.log")) {
+            assertNotSame(a, lease.segment());
+        }
+    }
+
+    @Test
+    void pinnedSegmentIsNeverEvicted() {
+        SegmentManager.Lease pinned = segments.pin("a.log");
+        LogSegment followed = pinned.segment();
+
+        // over budget with two resident, the unpinned one goes
+        segments.acquire("b.log").close();
+        segments.acquire("c.log").close();
+        segments.acquire("b.log").close();
+        assertEquals(List.of("b.log", "c.log"), evicted);
+        try (SegmentManager.Lease lease = segments.acquire("a.log")) {
+            assertSame(followed, lease.segment());
+        }
+        assertNotNull(followed.readLog(0));
+
+        // the pin can be taken twice, the file is evictable once both are closed
+        SegmentManager.Lease again = segments.pin("a.log");
+        assertSame(followed, again.segment());
+        pinned.close();
+        segments.acquire("c.log").close();
+        assertEquals(List.of("b.log", "c.log", "b.log"), evicted);
+        again.close();
+        // closing a lease twice releases the pin once
+        again.close();
+        segments.acquire("b.log").close();
+        assertEquals(List.of("b.log", "c.log", "b.log", "a.log", "c.log"), evicted);
+    }
+
+    @Test
+    void pinSurvivesConcurrentEviction() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        Thread churn = Thread.ofPlatform().start(() -> {
+            while (!done.get()) {
+                segments.acquire("b.log").close();
+                segments.acquire("c.log").close();
+            }
+        });
+        try {
+            // until the other thread has evicted plenty, a included whenever it wasn't pinned
+            for (int i = 0; i < 200 || evicted.size() < 100; i++) {
+                try (SegmentManager.Lease pinned = segments.pin("a.log")) {
+                    for (int j = 0; j < 5; j++) {
+                        try (SegmentManager.Lease lease = segments.acquire("a.log")) {
+                            assertSame(pinned.segment(), lease.segment());
+                        }
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+        } finally {
+            done.set(true);
+            churn.join();
+        }
+        assertTrue(evicted.contains("a.log"));
+    }
+
+    @Test
+    void unknownFileCantBePinned() {
+        assertThrows(IllegalArgumentException.class, () -> segments.pin("missing.log"));
+    }
+
+    private static LogSegment load(String fileId, Path file) throws Exception {
+        LogSegment segment = new LogSegment(fileId, file, MAPPER, SegmentOptions.defaults());
+        segment.init();
+        try (InputStream in = Files.newInputStream(file)) {
+            new NdjsonLogParser(MAPPER).parse(in,
+                    entry -> segment.addToIndex(entry.logEntry(), entry.offset(), entry.length()));
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,104 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class DetectingLogParserTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final List<String> ENTRIES = IntStream.range(0, 50)
+            .mapToObj(i -> String.format("{\"timestamp\":\"2024-01-01T00:00:%02dZ\",\"level\":\"INFO\","
+                    + "\"message\":\"line %d, with [brackets] and \\\"quotes\\\"\"}", i, i))
+            .toList();
+
+    private static final String NDJSON = String.join("\n", ENTRIES) + "\n";
+    private static final String ARRAY = "[\n  " + String.join(",\n  ", ENTRIES) + "\n]\n";
+
+    private final DetectingLogParser parser = new DetectingLogParser(new JacksonStreamLogParser(MAPPER),
+            new NdjsonLogParser(MAPPER));
+
+    @Test
+    void detectsFormatFromFirstBytes() throws IOException {
+        assertEquals(LogFormat.NDJSON, detect(utf8(NDJSON)));
+        assertEquals(LogFormat.JSON_ARRAY, detect(utf8(ARRAY)));
+        assertEquals(LogFormat.JSON_ARRAY, detect(utf8("\ufeff \r\n\t" + ARRAY)));
+        assertEquals(LogFormat.NDJSON, detect(utf8("\n\n" + NDJSON)));
+        assertEquals(LogFormat.NDJSON, detect(new byte[0]));
+        assertEquals(LogFormat.GZIP, detect(gzip(utf8(ARRAY))));
+        assertEquals(LogFormat.ZSTD, detect(new byte[] { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0 }));
+    }
+
+    @Test
+    void detectionLeavesTheStreamUnread() throws IOException {
+        BufferedInputStream in = DetectingLogParser.buffered(new ByteArrayInputStream(utf8(ARRAY)));
+        LogFormat.detect(in);
+        assertEquals(ARRAY, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void parsesEveryFormatToTheSameEntries() throws IOException {
+        List<Map<String, Object>> expected = new ArrayList<>();
+        for (String entry : ENTRIES) {
+            expected.add(MAPPER.readValue(entry, Map.class));
+        }
+
+        for (byte[] plain : List.of(utf8(NDJSON), utf8(ARRAY), utf8("\ufeff" + ARRAY))) {
+            for (byte[] input : List.of(plain, gzip(plain))) {
+                List<IndexedLogMap> found = parse(input);
+                assertEquals(expected, found.stream().map(IndexedLogMap::logEntry).toList());
+                // offsets point into the inflated bytes
+                for (IndexedLogMap entry : found) {
+                    int start = (int) entry.offset();
+                    byte[] raw = Arrays.copyOfRange(plain, start, start + entry.length());
+                    assertEquals(entry.logEntry(), MAPPER.readValue(raw, Map.class));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsZstandard() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parse(new byte[] { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0, 0, 0, 0 }));
+        assertEquals(DetectingLogParser.unsupported(LogFormat.ZSTD).getMessage(), e.getMessage());
+    }
+
+    private List<IndexedLogMap> parse(byte[] input) {
+        List<IndexedLogMap> found = new ArrayList<>();
+        parser.parse(new ByteArrayInputStream(input), found::add);
+        return found;
+    }
+
+    private static LogFormat detect(byte[] input) throws IOException {
+        return LogFormat.detect(DetectingLogParser.buffered(new ByteArrayInputStream(input)));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CancellationException;
+
+import org.junit.jupiter.api.Test;
+
+class IngestionJobTest {
+
+    @Test
+    void cancelWhileQueuedNeverRuns() {
+        IngestionJob job = new IngestionJob("f", "app.log", 100);
+        assertTrue(job.cancel());
+        assertEquals(IngestionJob.State.CANCELLED, job.getState());
+        assertFalse(job.start());
+    }
+
+    @Test
+    void cancelStopsAtTheNextEntry() {
+        IngestionJob job = new IngestionJob("f", "app.log", 100);
+        assertTrue(job.start());
+        job.addLines(1);
+        assertFalse(job.cancel());
+        CancellationException e = assertThrows(CancellationException.class, () -> job.addLines(1));
+        job.finish(e);
+        assertEquals(IngestionJob.State.CANCELLED, job.getState());
+        assertFalse(job.isCommitted());
+    }
+
+    @Test
+    void cancelAfterTheLastEntryStopsTheCommit() {
+        IngestionJob job = new IngestionJob("f", "app.log", 100);
+        job.start();
+        job.addLines(3);
+        job.cancel();
+        CancellationException e = assertThrows(CancellationException.class, job::commit);
+        assertFalse(job.isCommitted());
+        job.finish(e);
+        assertEquals(IngestionJob.State.CANCELLED, job.getState());
+    }
+
+    @Test
+    void cancelAfterTheCommitIsTooLate() {
+        IngestionJob job = new IngestionJob("f", "app.log", 100);
+        job.start();
+        job.addLines(3);
+        job.commit();
+        assertFalse(job.cancel());
+        assertTrue(job.isCommitted());
+        // nothing left to stop it
+        job.addLines(1);
+        job.finish(null);
+        assertEquals(IngestionJob.State.SUCCEEDED, job.getState());
+        assertEquals(100, job.getBytesProcessed());
+    }
+}
@@ -0,0 +1,204 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.config.LogExplorerProperties;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+import com.aayvyas.log_explorer.core.storage.SegmentOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class JsonArraySplitterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void neverCutsInsideStrings() throws Exception {
+        List<String> entries = trickyEntries(200);
+        Path file = writeArray("tricky.json", entries, "\n  ");
+
+        List<JsonArraySplitter.ByteRange> ranges;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the smallest target makes every top-level object a range of its own
+            ranges = JsonArraySplitter.split(channel, 1);
+        }
+
+        assertEquals(entries.size(), ranges.size());
+        byte[] bytes = Files.readAllBytes(file);
+        for (int i = 0; i < ranges.size(); i++) {
+            JsonArraySplitter.ByteRange range = ranges.get(i);
+            assertEquals('{', bytes[(int) range.start()]);
+            String text = new String(bytes, (int) range.start(), (int) range.length(), StandardCharsets.UTF_8);
+            // the range is the object, plus the comma and whitespace up to the next one
+            assertEquals(MAPPER.readValue(entries.get(i), Map.class),
+                    MAPPER.readValue(text.strip().replaceAll(",$", ""), Map.class));
+        }
+    }
+
+    @Test
+    void rangesCoverEveryEntryOnce() throws Exception {
+        List<String> entries = trickyEntries(300);
+        Path file = writeArray("tricky.json", entries, ",");
+        JacksonStreamLogParser parser = new JacksonStreamLogParser(MAPPER);
+
+        List<Map<String, Object>> parsed = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<JsonArraySplitter.ByteRange> ranges = JsonArraySplitter.split(channel, 700);
+            for (int i = 1; i < ranges.size(); i++) {
+                assertEquals(ranges.get(i - 1).end(), ranges.get(i).start());
+            }
+            for (JsonArraySplitter.ByteRange range : ranges) {
+                parser.parseRange(channel, range, entry -> parsed.add(entry.logEntry()));
+            }
+        }
+
+        assertEquals(entries.size(), parsed.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(MAPPER.readValue(entries.get(i), Map.class), parsed.get(i));
+        }
+    }
+
+    @Test
+    void skipsByteOrderMark() throws Exception {
+        List<String> entries = trickyEntries(300);
+        Path file = Files.writeString(dir.resolve("bom.json"), "\ufeff[\n  " + String.join(",\n  ", entries)
+                + "\n]\n");
+        assertEquals((byte) 0xEF, Files.readAllBytes(file)[0]);
+
+        ParallelLogIngester ingester = new ParallelLogIngester(new JacksonStreamLogParser(MAPPER),
+                properties(3, 4096));
+        try (LogSegment parallel = new LogSegment("bom", file, MAPPER, SegmentOptions.defaults())) {
+            parallel.init();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                assertEquals('{', Files.readAllBytes(file)[(int) JsonArraySplitter.split(channel, 1).get(0).start()]);
+            }
+            ingester.ingest(parallel, null);
+
+            assertEquals(entries.size(), parallel.getDocCount());
+            for (int doc = 0; doc < entries.size(); doc++) {
+                assertEquals(MAPPER.readValue(entries.get(doc), Map.class), parallel.readLog(doc));
+            }
+        } finally {
+            ingester.shutdown();
+        }
+
+        // only at the start, like Jackson
+        Path inside = Files.writeString(dir.resolve("inside.json"), " \ufeff[" + entries.get(0) + "]");
+        try (FileChannel channel = FileChannel.open(inside, StandardOpenOption.READ)) {
+            assertThrows(IllegalStateException.class, () -> JsonArraySplitter.split(channel, 1));
+        }
+    }
+
+    @Test
+    void rejectsWhatIsNotAnArray() throws Exception {
+        Path ndjson = Files.writeString(dir.resolve("a.ndjson"), "{\"a\":1}\n{\"a\":2}\n");
+        Path unterminated = Files.writeString(dir.resolve("b.json"), "[{\"a\":\"]\"},{\"a\":2}");
+
+        for (Path file : List.of(ndjson, unterminated)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                assertThrows(IllegalStateException.class, () -> JsonArraySplitter.split(channel, 1));
+            }
+        }
+    }
+
+    @Test
+    void parallelIngestMatchesSequential() throws Exception {
+        List<String> entries = trickyEntries(2000);
+        Path file = writeArray("big.json", entries, ",\n");
+        SegmentOptions options = new SegmentOptions(Set.of("message"), false, 0,
+                SegmentOptions.DEFAULT_BLOOM_BLOCK_DOCS);
+
+        ParallelLogIngester ingester = new ParallelLogIngester(new JacksonStreamLogParser(MAPPER),
+                properties(3, 4096));
+        try (LogSegment sequential = new LogSegment("seq", file, MAPPER, options);
+                LogSegment parallel = new LogSegment("par", file, MAPPER, options)) {
+            sequential.init();
+            parallel.init();
+            try (InputStream in = Files.newInputStream(file)) {
+                new JacksonStreamLogParser(MAPPER).parse(in,
+                        entry -> sequential.addToIndex(entry.logEntry(), entry.offset(), entry.length()));
+            }
+            ingester.ingest(parallel, null);
+
+            assertEquals(entries.size(), sequential.getDocCount());
+            assertEquals(sequential.getDocCount(), parallel.getDocCount());
+            assertEquals(sequential.getIndexedFields(), parallel.getIndexedFields());
+            assertEquals(sequential.termCount(), parallel.termCount());
+            for (int doc = 0; doc < entries.size(); doc++) {
+                assertArrayEquals(sequential.readRaw(doc), parallel.readRaw(doc));
+                assertEquals(sequential.timeOf(doc), parallel.timeOf(doc));
+            }
+            for (String q : List.of("level=ERROR", "user.id=7", "\"brace\"", "tags=b AND NOT level=INFO",
+                    "message~\"}\"", "n >= 1500")) {
+                QueryNode query = QueryParser.parse(q);
+                assertArrayEquals(matches(sequential, query), matches(parallel, query), q);
+            }
+        } finally {
+            ingester.shutdown();
+        }
+    }
+
+    private static int[] matches(LogSegment segment, QueryNode query) {
+        return segment.matches(query, segment.plan(query), null, null, SortOrder.OLDEST, null).toArray();
+    }
+
+    /**
+     * Entries whose strings hold everything the splitter must not take for
+     * structure: braces, brackets, escaped quotes and backslashes.
+     */
+    private static List<String> trickyEntries(int count) {
+        String[] messages = {
+                "brace } inside",
+                "open { and close } and ] [",
+                "quote \\\" then } brace",
+                "backslash at end \\\\",
+                "escaped backslash then quote \\\\\\\" } still inside",
+                "unicode \\u007d is a brace too",
+                "{\\\"nested\\\":\\\"json\\\"}" };
+        return IntStream.range(0, count)
+                .mapToObj(i -> String.format(
+                        "{\"timestamp\":\"2024-01-01T00:00:%02dZ\",\"level\":\"%s\",\"n\":%d,"
+                                + "\"message\":\"%s %d\",\"user\":{\"id\":%d,\"tags\":[\"a\",\"}\"]},"
+                                + "\"tags\":[\"%s\",{\"k\":\"]\"}]}",
+                        i % 60, i % 4 == 0 ? "ERROR" : "INFO", i, messages[i % messages.length], i, i % 13,
+                        i % 2 == 0 ? "a" : "b"))
+                .toList();
+    }
+
+    private Path writeArray(String name, List<String> entries, String separator) throws Exception {
+        return Files.writeString(dir.resolve(name), "[\n  " + String.join(separator, entries) + "\n]\n");
+    }
+
+    private static LogExplorerProperties properties(int parallelism, long chunkBytes) {
+        return new LogExplorerProperties(
+                new LogExplorerProperties.Ingestion(parallelism, 0, chunkBytes),
+                new LogExplorerProperties.Index(List.of("message"), false, 0, 128),
+                new LogExplorerProperties.Cache(0, false),
+                new LogExplorerProperties.Jobs(1, 1, 1),
+                new LogExplorerProperties.Segments(0, 0, 32),
+                new LogExplorerProperties.Tail(Duration.ofSeconds(1), 1 << 20, 10, Duration.ofSeconds(15)));
+    }
+}
@@ -0,0 +1,211 @@
+package com.aayvyas.log_explorer.core.ingestion;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+import com.aayvyas.log_explorer.core.storage.LogSegment;
+import com.aayvyas.log_explorer.core.storage.SegmentOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class TailReaderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final TailReader reader = new TailReader(MAPPER);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void leavesAPartlyWrittenEntryForTheNextRead() throws Exception {
+        Path file = dir.resolve("app.log");
+        append(file, "{\"n\":0}\n{\"n\":1}\n{\"n\":2,\"message\":\"half");
+
+        TailReader.Batch batch = read(file, 0, 1024);
+        assertEquals(List.of(0, 1), numbers(batch));
+        assertEquals(16, batch.end());
+        // nothing new is complete, the next read resumes at the same place
+        assertEquals(16, read(file, batch.end(), 1024).end());
+        assertTrue(read(file, batch.end(), 1024).entries().isEmpty());
+
+        append(file, " written\"}\n");
+        TailReader.Batch rest = read(file, batch.end(), 1024);
+        assertEquals(List.of(2), numbers(rest));
+        assertEquals(16, rest.entries().get(0).offset());
+        assertEquals(Files.size(file), rest.end());
+        assertEquals("{\"n\":2,\"message\":\"half written\"}", text(file, rest.entries().get(0)));
+    }
+
+    @Test
+    void skipsAppendsOfSeparatorsAlone() throws Exception {
+        Path file = dir.resolve("app.json");
+        append(file, "[\n  {\"n\":0}");
+        long end = read(file, 0, 1024).end();
+
+        for (String separators : List.of(",", "\n  ", " ,\r\n\t")) {
+            append(file, separators);
+            TailReader.Batch batch = read(file, end, 1024);
+            assertTrue(batch.entries().isEmpty(), separators);
+            assertEquals(Files.size(file), batch.end(), separators);
+            end = batch.end();
+        }
+
+        append(file, "{\"n\":1}\n]\n");
+        TailReader.Batch batch = read(file, end, 1024);
+        assertEquals(List.of(1), numbers(batch));
+        assertEquals(Files.size(file), batch.end());
+    }
+
+    @Test
+    void widensTheWindowForAnEntryLargerThanABatch() throws Exception {
+        Path file = dir.resolve("app.log");
+        String large = "{\"n\":1,\"message\":\"" + "x".repeat(10_000) + "\"}";
+        append(file, "{\"n\":0}\n" + large + "\n{\"n\":2}\n");
+
+        // the window holds the first entry, so the large one waits for the next read
+        TailReader.Batch first = read(file, 0, 64);
+        assertEquals(List.of(0), numbers(first));
+        // the window doubles until the large one fits, and takes whatever follows it along
+        TailReader.Batch second = read(file, first.end(), 64);
+        assertEquals(List.of(1, 2), numbers(second));
+        assertEquals(large.length(), second.entries().get(0).length());
+        assertEquals(large, text(file, second.entries().get(0)));
+        assertEquals(Files.size(file), second.end());
+    }
+
+    @Test
+    void skipsBracketsAndCommasAfterAClosedArray() throws Exception {
+        Path file = dir.resolve("app.json");
+        append(file, "[{\"n\":0},{\"n\":1}]");
+        TailReader.Batch batch = read(file, 0, 1024);
+        assertEquals(List.of(0, 1), numbers(batch));
+        assertEquals(Files.size(file), batch.end());
+
+        append(file, "\n]\n,");
+        TailReader.Batch separators = read(file, batch.end(), 1024);
+        assertTrue(separators.entries().isEmpty());
+        assertEquals(Files.size(file), separators.end());
+
+        // a second array, or objects with no array at all
+        append(file, "[{\"n\":2}],\n{\"n\":3}\n");
+        assertEquals(List.of(2, 3), numbers(read(file, separators.end(), 1024)));
+
+        append(file, "42\n");
+        long end = Files.size(file) - 3;
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> read(file, end, 1024));
+        assertTrue(e.getMessage().endsWith("at " + end), e.getMessage());
+    }
+
+    @Test
+    void readsWhatIsLeftOfATruncatedFile() throws Exception {
+        Path file = dir.resolve("app.log");
+        append(file, "{\"n\":0}\n{\"n\":1}\n{\"n\":2}\n");
+        long size = Files.size(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.truncate(20);
+            // the size was taken before the file shrank
+            TailReader.Batch batch = reader.read(channel, 0, size, 1024);
+            assertEquals(List.of(0, 1), numbers(batch));
+            assertEquals(16, batch.end());
+
+            TailReader.Batch past = reader.read(channel, 22, size, 1024);
+            assertTrue(past.entries().isEmpty());
+            assertEquals(22, past.end());
+        }
+    }
+
+    @Test
+    void appendedEntriesArePlannedAtTheirOrdinals() throws Exception {
+        Path file = dir.resolve("app.log");
+        append(file, lines(0, 100));
+        LogSegment segment = new LogSegment("app.log", file, MAPPER, SegmentOptions.defaults());
+        segment.init();
+        try (InputStream in = Files.newInputStream(file)) {
+            new NdjsonLogParser(MAPPER).parse(in,
+                    entry -> segment.addToIndex(entry.logEntry(), entry.offset(), entry.length()));
+        }
+        segment.buildColumns();
+        long generation = segment.getGeneration();
+
+        append(file, lines(100, 250));
+        // batches of about 1 KB, the way a follower polls
+        List<IndexedLogMap> appended = new ArrayList<>();
+        for (long end = segment.indexedEnd() + 1; end < Files.size(file);) {
+            TailReader.Batch batch = read(file, end, 1024);
+            assertEquals(segment.getDocCount(), segment.append(batch.entries()));
+            appended.addAll(batch.entries());
+            end = batch.end();
+        }
+        assertEquals(150, appended.size());
+        assertEquals(250, segment.getDocCount());
+        assertEquals(Files.size(file) - 1, segment.indexedEnd());
+        assertFalse(segment.hasColumns());
+        assertTrue(segment.getGeneration() > generation);
+
+        for (int doc = 100; doc < 250; doc++) {
+            assertEquals(appended.get(doc - 100).logEntry(), segment.readLog(doc));
+        }
+        for (String query : List.of("level=ERROR", "service=payment AND latency_ms >= 500", "n=17 OR n=217",
+                "timeout AND level=WARN", "NOT served")) {
+            QueryNode node = QueryParser.parse(query);
+            int[] expected = IntStream.range(0, 250).filter(doc -> node.matches(
+                    JsonFlattener.flatten(segment.readLog(doc)), SegmentOptions.DEFAULT_TEXT_FIELDS)).toArray();
+            assertTrue(expected.length > 0 && expected[expected.length - 1] >= 100, query);
+            assertArrayEquals(expected, segment.matches(node, segment.plan(node), null, null, SortOrder.OLDEST,
+                    null).toArray(), query);
+            assertArrayEquals(expected, segment.planExact(node).docs(), query);
+        }
+    }
+
+    private static String lines(int from, int to) {
+        String[] levels = { "INFO", "WARN", "ERROR" };
+        String[] services = { "gateway", "payment", "search" };
+        StringBuilder lines = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            lines.append(String.format("{\"n\":%d,\"level\":\"%s\",\"service\":\"%s\",\"latency_ms\":%d,"
+                    + "\"message\":\"request %d %s\"}\n", i, levels[i % 3], services[i % 7 % 3], i * 7 % 1000, i,
+                    i % 2 == 0 ? "served" : "failed with timeout"));
+        }
+        return lines.toString();
+    }
+
+    private TailReader.Batch read(Path file, long from, int maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return reader.read(channel, from, channel.size(), maxBytes);
+        }
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static List<Integer> numbers(TailReader.Batch batch) {
+        return batch.entries().stream().map(entry -> (Integer) entry.logEntry().get("n")).toList();
+    }
+
+    private static String text(Path file, IndexedLogMap entry) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        return new String(bytes, (int) entry.offset(), entry.length(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,120 @@
+package com.aayvyas.log_explorer.core.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class QueryParserTest {
+
+    @Test
+    void notBindsTighterThanAndThanOr() {
+        assertEquals(or(field("a", "1"), and(field("b", "2"), new QueryNode.Not(field("c", "3")))),
+                QueryParser.parse("a=1 OR b=2 AND NOT c=3"));
+        assertEquals(and(new QueryNode.Not(field("a", "1")), field("b", "2")),
+                QueryParser.parse("NOT a=1 AND b=2"));
+        assertEquals(or(and(field("a", "1"), field("b", "2")), field("c", "3")),
+                QueryParser.parse("a=1 b=2 || c=3"));
+        assertEquals(and(or(field("a", "1"), field("b", "2")), field("c", "3")),
+                QueryParser.parse("(a=1 or b=2) && c=3"));
+        assertEquals(new QueryNode.Not(new QueryNode.Not(field("a", "1"))), QueryParser.parse("not NOT a=1"));
+        assertEquals(new QueryNode.Not(field("level", "INFO")), QueryParser.parse("level!=INFO"));
+    }
+
+    @Test
+    void blankQueryMatchesEverything() {
+        assertEquals(new QueryNode.And(List.of()), QueryParser.parse(null));
+        assertEquals(new QueryNode.And(List.of()), QueryParser.parse("  "));
+    }
+
+    @Test
+    void quotingDecidesPhrasesAndWildcards() {
+        assertEquals(text(null, "timeout", TextQuery.Mode.SUBSTRING), QueryParser.parse("timeout"));
+        assertEquals(text(null, "health check", TextQuery.Mode.PHRASE), QueryParser.parse("\"health check\""));
+        assertEquals(text("message", "disk full", TextQuery.Mode.SUBSTRING),
+                QueryParser.parse("message~'disk full'"));
+        assertEquals(new QueryNode.FieldMatch("service", "payment-*", true), QueryParser.parse("service=payment-*"));
+        assertEquals(new QueryNode.FieldMatch("service", "payment-*", false),
+                QueryParser.parse("service=\"payment-*\""));
+        assertEquals(field("msg", "a (b) = c"), QueryParser.parse("msg='a (b) = c'"));
+        // keywords and operators inside quotes are plain text
+        assertEquals(field("op", "AND"), QueryParser.parse("op=\"AND\""));
+        assertEquals(and(text(null, "x", TextQuery.Mode.SUBSTRING), text(null, "or", TextQuery.Mode.PHRASE)),
+                QueryParser.parse("x 'or'"));
+    }
+
+    @Test
+    void decodesEscapesInQuotes() {
+        assertEquals(field("m", "say \"hi\""), QueryParser.parse("m=\"say \\\"hi\\\"\""));
+        assertEquals(field("m", "it's"), QueryParser.parse("m='it\\'s'"));
+        assertEquals(field("m", "a\\b"), QueryParser.parse("m=\"a\\\\b\""));
+        assertEquals(field("m", "tab\there\nnext\r"), QueryParser.parse("m=\"tab\\there\\nnext\\r\""));
+        assertEquals(field("m", "A\u00e9"), QueryParser.parse("m=\"\\u0041\\u00E9\""));
+    }
+
+    @Test
+    void keepsOtherEscapesVerbatim() {
+        assertEquals(new QueryNode.RegexMatch("msg", "a\\.b"), QueryParser.parse("msg=~\"a\\.b\""));
+        assertEquals(new QueryNode.RegexMatch("msg", "\\d+ ms$"), QueryParser.parse("msg=~'\\d+ ms$'"));
+        // an escaped backslash still decodes, then escapes the dot for the regex
+        assertEquals(new QueryNode.RegexMatch("msg", "a\\.b"), QueryParser.parse("msg=~\"a\\\\.b\""));
+        assertEquals(field("path", "C:\\logs"), QueryParser.parse("path=\"C:\\logs\""));
+        // bare words never decoded anything
+        assertEquals(new QueryNode.RegexMatch("msg", "\\d+"), QueryParser.parse("msg=~\\d+"));
+    }
+
+    @Test
+    void parsesRangesAndRegexes() {
+        assertEquals(new QueryNode.Range("latency_ms", 500, false, Double.POSITIVE_INFINITY, true),
+                QueryParser.parse("latency_ms > 500"));
+        assertEquals(new QueryNode.Range("latency_ms", Double.NEGATIVE_INFINITY, true, 1.5, true),
+                QueryParser.parse("latency_ms<=1.5"));
+        assertEquals(new QueryNode.Range("latency_ms", 100, true, 200, true),
+                QueryParser.parse("latency_ms BETWEEN 100 AND 200"));
+        assertEquals(and(field("a", "1"), new QueryNode.Range("b", 1, true, 2, true)),
+                QueryParser.parse("a=1 AND b between 1 and 2"));
+        assertEquals(new QueryNode.RegexMatch("user.id", "^42"), QueryParser.parse("user.id=~^42"));
+    }
+
+    @Test
+    void errorsPointAtTheOffendingToken() {
+        assertError("level=", 6, "Expected a field or value but found end of query");
+        assertError("(a=1", 4, "Expected ')' but found end of query");
+        assertError("a=1)", 3, "Expected end of query but found ')'");
+        assertError("a=1 OR", 6, "Expected a field or value");
+        assertError("a=1 AND AND b=2", 8, "Expected a field or value but found 'AND'");
+        assertError("msg=\"abc", 4, "Unterminated quoted string");
+        assertError("latency_ms > fast", 13, "Expected a number but found 'fast'");
+        assertError("\"level\"=ERROR", 0, "Field name must not be quoted");
+        assertError("msg=~\"(\"", 5, "Invalid regex");
+        assertError("msg~\"\"", 4, "Empty search text");
+        assertError("m=\"\\u12zz\"", 3, "Invalid \\u escape");
+        assertError("m=\"\\u1", 3, "Incomplete \\u escape");
+    }
+
+    private static void assertError(String query, int position, String message) {
+        QueryParseException e = assertThrows(QueryParseException.class, () -> QueryParser.parse(query));
+        assertEquals(position, e.getPosition(), query);
+        assertTrue(e.getMessage().startsWith(message), e.getMessage());
+        assertTrue(e.getMessage().endsWith("at position " + position + ": " + query), e.getMessage());
+    }
+
+    private static QueryNode field(String field, String value) {
+        return new QueryNode.FieldMatch(field, value, false);
+    }
+
+    private static QueryNode text(String field, String text, TextQuery.Mode mode) {
+        return new QueryNode.TextMatch(new TextQuery(field, text, mode));
+    }
+
+    private static QueryNode and(QueryNode... children) {
+        return new QueryNode.And(List.of(children));
+    }
+
+    private static QueryNode or(QueryNode... children) {
+        return new QueryNode.Or(List.of(children));
+    }
+}
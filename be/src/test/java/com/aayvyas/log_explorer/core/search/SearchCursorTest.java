@@ -0,0 +1,46 @@
+package com.aayvyas.log_explorer.core.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+class SearchCursorTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        for (SearchCursor cursor : new SearchCursor[] { new SearchCursor(1_704_067_200_000L, 42),
+                new SearchCursor(Long.MIN_VALUE, 0), new SearchCursor(Long.MAX_VALUE, Integer.MAX_VALUE),
+                new SearchCursor(-1, -1) }) {
+            String token = cursor.encode();
+            assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+            assertEquals(cursor, SearchCursor.decode(token));
+        }
+    }
+
+    @Test
+    void blankTokenIsNoCursor() {
+        assertNull(SearchCursor.decode(null));
+        assertNull(SearchCursor.decode(""));
+        assertNull(SearchCursor.decode(" "));
+    }
+
+    @Test
+    void rejectsForeignTokens() {
+        String valid = new SearchCursor(5, 7).encode();
+        byte[] bytes = Base64.getUrlDecoder().decode(valid);
+        bytes[0]++;
+        String otherVersion = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        for (String token : new String[] { "not a cursor!", valid.substring(1), valid + "AA", otherVersion,
+                new FederatedCursor(5, "app.log", 7).encode() }) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> SearchCursor.decode(token));
+            assertEquals("Invalid cursor: " + token, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlockCompressedFileTest {
+
+    private static final int BLOCK_BYTES = 256;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackEveryEntry() throws IOException {
+        List<String> lines = TestLogs.entries(200);
+        long[] ends = new long[lines.size()];
+        ByteArrayOutputStream original = new ByteArrayOutputStream();
+        Path path = dir.resolve("app.log.lxb");
+        try (BlockCompressedWriter writer = new BlockCompressedWriter(Files.newOutputStream(path), BLOCK_BYTES)) {
+            for (int i = 0; i < lines.size(); i++) {
+                byte[] line = (lines.get(i) + "\n").getBytes(StandardCharsets.UTF_8);
+                writer.write(line);
+                original.write(line);
+                ends[i] = original.size();
+                writer.markEntryEnd(ends[i]);
+            }
+        }
+        byte[] bytes = original.toByteArray();
+
+        assertTrue(BlockCompressedFile.isBlockCompressed(path));
+        try (BlockCompressedFile file = new BlockCompressedFile(path)) {
+            assertEquals(bytes.length, file.size());
+            // blocks are cut at the first entry end at or past the block size
+            assertTrue(file.blockCount() > 1 && file.blockCount() <= bytes.length / BLOCK_BYTES, "blocks");
+            long start = 0;
+            for (int i = 0; i < lines.size(); i++) {
+                byte[] entry = new byte[(int) (ends[i] - start)];
+                assertEquals(entry.length, file.read(start, entry, 0, entry.length));
+                assertEquals(lines.get(i) + "\n", new String(entry, StandardCharsets.UTF_8));
+                start = ends[i];
+            }
+            assertReadsLike(bytes, file);
+        }
+    }
+
+    @Test
+    void cutsBlocksWithoutEntryEnds() throws IOException {
+        // no boundaries reported: blocks of 64 * blockBytes, the rest is the partial last block
+        byte[] bytes = new byte[BLOCK_BYTES * 64 * 3 + 1000];
+        new Random(5).nextBytes(bytes);
+        Path path = dir.resolve("random.lxb");
+        try (OutputStream writer = new BlockCompressedWriter(Files.newOutputStream(path), BLOCK_BYTES)) {
+            for (int off = 0; off < bytes.length; off += BLOCK_BYTES) {
+                writer.write(bytes, off, Math.min(BLOCK_BYTES, bytes.length - off));
+            }
+        }
+        try (BlockCompressedFile file = new BlockCompressedFile(path)) {
+            assertEquals(4, file.blockCount());
+            assertReadsLike(bytes, file);
+        }
+    }
+
+    @Test
+    void emptyFileHasNoBlocks() throws IOException {
+        Path path = dir.resolve("empty.lxb");
+        new BlockCompressedWriter(Files.newOutputStream(path), BLOCK_BYTES).close();
+        try (BlockCompressedFile file = new BlockCompressedFile(path)) {
+            assertEquals(0, file.size());
+            assertEquals(0, file.blockCount());
+            assertEquals(-1, file.read(0, new byte[1], 0, 1));
+        }
+    }
+
+    @Test
+    void rejectsOtherAndTruncatedFiles() throws IOException {
+        Path plain = TestLogs.write(dir, "plain.log", TestLogs.entries(5));
+        assertFalse(BlockCompressedFile.isBlockCompressed(plain));
+        assertThrows(IOException.class, () -> new BlockCompressedFile(plain));
+
+        Path path = dir.resolve("app.log.lxb");
+        try (OutputStream writer = new BlockCompressedWriter(Files.newOutputStream(path), BLOCK_BYTES)) {
+            writer.write(String.join("\n", TestLogs.entries(50)).getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] stored = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(stored, stored.length - 3));
+        assertThrows(IOException.class, () -> new BlockCompressedFile(path));
+    }
+
+    // every position, reads that stay in a block, cross one boundary or several, and run past the end
+    private static void assertReadsLike(byte[] expected, StoredLog file) throws IOException {
+        for (int length : new int[] { 1, 7, BLOCK_BYTES + 1, BLOCK_BYTES * 70 }) {
+            byte[] buffer = new byte[length + 2];
+            for (int position = 0; position < expected.length; position += length < 10 ? 1 : 13) {
+                int n = file.read(position, buffer, 2, length);
+                int want = Math.min(length, expected.length - position);
+                assertEquals(want, n, "read of " + length + " at " + position);
+                assertArrayEquals(Arrays.copyOfRange(expected, position, position + want),
+                        Arrays.copyOfRange(buffer, 2, 2 + n), "read of " + length + " at " + position);
+            }
+        }
+        assertEquals(-1, file.read(expected.length, new byte[1], 0, 1));
+    }
+}
@@ -0,0 +1,182 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.search.Aggregations;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+
+class BloomIndexTest {
+
+    private static final int BLOCK_DOCS = 4;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void candidatesAreTheBlocksOfEveryDocWithTheValue() {
+        BloomIndex blooms = new BloomIndex(BLOCK_DOCS);
+        Map<String, List<Integer>> docs = values(blooms, 0, 50);
+
+        for (Map.Entry<String, List<Integer>> value : docs.entrySet()) {
+            assertCandidates(value.getValue(), 50, blooms.candidates(value.getKey(), 50), value.getKey());
+        }
+        // docs 12 to 19 have no values, their blocks are empty filters
+        assertArrayEquals(new int[0], blooms.candidates("missing", 50));
+        assertArrayEquals(new int[0], blooms.candidates("trace-13", 50));
+        // the open block is searched by its hashes, and cut at the doc count
+        assertArrayEquals(new int[] { 48, 49 }, blooms.candidates("trace-49", 50));
+        assertArrayEquals(new int[] { 48 }, blooms.candidates("trace-49", 49));
+    }
+
+    @Test
+    void addAllMatchesAddingDocByDoc() {
+        // values shared across blocks, and one doc with two values
+        FieldIndex partial = new FieldIndex();
+        for (int doc = 0; doc < 30; doc++) {
+            partial.add("user-" + doc % 7, doc);
+            partial.add("trace-" + doc, doc);
+        }
+        partial.add("extra", 9);
+
+        BloomIndex byDoc = new BloomIndex(BLOCK_DOCS);
+        values(byDoc, 0, 10);
+        BloomIndex appended = new BloomIndex(BLOCK_DOCS);
+        values(appended, 0, 10);
+        for (int doc = 0; doc < 30; doc++) {
+            byDoc.add("user-" + doc % 7, doc + 10);
+            byDoc.add("trace-" + doc, doc + 10);
+            if (doc == 9) {
+                byDoc.add("extra", doc + 10);
+            }
+        }
+        // the partial's docs follow the 10 already added, which end mid-block
+        appended.addAll(partial, 10);
+
+        for (String value : List.of("user-0", "user-6", "trace-0", "trace-29", "trace-3", "extra", "missing")) {
+            assertArrayEquals(byDoc.candidates(value, 40), appended.candidates(value, 40), value);
+        }
+        assertArrayEquals(new int[] { 16, 17, 18, 19 }, appended.candidates("extra", 40));
+        // user-0 is in doc 0 and in docs 10, 17, 24, 31 and 38 of the partial
+        assertArrayEquals(blocksOf(List.of(0, 10, 17, 24, 31, 38), 40), appended.candidates("user-0", 40));
+    }
+
+    @Test
+    void roundTripsClosedAndOpenBlocks() throws IOException {
+        BloomIndex blooms = new BloomIndex(BLOCK_DOCS);
+        Map<String, List<Integer>> docs = values(blooms, 0, 50);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            blooms.writeTo(out);
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        BloomIndex read = BloomIndex.readFrom(in);
+        assertEquals(0, in.remaining());
+        assertEquals(BLOCK_DOCS, read.blockDocs());
+        assertEquals(blooms.estimatedBytes(), read.estimatedBytes());
+        for (String value : docs.keySet()) {
+            assertArrayEquals(blooms.candidates(value, 50), read.candidates(value, 50), value);
+        }
+
+        // a loaded index takes more docs, the open block carries on where it was
+        values(read, 50, 60).forEach((value, added) -> docs.computeIfAbsent(value, k -> new ArrayList<>())
+                .addAll(added));
+        read.add("trace-1", 59);
+        docs.get("trace-1").add(59);
+        for (Map.Entry<String, List<Integer>> value : docs.entrySet()) {
+            assertCandidates(value.getValue(), 60, read.candidates(value.getKey(), 60), value.getKey());
+        }
+    }
+
+    @Test
+    void rejectsEmptyBlocks() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomIndex(0));
+    }
+
+    @Test
+    void policyOnlyMovesUniqueNonNumericFields() throws Exception {
+        List<String> lines = IntStream.range(0, 300)
+                .mapToObj(i -> String.format("{\"traceId\":\"t-%05d\",\"session\":\"s-%d\",\"latency_ms\":%d,"
+                        + "\"level\":\"%s\",\"message\":\"request %d\"}", i, i / 4, i * 7 % 1000,
+                        i % 3 == 0 ? "ERROR" : "INFO", i))
+                .toList();
+        Path file = TestLogs.write(dir, "app.log", lines);
+
+        long before = LogSegment.bloomFieldsIndexed();
+        LogSegment segment = TestLogs.index(file, new SegmentOptions(SegmentOptions.DEFAULT_TEXT_FIELDS, false, 50,
+                16));
+        // message is a text field, latency_ms a number, session has a value for every 4 docs
+        assertEquals(Set.of("traceId"), segment.bloomIndex().keySet());
+        assertEquals(1, LogSegment.bloomFieldsIndexed() - before);
+        assertEquals(16, segment.bloomIndex().get("traceId").blockDocs());
+        assertTrue(segment.plan(QueryParser.parse("latency_ms BETWEEN 0 AND 20")).exact());
+        assertEquals(List.of("request 42"), segment.suggestValues("message", "request 42", 5).stream()
+                .map(Aggregations.ValueCount::value).toList());
+
+        // 0 keeps postings for every field
+        LogSegment postings = TestLogs.index(file, new SegmentOptions(SegmentOptions.DEFAULT_TEXT_FIELDS, false, 0,
+                16));
+        assertTrue(postings.bloomIndex().isEmpty());
+        assertEquals(1, LogSegment.bloomFieldsIndexed() - before);
+    }
+
+    /**
+     * Adds {@code trace-<doc>} to every doc in {@code [from, to)} but 12 to
+     * 19, and {@code user-<doc % 5>} to every third.
+     */
+    private static Map<String, List<Integer>> values(BloomIndex blooms, int from, int to) {
+        Map<String, List<Integer>> docs = new LinkedHashMap<>();
+        for (int doc = from; doc < to; doc++) {
+            if (doc >= 12 && doc < 20) {
+                continue;
+            }
+            blooms.add("trace-" + doc, doc);
+            docs.computeIfAbsent("trace-" + doc, k -> new ArrayList<>()).add(doc);
+            if (doc % 3 == 0) {
+                blooms.add("user-" + doc % 5, doc);
+                docs.computeIfAbsent("user-" + doc % 5, k -> new ArrayList<>()).add(doc);
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * Every doc below {@code docCount} of the blocks holding {@code docs}, and
+     * maybe whole blocks more: filters of a few values give false positives
+     * far more often than full ones.
+     */
+    private static void assertCandidates(List<Integer> docs, int docCount, int[] candidates, String message) {
+        Set<Integer> blocks = new HashSet<>();
+        for (int candidate : candidates) {
+            blocks.add(candidate / BLOCK_DOCS);
+        }
+        docs.forEach(doc -> assertTrue(blocks.contains(doc / BLOCK_DOCS), message + " in doc " + doc));
+        assertArrayEquals(IntStream.range(0, docCount).filter(doc -> blocks.contains(doc / BLOCK_DOCS)).toArray(),
+                candidates, message);
+    }
+
+    private static int[] blocksOf(List<Integer> docs, int docCount) {
+        return IntStream.range(0, docCount)
+                .filter(doc -> docs.stream().anyMatch(d -> d / BLOCK_DOCS == doc / BLOCK_DOCS))
+                .toArray();
+    }
+}
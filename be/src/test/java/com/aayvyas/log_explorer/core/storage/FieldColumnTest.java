@@ -0,0 +1,219 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.ingestion.JsonFlattener;
+import com.aayvyas.log_explorer.core.search.Aggregations;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+
+/**
+ * Columns checked against reading the entries: verified text candidates,
+ * exact plans and filtered facets of a segment with columns against the
+ * same segment without them and against every entry parsed.
+ */
+class FieldColumnTest {
+
+    private static final int DOCS = 3000;
+
+    // the docs carrying ctx.region twice are the only odd ones with a region, so the timeout queries on it
+    // verify nothing but ambiguous docs
+    // level, code and user take 3, 7 and 12 bits a doc; none of those divides 64, so ids straddle words
+    private static final List<String> QUERIES = List.of(
+            "timeout AND level=L1",
+            "timeout AND code=c-7",
+            "served AND NOT code=c-3",
+            "served AND user=u-1*",
+            "timeout AND code~c-1",
+            "timeout AND latency_ms > 500",
+            "ctx.region=r-1 AND timeout",
+            "ctx.region=r-2 AND served",
+            "timeout AND NOT ctx.region=r-2",
+            "NOT timeout");
+
+    private static final List<String> FACETS = List.of("level", "code", "user", "ctx.region");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesEveryIdAtEachWidth() {
+        // 3, 7 and 17 bits; ids are ints, so 31 bits is the widest a column can get
+        for (int terms : List.of(5, 100, 70_000)) {
+            int docCount = 2 * terms + 3;
+            FieldIndex values = new FieldIndex();
+            for (int doc = 0; doc < docCount; doc++) {
+                if (doc % 9 == 4) {
+                    continue;
+                }
+                values.add("v-" + doc % terms, doc);
+                if (doc % 31 == 0) {
+                    values.add("second", doc);
+                }
+            }
+            FieldColumn column = new FieldColumn(values, docCount);
+
+            assertEquals(values.termCount(), column.termCount());
+            assertTrue(column.hasAmbiguous());
+            for (int doc = 0; doc < docCount; doc++) {
+                String message = terms + " values, doc " + doc;
+                if (doc % 9 == 4) {
+                    assertEquals(-1, column.id(doc), message);
+                    assertNull(column.value(doc), message);
+                } else if (doc % 31 == 0) {
+                    assertTrue(column.isAmbiguous(doc), message);
+                    assertTrue(Set.of("v-" + doc % terms, "second").contains(column.value(doc)), message);
+                } else {
+                    assertFalse(column.isAmbiguous(doc), message);
+                    assertEquals(values.find("v-" + doc % terms), column.id(doc), message);
+                    assertEquals("v-" + doc % terms, column.value(doc), message);
+                }
+            }
+            assertEquals(-1, column.id(docCount));
+        }
+    }
+
+    @Test
+    void rowsAreInexactOnAmbiguousAndUncolumnedFields() {
+        FieldIndex levels = new FieldIndex();
+        levels.add("INFO", 0);
+        levels.add("WARN", 1);
+        levels.add("ERROR", 1);
+        ColumnRow row = new ColumnRow(Map.of("level", new FieldColumn(levels, 3)), Set.of("traceId"));
+
+        row.moveTo(0);
+        assertEquals("INFO", row.get("level"));
+        assertNull(row.get("service"));
+        assertTrue(row.isExact());
+        assertNull(row.get("traceId"));
+        assertFalse(row.isExact());
+
+        row.moveTo(1);
+        assertTrue(Set.of("WARN", "ERROR").contains(row.get("level")));
+        assertFalse(row.isExact());
+
+        row.moveTo(2);
+        assertFalse(row.containsKey("level"));
+        assertTrue(row.isExact());
+        assertTrue(row.entrySet().isEmpty());
+        assertFalse(row.isExact());
+    }
+
+    @Test
+    void columnsMatchReadingTheEntries() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", lines());
+        LogSegment columned = TestLogs.index(file, options(0));
+        columned.buildColumns();
+        assertTrue(columned.hasColumns());
+        LogSegment parsed = TestLogs.index(file, options(0));
+
+        for (String query : QUERIES) {
+            QueryNode node = QueryParser.parse(query);
+            int[] expected = matching(columned, node);
+            assertTrue(expected.length > 0, query);
+            assertFalse(columned.plan(node).exact(), query);
+            assertArrayEquals(expected, verified(columned, node), query);
+            assertArrayEquals(expected, verified(parsed, node), query);
+            assertArrayEquals(expected, columned.planExact(node).docs(), query);
+
+            DocSet exact = columned.planExact(node);
+            Aggregations aggregations = aggregate(columned, exact);
+            assertEquals(aggregate(parsed, parsed.planExact(node)), aggregations, query);
+            for (String field : List.of("level", "code", "user")) {
+                assertEquals(topValues(columned, expected, field), aggregations.facets().get(field),
+                        query + " " + field);
+            }
+        }
+        // every doc, and a handful among thousands of users
+        assertEquals(aggregate(parsed, null), aggregate(columned, null));
+        QueryNode few = QueryParser.parse("user=u-1* AND level=L2");
+        assertEquals(topValues(columned, matching(columned, few), "user"),
+                aggregate(columned, columned.planExact(few)).facets().get("user"));
+    }
+
+    @Test
+    void bloomFieldsAreReadFromTheEntry() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", lines());
+        LogSegment segment = TestLogs.index(file, options(50));
+        segment.buildColumns();
+        assertTrue(segment.bloomIndex().containsKey("traceId"));
+        assertFalse(segment.bloomIndex().containsKey("level"));
+
+        for (String query : List.of("timeout AND traceId=trace-00041", "served AND traceId~004",
+                "timeout AND NOT traceId~7", "traceId~0001 OR served", "timeout AND level=L3 AND user~u-2")) {
+            QueryNode node = QueryParser.parse(query);
+            int[] expected = matching(segment, node);
+            assertTrue(expected.length > 0, query);
+            assertArrayEquals(expected, verified(segment, node), query);
+            assertArrayEquals(expected, segment.planExact(node).docs(), query);
+        }
+    }
+
+    /**
+     * Five levels, a hundred codes and a user nearly unique per doc. Some docs
+     * have no code, and every 13th carries {@code ctx.region} twice: as a
+     * dotted key and nested, the entry reading as the nested one.
+     */
+    private static List<String> lines() {
+        return IntStream.range(0, DOCS).mapToObj(i -> {
+            String region = i % 13 == 0 ? "\"ctx.region\":\"r-a\",\"ctx\":{\"region\":\"r-" + i % 4 + "\"},"
+                    : i % 2 == 0 ? "\"ctx\":{\"region\":\"r-" + i % 4 + "\"}," : "";
+            String code = i % 17 == 0 ? "" : "\"code\":\"c-" + i % 100 + "\",";
+            return String.format("{\"timestamp\":\"2024-01-01T%02d:%02d:%02dZ\",\"level\":\"L%d\",%s%s"
+                    + "\"user\":\"u-%d\",\"traceId\":\"trace-%05d\",\"latency_ms\":%d,\"message\":\"request %d %s\"}",
+                    i / 3600, i / 60 % 60, i % 60, i % 5, code, region, i * 7 % 2999, i, i * 7 % 1000, i,
+                    i % 2 == 0 ? "served" : "failed with timeout");
+        }).toList();
+    }
+
+    private static SegmentOptions options(int bloomMinTerms) {
+        return new SegmentOptions(SegmentOptions.DEFAULT_TEXT_FIELDS, true, bloomMinTerms, 16);
+    }
+
+    private static int[] verified(LogSegment segment, QueryNode query) {
+        return segment.matches(query, segment.plan(query), null, null, SortOrder.OLDEST, null).toArray();
+    }
+
+    private static Aggregations aggregate(LogSegment segment, DocSet planned) {
+        return segment.aggregate(planned, null, null, FACETS, 10, List.of("latency_ms"), List.of(50.0, 99.0),
+                null);
+    }
+
+    // most frequent values counted from the parsed entries, ties by value
+    private static List<Aggregations.ValueCount> topValues(LogSegment segment, int[] docs, String field) {
+        Map<String, Long> counts = new HashMap<>();
+        for (int doc : docs) {
+            String value = JsonFlattener.flatten(segment.readLog(doc)).get(field);
+            if (value != null) {
+                counts.merge(value, 1L, Long::sum);
+            }
+        }
+        List<Aggregations.ValueCount> top = new ArrayList<>();
+        counts.forEach((value, count) -> top.add(new Aggregations.ValueCount(value, count)));
+        top.sort(Comparator.comparingLong(Aggregations.ValueCount::count).reversed()
+                .thenComparing(Aggregations.ValueCount::value));
+        return top.subList(0, Math.min(10, top.size()));
+    }
+
+    private static int[] matching(LogSegment segment, QueryNode query) {
+        return IntStream.range(0, segment.getDocCount()).filter(doc -> query.matches(
+                JsonFlattener.flatten(segment.readLog(doc)), SegmentOptions.DEFAULT_TEXT_FIELDS)).toArray();
+    }
+}
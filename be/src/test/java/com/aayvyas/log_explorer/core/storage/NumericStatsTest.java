@@ -0,0 +1,158 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.ingestion.JsonFlattener;
+import com.aayvyas.log_explorer.core.search.Aggregations;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+
+/**
+ * Numeric stats checked against sorting the values read from every matching
+ * entry.
+ */
+class NumericStatsTest {
+
+    private static final int DOCS = 3000;
+
+    private static final List<Double> PERCENTILES = List.of(1.0, 25.0, 50.0, 90.0, 99.0, 99.9, 100.0);
+
+    // every doc, most docs, a few docs over thousands of values, and none with a number
+    private static final List<String> QUERIES = List.of("", "NOT level=ERROR", "level=WARN", "bucket=b7",
+            "bucket=b7 OR bucket=b8", "latency BETWEEN 0 AND 10", "latency BETWEEN 5 AND 5", "latency=n/a",
+            "level=NOPE");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void statsMatchTheValuesOfTheEntries() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", lines());
+        LogSegment postings = TestLogs.index(file);
+        LogSegment columned = TestLogs.index(file, new SegmentOptions(SegmentOptions.DEFAULT_TEXT_FIELDS, true,
+                0, 16));
+        columned.buildColumns();
+
+        for (String query : QUERIES) {
+            QueryNode node = QueryParser.parse(query);
+            int[] docs = IntStream.range(0, DOCS).filter(doc -> QueryNode.isMatchAll(node) || node.matches(
+                    JsonFlattener.flatten(postings.readLog(doc)), SegmentOptions.DEFAULT_TEXT_FIELDS)).toArray();
+            Aggregations.NumericStats expected = stats(postings, docs);
+            assertTrue(expected != null || query.contains("n/a") || query.contains("NOPE"), query);
+
+            // the postings of every value, then with columns a counter per value or runs of sorted ids
+            assertEquals(expected, stats(postings, postings.planExact(node)), query);
+            assertEquals(expected, stats(columned, columned.planExact(node)), query);
+        }
+    }
+
+    @Test
+    void equalValuesKeepTheOrderOfTheirIds() {
+        FieldIndex field = new FieldIndex();
+        List<String> terms = List.of("5.0", "x", "5", "4", "5e0", "-1", "0.5e1", "abc", "6");
+        for (int doc = 0; doc < terms.size(); doc++) {
+            field.add(terms.get(doc), doc);
+        }
+        NumericValues numeric = field.numeric();
+        assertEquals(7, numeric.size());
+        int[] ids = IntStream.range(0, numeric.size()).map(numeric::id).toArray();
+        assertArrayEquals(new int[] { 5, 3, 0, 2, 4, 6, 8 }, ids);
+        assertArrayEquals(new double[] { -1, 4, 5, 5, 5, 5, 6 },
+                IntStream.range(0, numeric.size()).mapToDouble(numeric::value).toArray());
+
+        // many ties in a shuffled order, so merges interleave equal values from both halves
+        FieldIndex shuffled = new FieldIndex();
+        Random random = new Random(7);
+        for (int doc = 0; doc < 2000; doc++) {
+            int value = random.nextInt(40);
+            shuffled.add(random.nextBoolean() ? Integer.toString(value) : value + "." + "0".repeat(doc % 5 + 1),
+                    doc);
+        }
+        NumericValues sorted = shuffled.numeric();
+        assertEquals(shuffled.termCount(), sorted.size());
+        for (int position = 1; position < sorted.size(); position++) {
+            assertTrue(sorted.value(position - 1) < sorted.value(position)
+                    || sorted.value(position - 1) == sorted.value(position)
+                            && sorted.id(position - 1) < sorted.id(position), "position " + position);
+        }
+    }
+
+    @Test
+    void numbersWrittenTwoWaysAreOneValue() throws Exception {
+        // "5" and "5.0" are two values of the same number, each doc is counted under its own
+        Path file = TestLogs.write(dir, "ties.log", List.of("{\"latency\":5.0}", "{\"latency\":5}",
+                "{\"latency\":\"5\"}", "{\"latency\":4}", "{\"latency\":5.0}", "{\"latency\":6}"));
+        for (boolean columns : List.of(false, true)) {
+            LogSegment segment = TestLogs.index(file, new SegmentOptions(SegmentOptions.DEFAULT_TEXT_FIELDS,
+                    columns, 0, 16));
+            if (columns) {
+                segment.buildColumns();
+            }
+            Aggregations.NumericStats stats = stats(segment, segment.planExact(QueryParser.parse("latency > 4")));
+            assertEquals(5, stats.count());
+            assertEquals(26, stats.sum());
+            assertEquals(Map.of("p1", 5.0, "p25", 5.0, "p50", 5.0, "p90", 6.0, "p99", 6.0, "p99.9", 6.0,
+                    "p100", 6.0), stats.percentiles());
+            assertNull(stats(segment, segment.planExact(QueryParser.parse("latency > 6"))));
+        }
+    }
+
+    /**
+     * A latency that is mostly distinct, sometimes 5 or 5.0, sometimes not a
+     * number and sometimes missing; a level out of three and a bucket out of
+     * sixty to filter on.
+     */
+    private static List<String> lines() {
+        String[] levels = { "INFO", "WARN", "ERROR" };
+        return IntStream.range(0, DOCS).mapToObj(i -> {
+            String latency = switch (i % 10) {
+                case 1 -> "";
+                case 3 -> "\"latency\":5.0,";
+                case 7 -> "\"latency\":5,";
+                case 9 -> "\"latency\":\"n/a\",";
+                default -> "\"latency\":" + (i * 37 % 2000 - 500) + (i % 4 == 0 ? ".5" : "") + ",";
+            };
+            return String.format("{%s\"level\":\"%s\",\"bucket\":\"b%d\",\"message\":\"request %d\"}", latency,
+                    levels[i % 3], i % 60, i);
+        }).toList();
+    }
+
+    private static Aggregations.NumericStats stats(LogSegment segment, DocSet planned) {
+        return segment.aggregate(planned, null, null, List.of(), 10, List.of("latency"), PERCENTILES, null)
+                .stats().get("latency");
+    }
+
+    // sorted and walked by nearest rank; halves and small integers keep every sum exact
+    private static Aggregations.NumericStats stats(LogSegment segment, int[] docs) {
+        double[] values = Arrays.stream(docs)
+                .mapToDouble(doc -> QueryNode.Range.parseNumber(JsonFlattener.flatten(segment.readLog(doc))
+                        .get("latency")))
+                .filter(value -> !Double.isNaN(value)).sorted().toArray();
+        if (values.length == 0) {
+            return null;
+        }
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (double percent : PERCENTILES) {
+            int rank = (int) Math.max(1, Math.ceil(percent / 100 * values.length));
+            percentiles.put(percent == Math.rint(percent) ? "p" + (long) percent : "p" + percent,
+                    values[rank - 1]);
+        }
+        double sum = Arrays.stream(values).sum();
+        return new Aggregations.NumericStats(values.length, values[0], values[values.length - 1], sum,
+                sum / values.length, percentiles);
+    }
+}
@@ -0,0 +1,152 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class PostingListTest {
+
+    @Test
+    void decodesAroundBlockBoundaries() {
+        for (int size : new int[] { 1, 127, 128, 129, 255, 256, 257 }) {
+            int[] docs = docs(size, new Random(size), 3);
+            PostingList postings = of(docs);
+
+            assertEquals(size, postings.size());
+            assertEquals(docs[size - 1], postings.lastDoc());
+            assertArrayEquals(docs, postings.toArray(), "size " + size);
+        }
+    }
+
+    @Test
+    void decodesGapsThatTakeFiveVarintBytes() {
+        // 2^21 and up need a 4th byte, 2^28 and up a 5th
+        int[] docs = { 0, 1, (1 << 21) - 1, 1 << 21, (1 << 21) + 1, 1 << 28, (1 << 28) + (1 << 21) + 5,
+                Integer.MAX_VALUE - 1 };
+        assertArrayEquals(docs, of(docs).toArray());
+
+        // the same gaps inside a block, not only at its start
+        int[] spread = new int[300];
+        for (int i = 1; i < spread.length; i++) {
+            spread[i] = spread[i - 1] + (i % 3 == 0 ? (1 << 21) + i : 1);
+        }
+        assertArrayEquals(spread, of(spread).toArray());
+    }
+
+    @Test
+    void rejectsDocsOutOfOrder() {
+        PostingList postings = new PostingList();
+        postings.add(5);
+        assertThrows(IllegalArgumentException.class, () -> postings.add(5));
+        assertThrows(IllegalArgumentException.class, () -> postings.add(4));
+    }
+
+    @Test
+    void advanceSkipsWholeBlocks() {
+        int[] docs = docs(1000, new Random(1), 10);
+        PostingList postings = of(docs);
+
+        // to the first doc of a later block, to the doc before it and past the end
+        PostingList.Cursor cursor = postings.cursor();
+        assertTrue(cursor.advance(docs[256]));
+        assertEquals(docs[256], cursor.doc());
+        assertTrue(cursor.advance(docs[256]));
+        assertEquals(docs[256], cursor.doc());
+        assertTrue(cursor.advance(docs[383] + 1));
+        assertEquals(docs[384], cursor.doc());
+        assertTrue(cursor.next());
+        assertEquals(docs[385], cursor.doc());
+        assertFalse(cursor.advance(docs[999] + 1));
+
+        // every target from a fresh cursor lands on the first doc >= target
+        Random random = new Random(2);
+        for (int i = 0; i < 2000; i++) {
+            int target = random.nextInt(docs[999] + 2);
+            PostingList.Cursor fresh = postings.cursor();
+            int expected = Arrays.binarySearch(docs, target);
+            expected = expected >= 0 ? expected : -expected - 1;
+            assertEquals(expected < docs.length, fresh.advance(target));
+            if (expected < docs.length) {
+                assertEquals(docs[expected], fresh.doc());
+            }
+        }
+    }
+
+    @Test
+    void advancesThroughIncreasingTargets() {
+        int[] docs = docs(5000, new Random(3), 5);
+        PostingList postings = of(docs);
+        PostingList.Cursor cursor = postings.cursor();
+        Random random = new Random(4);
+
+        int target = 0;
+        while (true) {
+            target += random.nextInt(400);
+            int expected = Arrays.binarySearch(docs, target);
+            expected = expected >= 0 ? expected : -expected - 1;
+            if (expected == docs.length) {
+                assertFalse(cursor.advance(target));
+                break;
+            }
+            assertTrue(cursor.advance(target));
+            assertEquals(docs[expected], cursor.doc());
+        }
+    }
+
+    @Test
+    void survivesWriteAndRead() throws Exception {
+        for (int size : new int[] { 0, 1, 128, 129, 1000 }) {
+            PostingList postings = size == 0 ? new PostingList() : of(docs(size, new Random(size), 1 << 22));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            postings.writeTo(new DataOutputStream(bytes));
+
+            ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+            PostingList read = PostingList.readFrom(in);
+            assertFalse(in.hasRemaining());
+            assertArrayEquals(postings.toArray(), read.toArray());
+            assertEquals(postings.lastDoc(), read.lastDoc());
+
+            // appending continues where the saved list ended
+            read.add(postings.lastDoc() + 1);
+            assertEquals(size + 1, read.size());
+        }
+    }
+
+    @Test
+    void addAllShiftsDocs() {
+        int[] partial = docs(200, new Random(5), 4);
+        PostingList postings = of(new int[] { 0, 3 });
+        postings.addAll(of(partial), 10);
+
+        int[] expected = IntStream.concat(IntStream.of(0, 3), Arrays.stream(partial).map(doc -> doc + 10)).toArray();
+        assertArrayEquals(expected, postings.toArray());
+    }
+
+    // increasing docs from 0 with gaps of 1 to maxGap
+    static int[] docs(int size, Random random, int maxGap) {
+        int[] docs = new int[size];
+        for (int i = 1; i < size; i++) {
+            docs[i] = docs[i - 1] + 1 + random.nextInt(maxGap);
+        }
+        return docs;
+    }
+
+    static PostingList of(int[] docs) {
+        PostingList postings = new PostingList();
+        for (int doc : docs) {
+            postings.add(doc);
+        }
+        return postings;
+    }
+}
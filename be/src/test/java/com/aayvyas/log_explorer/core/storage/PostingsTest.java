@@ -0,0 +1,97 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class PostingsTest {
+
+    @Test
+    void intersectsListsOfMixedSizes() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<PostingList> lists = new ArrayList<>();
+            List<int[]> arrays = new ArrayList<>();
+            int count = 2 + random.nextInt(4);
+            for (int i = 0; i < count; i++) {
+                // a rare list next to ones spanning many skip blocks
+                int[] docs = randomDocs(random, i == 0 ? 1 + random.nextInt(20) : 100 + random.nextInt(3000), 5000);
+                arrays.add(docs);
+                lists.add(PostingListTest.of(docs));
+            }
+
+            int[] expected = arrays.get(0);
+            for (int[] docs : arrays.subList(1, arrays.size())) {
+                expected = naiveIntersect(expected, docs);
+            }
+            assertArrayEquals(expected, Postings.intersect(lists), "round " + round);
+            assertArrayEquals(expected, pairwise(arrays), "round " + round);
+        }
+    }
+
+    @Test
+    void intersectsEdgeCases() {
+        PostingList some = PostingListTest.of(new int[] { 1, 5, 9 });
+        assertArrayEquals(new int[0], Postings.intersect(List.of()));
+        assertArrayEquals(new int[0], Postings.intersect(List.of(some, new PostingList())));
+        assertArrayEquals(new int[] { 1, 5, 9 }, Postings.intersect(List.of(some)));
+        assertArrayEquals(new int[] { 1, 5, 9 }, Postings.intersect(List.of(some, some)));
+        assertArrayEquals(new int[0], Postings.intersect(List.of(some, PostingListTest.of(new int[] { 0, 2, 10 }))));
+        // the only common doc is the last one of a 129-doc list, in its second block
+        int[] long129 = IntStream.range(0, 129).map(i -> i * 2).toArray();
+        assertArrayEquals(new int[] { 256 },
+                Postings.intersect(List.of(PostingListTest.of(long129), PostingListTest.of(new int[] { 3, 256 }))));
+    }
+
+    @Test
+    void unionsFewAndManyLists() {
+        Random random = new Random(11);
+        // up to 4 lists are merged pairwise, more go through a bitset
+        for (int count : new int[] { 1, 2, 4, 5, 12 }) {
+            List<int[]> sets = new ArrayList<>();
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < count; i++) {
+                int[] docs = randomDocs(random, random.nextInt(i % 2 == 0 ? 5 : 500), 2000);
+                sets.add(docs);
+                for (int doc : docs) {
+                    expected.add(doc);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), Postings.union(sets),
+                    count + " lists");
+        }
+        assertArrayEquals(new int[0], Postings.union(List.of()));
+        assertArrayEquals(new int[0], Postings.union(List.of(new int[0], new int[0], new int[0], new int[0],
+                new int[0])));
+    }
+
+    private static int[] pairwise(List<int[]> arrays) {
+        int[] result = arrays.get(0);
+        for (int[] docs : arrays.subList(1, arrays.size())) {
+            result = Postings.intersect(result, docs);
+        }
+        return result;
+    }
+
+    private static int[] randomDocs(Random random, int count, int bound) {
+        TreeSet<Integer> docs = new TreeSet<>();
+        while (docs.size() < Math.min(count, bound)) {
+            docs.add(random.nextInt(bound));
+        }
+        return docs.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] naiveIntersect(int[] a, int[] b) {
+        TreeSet<Integer> set = new TreeSet<>();
+        for (int doc : b) {
+            set.add(doc);
+        }
+        return IntStream.of(a).filter(set::contains).toArray();
+    }
+}
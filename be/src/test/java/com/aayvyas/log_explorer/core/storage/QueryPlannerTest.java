@@ -0,0 +1,158 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.ingestion.JsonFlattener;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+
+/**
+ * Plans checked against evaluating the query on every entry.
+ */
+class QueryPlannerTest {
+
+    private static final List<String> FIELD_QUERIES = List.of(
+            "level=ERROR",
+            "level=NOPE",
+            "level=ERROR service=payment",
+            "level=ERROR OR service=payment",
+            "level=NOPE OR service=search",
+            "level=ERROR AND NOT service=payment",
+            "level!=WARN",
+            "NOT level=NOPE",
+            "NOT (level=INFO OR level=WARN)",
+            "NOT level=INFO AND NOT service=gateway",
+            "(level=INFO OR level=WARN) AND NOT (service=search OR latency_ms < 300)",
+            "service=pay* AND latency_ms >= 500",
+            "latency_ms BETWEEN 100 AND 200 OR level=ERROR",
+            "traceId=~^trace-001",
+            "traceId=trace-00042",
+            "NOT traceId=trace-00042 AND level=INFO");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fieldQueriesAreExact() throws Exception {
+        LogSegment segment = TestLogs.index(TestLogs.write(dir, "app.log", TestLogs.entries(300)));
+        for (String query : FIELD_QUERIES) {
+            QueryNode node = QueryParser.parse(query);
+            DocSet planned = segment.plan(node);
+            assertTrue(planned.exact(), query);
+            assertArrayEquals(matching(segment, node), planned.docs(), query);
+        }
+    }
+
+    @Test
+    void textMatchesAreCandidatesToVerify() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", List.of(
+                "{\"message\":\"abcd\",\"level\":\"INFO\"}",
+                "{\"message\":\"abcxbcd\",\"level\":\"INFO\"}",
+                "{\"message\":\"xyz\",\"level\":\"WARN\"}",
+                "{\"message\":\"ABCD again\",\"level\":\"ERROR\"}"));
+        LogSegment segment = TestLogs.index(file);
+
+        // both trigrams of "abcd" are in "abcxbcd", which does not contain it
+        DocSet candidates = segment.plan(QueryParser.parse("abcd"));
+        assertFalse(candidates.exact());
+        assertArrayEquals(new int[] { 0, 1, 3 }, candidates.docs());
+        assertArrayEquals(new int[] { 0, 3 }, segment.planExact(QueryParser.parse("abcd")).docs());
+
+        // a superset can't be negated, every doc has to be checked
+        DocSet negated = segment.plan(QueryParser.parse("NOT abcd"));
+        assertFalse(negated.exact());
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, negated.docs());
+        DocSet exactNegated = segment.planExact(QueryParser.parse("NOT abcd"));
+        assertTrue(exactNegated.exact());
+        assertArrayEquals(new int[] { 1, 2 }, exactNegated.docs());
+
+        // inexact children make the whole AND / OR inexact
+        DocSet and = segment.plan(QueryParser.parse("level=INFO AND abcd"));
+        assertFalse(and.exact());
+        assertArrayEquals(new int[] { 0, 1 }, and.docs());
+        DocSet andNot = segment.plan(QueryParser.parse("level=INFO AND NOT abcd"));
+        assertFalse(andNot.exact());
+        assertArrayEquals(new int[] { 0, 1 }, andNot.docs());
+        DocSet or = segment.plan(QueryParser.parse("level=WARN OR abcd"));
+        assertFalse(or.exact());
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, or.docs());
+        assertArrayEquals(new int[] { 0, 2, 3 }, segment.planExact(QueryParser.parse("level=WARN OR abcd")).docs());
+    }
+
+    @Test
+    void verifiedTextPlansMatchEveryEntry() throws Exception {
+        LogSegment segment = TestLogs.index(TestLogs.write(dir, "app.log", TestLogs.entries(300)));
+        for (String query : List.of("timeout", "\"request 12\"", "message~served", "NOT timeout",
+                "level=ERROR AND NOT \"with timeout\"", "timeout OR service=search", "ou")) {
+            QueryNode node = QueryParser.parse(query);
+            int[] expected = matching(segment, node);
+            DocSet planned = segment.plan(node);
+            int[] verified = planned.exact() ? planned.docs()
+                    : Arrays.stream(planned.docs()).filter(doc -> matches(segment, node, doc)).toArray();
+            assertArrayEquals(expected, verified, query);
+
+            DocSet exact = segment.planExact(node);
+            assertTrue(exact.exact(), query);
+            assertArrayEquals(expected, exact.docs(), query);
+        }
+    }
+
+    @Test
+    void bloomFieldsAnswerPointLookupsExactly() throws Exception {
+        SegmentOptions options = new SegmentOptions(SegmentOptions.DEFAULT_TEXT_FIELDS, false, 50, 16);
+        LogSegment segment = TestLogs.index(TestLogs.write(dir, "app.log", TestLogs.entries(300)), options);
+        assertTrue(segment.bloomIndex().containsKey("traceId"));
+
+        for (String query : FIELD_QUERIES) {
+            QueryNode node = QueryParser.parse(query);
+            int[] expected = matching(segment, node);
+            DocSet planned = segment.plan(node);
+            if (planned.exact()) {
+                assertArrayEquals(expected, planned.docs(), query);
+            } else {
+                // only scans of a bloom field are left to verify
+                assertTrue(query.contains("=~"), query);
+                assertEquals(300, planned.size(), query);
+            }
+            assertArrayEquals(expected, segment.planExact(node).docs(), query);
+        }
+    }
+
+    @Test
+    void substringsOnBloomFieldsScanEveryDoc() throws Exception {
+        SegmentOptions options = new SegmentOptions(SegmentOptions.DEFAULT_TEXT_FIELDS, false, 50, 16);
+        LogSegment segment = TestLogs.index(TestLogs.write(dir, "app.log", TestLogs.entries(300)), options);
+        assertTrue(segment.bloomIndex().containsKey("traceId"));
+
+        for (String query : List.of("traceId~00042", "traceId~trace-001", "traceId~nope", "level=ERROR AND traceId~4",
+                "NOT traceId~7")) {
+            QueryNode node = QueryParser.parse(query);
+            int[] expected = matching(segment, node);
+            assertTrue(expected.length > 0 || query.contains("nope"), query);
+            DocSet planned = segment.plan(node);
+            assertFalse(planned.exact(), query);
+            assertArrayEquals(expected, Arrays.stream(planned.docs()).filter(doc -> matches(segment, node, doc))
+                    .toArray(), query);
+            assertArrayEquals(expected, segment.planExact(node).docs(), query);
+        }
+    }
+
+    private static int[] matching(LogSegment segment, QueryNode query) {
+        return IntStream.range(0, segment.getDocCount()).filter(doc -> matches(segment, query, doc)).toArray();
+    }
+
+    private static boolean matches(LogSegment segment, QueryNode query, int doc) {
+        return query.matches(JsonFlattener.flatten(segment.readLog(doc)), SegmentOptions.DEFAULT_TEXT_FIELDS);
+    }
+}
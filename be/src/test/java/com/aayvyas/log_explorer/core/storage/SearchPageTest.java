@@ -0,0 +1,120 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+import com.aayvyas.log_explorer.core.search.SearchCursor;
+import com.aayvyas.log_explorer.core.search.SearchPage;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+
+/**
+ * Paging through hits that share timestamps: resumed from the cursor of each
+ * page, the pages add up to the unpaged hits in (timestamp, doc) order.
+ */
+class SearchPageTest {
+
+    private static final int ENTRIES = 120;
+
+    // match sets that take each way of ordering a plan: none, small ones sorted, large ones filtered
+    private static final List<String> QUERIES = List.of("", "seq=3 OR seq=50 OR seq=51 OR seq=97", "level=ERROR",
+            "NOT level=INFO", "timeout");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resumesAcrossTiesInTimeOrderedFile() throws Exception {
+        // five entries a second
+        assertPagesAddUp(segment(i -> i / 5));
+    }
+
+    @Test
+    void resumesAcrossTiesInShuffledFile() throws Exception {
+        // thirteen distinct seconds, out of file order
+        assertPagesAddUp(segment(i -> i * 7 % 13));
+    }
+
+    @Test
+    void lastPageHasNoCursor() throws Exception {
+        LogSegment segment = segment(i -> 0);
+        SearchPage<Map<String, Object>> page = segment.searchPage(QueryParser.parse(""), null, null, null,
+                SortOrder.OLDEST, null, ENTRIES);
+        assertEquals(ENTRIES, page.hits().count());
+        assertNull(page.next());
+
+        page = segment.searchPage(QueryParser.parse(""), null, null, null, SortOrder.OLDEST, null, ENTRIES - 1);
+        assertEquals(new SearchCursor(Instant.parse("2024-01-01T00:00:00Z").toEpochMilli(), ENTRIES - 2),
+                page.next());
+    }
+
+    private void assertPagesAddUp(LogSegment segment) {
+        Instant from = Instant.parse("2024-01-01T00:00:03Z");
+        Instant to = Instant.parse("2024-01-01T00:00:09Z");
+        for (String query : QUERIES) {
+            QueryNode node = QueryParser.parse(query);
+            DocSet planned = segment.plan(node);
+            for (SortOrder order : SortOrder.values()) {
+                for (Instant[] range : new Instant[][] { { null, null }, { from, to } }) {
+                    List<Integer> expected = expected(segment, node, planned, range[0], range[1], order);
+                    for (int limit : new int[] { 1, 2, 3, 5, 7, 64 }) {
+                        String context = query + " " + order + " " + range[0] + " page of " + limit;
+                        assertEquals(expected, paged(segment, node, planned, range[0], range[1], order, limit),
+                                context);
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<Integer> paged(LogSegment segment, QueryNode query, DocSet planned, Instant from, Instant to,
+            SortOrder order, int limit) {
+        List<Integer> seqs = new ArrayList<>();
+        SearchCursor after = null;
+        do {
+            SearchPage<Map<String, Object>> page = segment.searchPage(query, planned, from, to, order,
+                    SearchCursor.decode(after == null ? null : after.encode()), limit);
+            List<Integer> hits = page.hits().map(hit -> (Integer) hit.get("seq")).toList();
+            seqs.addAll(hits);
+            after = page.next();
+            if (after != null) {
+                assertEquals(limit, hits.size());
+                assertEquals((int) hits.get(limit - 1), after.doc());
+            }
+        } while (after != null);
+        return seqs;
+    }
+
+    private static List<Integer> expected(LogSegment segment, QueryNode query, DocSet planned, Instant from,
+            Instant to, SortOrder order) {
+        Comparator<Integer> byKey = Comparator.<Integer>comparingLong(segment::timeOf)
+                .thenComparingInt(Integer::intValue);
+        return segment.search(query, planned, from, to, order, null)
+                .map(hit -> (Integer) hit.get("seq"))
+                .sorted(order == SortOrder.OLDEST ? byKey : byKey.reversed())
+                .toList();
+    }
+
+    private LogSegment segment(IntUnaryOperator second) throws Exception {
+        String[] levels = { "INFO", "WARN", "ERROR" };
+        List<String> lines = IntStream.range(0, ENTRIES)
+                .mapToObj(i -> String.format("{\"timestamp\":\"2024-01-01T00:00:%02dZ\",\"seq\":%d,\"level\":\"%s\","
+                        + "\"message\":\"%s\"}", second.applyAsInt(i), i, levels[i % 3],
+                        i % 4 == 0 ? "failed with timeout" : "served"))
+                .toList();
+        return TestLogs.index(TestLogs.write(dir, "app.log", lines));
+    }
+}
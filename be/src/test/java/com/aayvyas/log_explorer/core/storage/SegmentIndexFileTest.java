@@ -0,0 +1,159 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+import com.aayvyas.log_explorer.core.search.SortOrder;
+
+class SegmentIndexFileTest {
+
+    private static final List<String> QUERIES = List.of(
+            "level=ERROR",
+            "service=payment AND NOT level=INFO",
+            "traceId=trace-00042",
+            "\"timeout\" AND service=search",
+            "latency_ms >= 500",
+            "service=pay*");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadedIndexAnswersLikeTheOriginal() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", TestLogs.entries(500));
+        Path indexPath = SegmentIndexFile.indexPathFor(dir, "app");
+
+        try (LogSegment original = TestLogs.index(file);
+                LogSegment loaded = TestLogs.open(file, SegmentOptions.defaults())) {
+            original.saveIndex(indexPath);
+            assertTrue(loaded.loadIndex(indexPath));
+
+            assertEquals(original.getDocCount(), loaded.getDocCount());
+            assertEquals(original.getIndexedFields(), loaded.getIndexedFields());
+            assertEquals(original.termCount(), loaded.termCount());
+            assertEquals(original.indexedEnd(), loaded.indexedEnd());
+            for (int doc = 0; doc < original.getDocCount(); doc++) {
+                assertEquals(original.timeOf(doc), loaded.timeOf(doc));
+                assertArrayEquals(original.readRaw(doc), loaded.readRaw(doc));
+            }
+            for (String q : QUERIES) {
+                assertArrayEquals(matches(original, q), matches(loaded, q), q);
+            }
+        }
+    }
+
+    @Test
+    void corruptBodyIsRejected() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", TestLogs.entries(50));
+        Path indexPath = saved(file);
+
+        // one flipped byte in the middle of the body, the checksum no longer matches
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = channel.size() / 2;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ 0x5A)).rewind();
+            channel.write(b, position);
+        }
+
+        assertNotLoaded(file, indexPath);
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", TestLogs.entries(50));
+        Path indexPath = saved(file);
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 20);
+        }
+
+        assertNotLoaded(file, indexPath);
+    }
+
+    @Test
+    void grownSourceIsStale() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", TestLogs.entries(50));
+        Path indexPath = saved(file);
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.write(file, TestLogs.entries(51).subList(50, 51), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(file, modified);
+
+        assertNotLoaded(file, indexPath);
+    }
+
+    @Test
+    void touchedSourceIsStale() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", TestLogs.entries(50));
+        Path indexPath = saved(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 60_000));
+
+        assertNotLoaded(file, indexPath);
+    }
+
+    @Test
+    void olderVersionIsRejected() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", TestLogs.entries(50));
+        Path indexPath = saved(file);
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, SegmentIndexFile.VERSION - 1), 4);
+        }
+
+        assertNotLoaded(file, indexPath);
+    }
+
+    @Test
+    void otherTextFieldsAreRejected() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", TestLogs.entries(50));
+        Path indexPath = saved(file);
+
+        try (LogSegment segment = TestLogs.open(file, new SegmentOptions(Set.of("message", "level")))) {
+            assertFalse(segment.loadIndex(indexPath));
+            assertEquals(0, segment.getDocCount());
+        }
+    }
+
+    @Test
+    void missingFileIsNotLoaded() throws Exception {
+        Path file = TestLogs.write(dir, "app.log", TestLogs.entries(5));
+
+        assertNotLoaded(file, dir.resolve("missing.idx"));
+    }
+
+    private Path saved(Path file) throws Exception {
+        Path indexPath = SegmentIndexFile.indexPathFor(dir, "app");
+        try (LogSegment segment = TestLogs.index(file)) {
+            segment.saveIndex(indexPath);
+        }
+        return indexPath;
+    }
+
+    private static void assertNotLoaded(Path file, Path indexPath) throws Exception {
+        try (LogSegment segment = TestLogs.open(file, SegmentOptions.defaults())) {
+            assertFalse(segment.loadIndex(indexPath));
+            // left empty for the caller to re-index
+            assertEquals(0, segment.getDocCount());
+            assertTrue(segment.getIndexedFields().isEmpty());
+        }
+    }
+
+    private static int[] matches(LogSegment segment, String q) {
+        QueryNode query = QueryParser.parse(q);
+        return segment.matches(query, segment.plan(query), null, null, SortOrder.OLDEST, null).toArray();
+    }
+}
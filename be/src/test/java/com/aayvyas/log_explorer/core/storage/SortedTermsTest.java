@@ -0,0 +1,140 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aayvyas.log_explorer.core.ingestion.JsonFlattener;
+import com.aayvyas.log_explorer.core.search.Aggregations;
+import com.aayvyas.log_explorer.core.search.QueryNode;
+import com.aayvyas.log_explorer.core.search.QueryParser;
+
+/**
+ * Sorted runs checked against filtering every value by its UTF-8 prefix.
+ */
+class SortedTermsTest {
+
+    // one to four UTF-8 bytes a char, values that are prefixes of others and ones sharing more than 16 bytes
+    private static final List<String> VALUES = List.of("cafe", "café", "cafés", "caf", "été", "日本", "日本語",
+            "\ud83d\ude00", "\ud83d\ude01 grin", "\uffff", "z", "a", "user-0123456789abcdef-1",
+            "user-0123456789abcdef-2", "user-0123456789abcdef", "\u0080");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ordersValuesByUtf8Bytes() {
+        List<String> values = new ArrayList<>(VALUES);
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            values.add(i % 2 == 0 ? "user-0123456789abcdef-" + random.nextInt(100_000) : "é" + random.nextInt(50));
+        }
+        SortedTerms sorted = SortedTerms.of(dictionary(values));
+
+        List<String> expected = values.stream().distinct().sorted(Comparator.comparing(SortedTermsTest::utf8,
+                Arrays::compareUnsigned)).toList();
+        TermDictionary dictionary = dictionary(values);
+        assertEquals(expected.size(), sorted.termCount());
+        assertEquals(expected, IntStream.range(0, sorted.termCount()).mapToObj(p -> dictionary.term(sorted.id(p)))
+                .toList());
+    }
+
+    @Test
+    void prefixRunsHoldExactlyTheValuesWithThePrefix() {
+        TermDictionary dictionary = dictionary(VALUES);
+        SortedTerms sorted = SortedTerms.of(dictionary);
+        for (String prefix : List.of("", "c", "caf", "café", "cafés", "cafx", "é", "ét", "日", "日本",
+                "\ud83d\ude00", "\uffff", "user-0123456789abcdef", "user-0123456789abcdef-",
+                "user-0123456789abcdef-3", "a", "b")) {
+            int start = sorted.start(prefix);
+            int end = sorted.end(prefix);
+            List<String> run = IntStream.range(start, end).mapToObj(p -> dictionary.term(sorted.id(p))).sorted()
+                    .toList();
+            List<String> expected = VALUES.stream().filter(value -> startsWith(value, prefix)).sorted().toList();
+            assertEquals(expected, run, prefix);
+            // an empty run still sits where the prefix would be
+            if (start == end) {
+                assertTrue(start == 0 || compare(dictionary.term(sorted.id(start - 1)), prefix) < 0, prefix);
+                assertTrue(start == VALUES.size() || compare(dictionary.term(sorted.id(start)), prefix) > 0, prefix);
+            }
+        }
+    }
+
+    @Test
+    void emptyAndOutOfRangePrefixes() {
+        SortedTerms sorted = SortedTerms.of(dictionary(VALUES));
+        assertEquals(0, sorted.start(""));
+        assertEquals(VALUES.size(), sorted.end(""));
+        // before the first value, past the last one (U+FFFF sorts below a supplementary char)
+        assertEquals(0, sorted.start("\u0001"));
+        assertEquals(0, sorted.end("\u0001"));
+        assertEquals(VALUES.size(), sorted.start("\ud83d\ude02"));
+        assertEquals(VALUES.size(), sorted.end("\ud83d\ude02"));
+
+        SortedTerms empty = SortedTerms.of(new TermDictionary());
+        assertEquals(0, empty.termCount());
+        assertEquals(0, empty.start(""));
+        assertEquals(0, empty.end("a"));
+    }
+
+    @Test
+    void wildcardsRegexesAndSuggestionsOnNonAsciiValues() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            lines.add(String.format("{\"user\":\"%s\",\"message\":\"m %d\"}", VALUES.get(i * 7 % VALUES.size()), i));
+        }
+        LogSegment segment = TestLogs.index(TestLogs.write(dir, "users.log", lines));
+
+        for (String query : List.of("user=caf*", "user=café*", "user=日*", "user=\"日*\"", "user=é?é",
+                "user=user-0123456789abcdef-*", "user=*", "user=x*", "user=\ufffe*", "user=~^caf",
+                "user=~^日本.", "user=~^\ud83d\ude00", "user=~\"^user-0123456789abcdef-\\d$\"", "user=~é$",
+                "user=~^z", "user=~^zz")) {
+            QueryNode node = QueryParser.parse(query);
+            DocSet planned = segment.plan(node);
+            assertTrue(planned.exact(), query);
+            assertArrayEquals(IntStream.range(0, segment.getDocCount()).filter(doc -> node.matches(
+                    JsonFlattener.flatten(segment.readLog(doc)), SegmentOptions.DEFAULT_TEXT_FIELDS)).toArray(),
+                    planned.docs(), query);
+        }
+
+        for (String prefix : List.of("", "caf", "café", "日本", "\ud83d\ude00", "user-0123456789abcdef-", "zz")) {
+            List<String> suggested = segment.suggestValues("user", prefix, 100).stream()
+                    .map(Aggregations.ValueCount::value).sorted().toList();
+            assertEquals(VALUES.stream().filter(value -> startsWith(value, prefix)).sorted().toList(), suggested,
+                    prefix);
+        }
+        assertEquals(2, segment.suggestValues("user", "caf", 2).size());
+    }
+
+    private static TermDictionary dictionary(List<String> values) {
+        TermDictionary dictionary = new TermDictionary();
+        values.forEach(dictionary::add);
+        return dictionary;
+    }
+
+    private static boolean startsWith(String value, String prefix) {
+        byte[] bytes = utf8(value);
+        byte[] start = utf8(prefix);
+        return bytes.length >= start.length && Arrays.equals(bytes, 0, start.length, start, 0, start.length);
+    }
+
+    private static int compare(String a, String b) {
+        return Arrays.compareUnsigned(utf8(a), utf8(b));
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
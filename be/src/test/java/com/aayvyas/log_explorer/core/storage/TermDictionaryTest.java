@@ -0,0 +1,136 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TermDictionaryTest {
+
+    // one, two, three and four UTF-8 bytes a char, and the empty value
+    private static final List<String> MIXED = List.of("", "a", "café", "été", "日本",
+            "\ud83d\ude00 smile", "z", "\u007f", "\u0080", "\uffff", "\ud800\udc00");
+
+    @Test
+    void assignsIdsInInsertionOrder() {
+        TermDictionary dictionary = new TermDictionary();
+        for (int i = 0; i < MIXED.size(); i++) {
+            assertEquals(i, dictionary.add(MIXED.get(i)));
+        }
+        for (int i = 0; i < MIXED.size(); i++) {
+            assertEquals(i, dictionary.add(MIXED.get(i)));
+            assertEquals(i, dictionary.find(MIXED.get(i)));
+            assertEquals(MIXED.get(i), dictionary.term(i));
+        }
+        assertEquals(MIXED.size(), dictionary.size());
+        assertEquals(-1, dictionary.find("caf"));
+        assertEquals(-1, dictionary.find("cafe"));
+        assertEquals(-1, dictionary.find("café "));
+        assertEquals(-1, dictionary.find("日"));
+    }
+
+    @Test
+    void keepsTermsAcrossGrowthAndPages() {
+        TermDictionary dictionary = new TermDictionary();
+        List<String> terms = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            terms.add(i % 3 == 0 ? "trace-" + i : i % 3 == 1 ? "üser-" + i : "日本-" + random.nextLong());
+        }
+        // bigger than the largest page
+        terms.add("x".repeat((1 << 20) + 5));
+        terms.add("after the big one");
+
+        for (int i = 0; i < terms.size(); i++) {
+            assertEquals(i, dictionary.add(terms.get(i)));
+        }
+        for (int i = 0; i < terms.size(); i++) {
+            assertEquals(terms.get(i), dictionary.term(i));
+            assertEquals(i, dictionary.find(terms.get(i)));
+        }
+        assertTrue(dictionary.estimatedBytes() > 1 << 20);
+    }
+
+    @Test
+    void copiesTermsFromAnotherDictionary() {
+        TermDictionary source = new TermDictionary();
+        MIXED.forEach(source::add);
+        TermDictionary target = new TermDictionary();
+        target.add("z");
+        target.add("other");
+
+        for (int id = 0; id < source.size(); id++) {
+            int copied = target.add(source, id);
+            assertEquals(MIXED.get(id), target.term(copied));
+            assertEquals(copied, target.find(MIXED.get(id)));
+            assertEquals(copied, target.add(MIXED.get(id)));
+        }
+        // "z" was there already
+        assertEquals(0, target.find("z"));
+        assertEquals(2 + MIXED.size() - 1, target.size());
+    }
+
+    @Test
+    void comparesByUtf8Bytes() {
+        TermDictionary dictionary = new TermDictionary();
+        MIXED.forEach(dictionary::add);
+        for (int a = 0; a < MIXED.size(); a++) {
+            for (int b = 0; b < MIXED.size(); b++) {
+                assertEquals(Integer.signum(compareUtf8(MIXED.get(a), MIXED.get(b))),
+                        Integer.signum(dictionary.compare(a, b)), MIXED.get(a) + " vs " + MIXED.get(b));
+            }
+        }
+        // a supplementary char sorts after U+FFFF by code point, before it in UTF-16 order
+        assertTrue(dictionary.compare(MIXED.indexOf("\ud800\udc00"), MIXED.indexOf("\uffff")) > 0);
+    }
+
+    @Test
+    void comparesAgainstPrefixes() {
+        TermDictionary dictionary = new TermDictionary();
+        int cafe = dictionary.add("café");
+        int empty = dictionary.add("");
+
+        assertEquals(0, dictionary.comparePrefix(cafe, utf8("")));
+        assertEquals(0, dictionary.comparePrefix(cafe, utf8("caf")));
+        assertEquals(0, dictionary.comparePrefix(cafe, utf8("café")));
+        assertTrue(dictionary.comparePrefix(cafe, utf8("cafés")) < 0);
+        assertTrue(dictionary.comparePrefix(cafe, utf8("cafe")) > 0);
+        assertTrue(dictionary.comparePrefix(cafe, utf8("cb")) < 0);
+        assertEquals(0, dictionary.comparePrefix(empty, utf8("")));
+        assertTrue(dictionary.comparePrefix(empty, utf8("a")) < 0);
+    }
+
+    @Test
+    void headsAreFourBytesZeroPadded() {
+        TermDictionary dictionary = new TermDictionary();
+        int id = dictionary.add("abcdé");
+        assertEquals(0x61626364, dictionary.head(id, 0));
+        assertEquals(0xC3A90000, dictionary.head(id, 4));
+        assertEquals(0, dictionary.head(id, 6));
+    }
+
+    @Test
+    void clearForgetsEverything() {
+        TermDictionary dictionary = new TermDictionary();
+        MIXED.forEach(dictionary::add);
+        dictionary.clear();
+        assertEquals(0, dictionary.size());
+        assertEquals(-1, dictionary.find("a"));
+        assertEquals(0, dictionary.add("z"));
+        assertEquals("z", dictionary.term(0));
+    }
+
+    private static int compareUtf8(String a, String b) {
+        return Arrays.compareUnsigned(utf8(a), utf8(b));
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package com.aayvyas.log_explorer.core.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.aayvyas.log_explorer.core.ingestion.NdjsonLogParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Small NDJSON files and the segments indexed from them, for the storage tests.
+ */
+final class TestLogs {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private TestLogs() {
+    }
+
+    static Path write(Path dir, String name, List<String> lines) throws IOException {
+        return Files.write(dir.resolve(name), lines);
+    }
+
+    /**
+     * {@code count} entries a second apart, with a level, a service out of
+     * three, a unique trace id and a message.
+     */
+    static List<String> entries(int count) {
+        String[] levels = { "INFO", "WARN", "ERROR" };
+        String[] services = { "gateway", "payment", "search" };
+        return IntStream.range(0, count)
+                .mapToObj(i -> String.format(
+                        "{\"timestamp\":\"2024-01-01T00:%02d:%02dZ\",\"level\":\"%s\",\"service\":\"%s\","
+                                + "\"traceId\":\"trace-%05d\",\"latency_ms\":%d,\"message\":\"request %d %s\"}",
+                        i / 60 % 60, i % 60, levels[i % 3], services[i % 7 % 3], i, i * 7 % 1000, i,
+                        i % 2 == 0 ? "served" : "failed with timeout"))
+                .toList();
+    }
+
+    /**
+     * Opens and indexes a file, the way ingestion does.
+     */
+    static LogSegment index(Path file, SegmentOptions options) throws Exception {
+        LogSegment segment = new LogSegment(file.getFileName().toString(), file, MAPPER, options);
+        segment.init();
+        try (InputStream in = Files.newInputStream(file)) {
+            new NdjsonLogParser(MAPPER).parse(in,
+                    entry -> segment.addToIndex(entry.logEntry(), entry.offset(), entry.length()));
+        }
+        return segment;
+    }
+
+    static LogSegment index(Path file) throws Exception {
+        return index(file, SegmentOptions.defaults());
+    }
+
+    /**
+     * An empty segment over the same file, to load a saved index into.
+     */
+    static LogSegment open(Path file, SegmentOptions options) throws Exception {
+        LogSegment segment = new LogSegment(file.getFileName().toString(), file, MAPPER, options);
+        segment.init();
+        return segment;
+    }
+}
@@ -29,6 +29,9 @@ export default function UploadModal({ open, onOpenChange, onUploadSuccess }: Upl
     const [uploading, setUploading] = useState(false);
     const [error, setError] = useState<string | null>(null);
     const [progress, setProgress] = useState(0);
+    // set once the file is stored and indexing runs as a job, which can be cancelled
+    const [jobId, setJobId] = useState<string | null>(null);
+    const [cancelling, setCancelling] = useState(false);
 
     const handleFileChange = (e: React.ChangeEvent<HTMLInputElement>) => {
         if (e.target.files && e.target.files[0]) {
@@ -48,11 +51,27 @@ export default function UploadModal({ open, onOpenChange, onUploadSuccess }: Upl
         setProgress(10);
 
         try {
-            const timer = setInterval(() => setProgress((p) => Math.min(p + 10, 90)), 200);
+            let job = await ApiClient.uploadFile(file, { description, tags });
+            setJobId(job.jobId);
+
+            // the file is stored, poll the indexing job until it is searchable
+            while (job.state === 'QUEUED' || job.state === 'RUNNING') {
+                setProgress(job.totalBytes > 0 ? Math.max(10, (job.bytesProcessed / job.totalBytes) * 100) : 10);
+                await new Promise((resolve) => setTimeout(resolve, 500));
+                job = await ApiClient.getJob(job.jobId);
+            }
+            if (job.state === 'CANCELLED') {
+                setError('Upload cancelled.');
+                setJobId(null);
+                setCancelling(false);
+                setUploading(false);
+                setProgress(0);
+                return;
+            }
+            if (job.state !== 'SUCCEEDED') {
+                throw new Error(job.error || `Indexing ${job.state.toLowerCase()}`);
+            }
 
-            await ApiClient.uploadFile(file, { description, tags });
-
-            clearInterval(timer);
             setProgress(100);
 
             setTimeout(() => {
@@ -62,17 +81,33 @@ export default function UploadModal({ open, onOpenChange, onUploadSuccess }: Upl
 
         } catch (err) {
             setError('Failed to upload file. Please try again.');
+            setJobId(null);
+            setCancelling(false);
             setUploading(false);
             setProgress(0);
         }
     };
 
+    // the polling loop in handleUpload sees the job end and resets the form
+    const handleCancelJob = async () => {
+        if (!jobId) return;
+        setCancelling(true);
+        try {
+            await ApiClient.cancelJob(jobId);
+        } catch (err) {
+            setError('Failed to cancel upload.');
+            setCancelling(false);
+        }
+    };
+
     const resetForm = () => {
         setFile(null);
         setDescription('');
         setTags('');
         setError(null);
         setProgress(0);
+        setJobId(null);
+        setCancelling(false);
         setUploading(false);
     };
 
@@ -138,13 +173,17 @@ export default function UploadModal({ open, onOpenChange, onUploadSuccess }: Upl
                     {uploading && (
                         <div className="space-y-1">
                             <Progress value={progress} className="h-2" />
-                            <p className="text-xs text-muted-foreground text-center">Uploading...</p>
+                            <p className="text-xs text-muted-foreground text-center">{cancelling ? 'Cancelling...' : 'Uploading...'}</p>
                         </div>
                     )}
                 </div>
 
                 <DialogFooter>
-                    <Button variant="outline" onClick={() => handleOpenChange(false)} disabled={uploading}>Cancel</Button>
+                    {uploading ? (
+                        <Button variant="outline" onClick={handleCancelJob} disabled={!jobId || cancelling}>Cancel upload</Button>
+                    ) : (
+                        <Button variant="outline" onClick={() => handleOpenChange(false)}>Cancel</Button>
+                    )}
                     <Button onClick={handleUpload} disabled={!file || uploading} className="bg-blue-600 hover:bg-blue-700">Upload</Button>
                 </DialogFooter>
             </DialogContent>
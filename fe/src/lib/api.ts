@@ -1,23 +1,37 @@
-import { LogFile, LogEntry, SearchOptions } from '@/types';
+import { IngestionJob, LogFile, LogEntry, SearchOptions } from '@/types';
 
 const API_BASE_URL = process.env.NEXT_PUBLIC_API_URL || 'http://localhost:8080';
 
 export class ApiClient {
-    static async uploadFile(file: File, options?: { description?: string; tags?: string }): Promise<LogFile> {
-        const formData = new FormData();
-        formData.append('file', file);
-        if (options?.description) formData.append('description', options.description);
-        if (options?.tags) formData.append('tags', options.tags);
+    // resolves once the file is stored, indexing goes on in the background (see getJob)
+    static async uploadFile(file: File, options?: { description?: string; tags?: string }): Promise<IngestionJob> {
+        // raw body instead of multipart, so the server writes it to storage as it arrives
+        const params = new URLSearchParams({ name: file.name });
+        if (options?.description) params.append('description', options.description);
+        if (options?.tags) params.append('tags', options.tags);
 
-        const res = await fetch(`${API_BASE_URL}/api/logs/upload`, {
+        const res = await fetch(`${API_BASE_URL}/api/logs/upload/stream?${params}`, {
             method: 'POST',
-            body: formData,
+            headers: { 'Content-Type': 'application/octet-stream' },
+            body: file,
         });
 
         if (!res.ok) throw new Error('Upload failed');
         return res.json();
     }
 
+    static async getJob(jobId: string): Promise<IngestionJob> {
+        const res = await fetch(`${API_BASE_URL}/api/logs/jobs/${jobId}`);
+        if (!res.ok) throw new Error('Failed to fetch job');
+        return res.json();
+    }
+
+    static async cancelJob(jobId: string): Promise<IngestionJob> {
+        const res = await fetch(`${API_BASE_URL}/api/logs/jobs/${jobId}`, { method: 'DELETE' });
+        if (!res.ok && res.status !== 409) throw new Error('Failed to cancel job');
+        return res.json();
+    }
+
     static async getFiles(): Promise<LogFile[]> {
         const res = await fetch(`${API_BASE_URL}/api/logs/files`);
         if (!res.ok) throw new Error('Failed to fetch files');
@@ -10,6 +10,25 @@ export interface LogFile {
   // Removed fields not in response: status, errorCount
 }
 
+export type IngestionJobState = 'QUEUED' | 'RUNNING' | 'SUCCEEDED' | 'FAILED' | 'CANCELLED';
+
+export interface IngestionJob {
+  jobId: string;
+  fileId: string;
+  fileName: string;
+  state: IngestionJobState;
+  bytesProcessed: number;
+  totalBytes: number;
+  linesProcessed: number;
+  bytesPerSecond: number;
+  linesPerSecond: number;
+  etaSeconds: number | null;
+  submittedAt: string;
+  startedAt: string | null;
+  finishedAt: string | null;
+  error: string | null;
+}
+
 export interface LogEntry {
   insertId: string;
   timestamp: string;